@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code ConfigKey} is an interned configuration entry key. For every key name there is exactly one
+ * instance, which carries a dense integer identifier assigned in the order of interning. Keys
+ * may therefore be compared by identity, and providers implementing {@link KeyedDataProvider} may
+ * use the identifier as an array index instead of hashing the name.
+ *
+ * <p>Interned keys are never released. They are meant for names known to the application, such as the
+ * keys derived from configuration interfaces or the keys of configuration sources, not for arbitrary
+ * input.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class ConfigKey implements Comparable<ConfigKey> {
+
+	private static final ConcurrentMap<String, ConfigKey> SYMBOL_TABLE = new ConcurrentHashMap<String, ConfigKey>(1024);
+	private static int nextId = 0;
+
+	private final String name;
+	private final int id;
+
+	/**
+	 * Gets the interned key of the given name, creating it if necessary.
+	 *
+	 * @param name key name
+	 * @return interned key
+	 */
+	public static ConfigKey of(String name) {
+		if (null == name) {
+			throw new NullPointerException();
+		}
+		final ConfigKey existingKey = SYMBOL_TABLE.get(name);
+		if (null != existingKey) {
+			return existingKey;
+		}
+		synchronized (SYMBOL_TABLE) {
+			ConfigKey key = SYMBOL_TABLE.get(name);
+			if (null == key) {
+				key = new ConfigKey(name, nextId++);
+				SYMBOL_TABLE.put(name, key);
+			}
+			return key;
+		}
+	}
+
+	/**
+	 * Gets the interned key of the given name, if it exists.
+	 *
+	 * @param name key name
+	 * @return interned key; {@code null} if no key of this name has been interned
+	 */
+	public static ConfigKey lookup(String name) {
+		if (null == name) {
+			throw new NullPointerException();
+		}
+		return SYMBOL_TABLE.get(name);
+	}
+
+	private ConfigKey(String name, int id) {
+		this.name = name;
+		this.id = id;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Gets the identifier of this key. Identifiers are assigned from zero upwards without gaps.
+	 *
+	 * @return non-negative identifier of the key
+	 */
+	public int getId() {
+		return id;
+	}
+
+	@Override
+	public int compareTo(ConfigKey other) {
+		return name.compareTo(other.name);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		// Keys are interned
+		return this == obj;
+	}
+
+	@Override
+	public int hashCode() {
+		return name.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -16,12 +16,42 @@
 
 package cz.auderis.tools.config;
 
+import cz.auderis.tools.config.spi.BinaryDataProvider;
 import cz.auderis.tools.config.spi.CompoundDataProvider;
+import cz.auderis.tools.config.spi.DataProviderComparator;
+import cz.auderis.tools.config.spi.DirectoryDataProvider;
+import cz.auderis.tools.config.spi.EnvironmentDataProvider;
+import cz.auderis.tools.config.spi.HttpPollingDataProvider;
+import cz.auderis.tools.config.spi.IndexedCompoundDataProvider;
+import cz.auderis.tools.config.spi.JdbcTableDataProvider;
+import cz.auderis.tools.config.spi.JsonDataProvider;
+import cz.auderis.tools.config.spi.LogStructuredDataProvider;
 import cz.auderis.tools.config.spi.MapBasedDataProvider;
+import cz.auderis.tools.config.spi.MappedPropertiesDataProvider;
+import cz.auderis.tools.config.spi.OffHeapDataProvider;
+import cz.auderis.tools.config.spi.ParallelCompoundDataProvider;
+import cz.auderis.tools.config.spi.PatchableDataProvider;
+import cz.auderis.tools.config.spi.PerfectHashDataProvider;
+import cz.auderis.tools.config.spi.PrefixTrieDataProvider;
+import cz.auderis.tools.config.spi.ReadThroughCachingDataProvider;
+import cz.auderis.tools.config.spi.RelaxedKeyDataProvider;
+import cz.auderis.tools.config.spi.RoutingCompoundDataProvider;
+import cz.auderis.tools.config.spi.SharedMemoryDataProvider;
+import cz.auderis.tools.config.spi.SnapshotBackedDataProvider;
 import cz.auderis.tools.config.spi.SystemPropertyDataProvider;
+import cz.auderis.tools.config.spi.SystemPropertySnapshotDataProvider;
+import cz.auderis.tools.config.spi.XmlPropertiesDataProvider;
 
+import javax.sql.DataSource;
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Proxy;
+import java.net.URL;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 
 /**
  * {@code ConfigurationData}
@@ -35,14 +65,117 @@ public final class ConfigurationData {
 		return SystemPropertyDataProvider.instance();
 	}
 
+	public static SystemPropertySnapshotDataProvider getSystemPropertySnapshotDataProvider() {
+		return new SystemPropertySnapshotDataProvider();
+	}
+
+	public static ConfigurationDataProvider getEnvironmentDataProvider() {
+		return new EnvironmentDataProvider();
+	}
+
+	public static ConfigurationDataProvider getEnvironmentDataProvider(String variablePrefix) {
+		return new EnvironmentDataProvider(variablePrefix);
+	}
+
 	public static ConfigurationDataProvider getMapDataProvider(Map<String, ?> dataSource) {
 		return new MapBasedDataProvider(dataSource);
 	}
 
+	public static ConfigurationDataProvider getPerfectHashDataProvider(Map<String, ?> dataSource) {
+		return new PerfectHashDataProvider(dataSource);
+	}
+
+	public static PatchableDataProvider getPatchableDataProvider(Map<String, ?> initialData) {
+		return new PatchableDataProvider(initialData);
+	}
+
+	public static ConfigurationDataProvider getOffHeapDataProvider(Map<String, ?> dataSource) {
+		return new OffHeapDataProvider(dataSource);
+	}
+
+	public static ConfigurationDataProvider getMappedPropertiesDataProvider(File propertiesFile) throws IOException {
+		return new MappedPropertiesDataProvider(propertiesFile);
+	}
+
+	public static LogStructuredDataProvider openLogStructuredDataProvider(File directory) throws IOException {
+		return new LogStructuredDataProvider(directory);
+	}
+
+	public static DirectoryDataProvider getDirectoryDataProvider(File directory) {
+		return new DirectoryDataProvider(directory);
+	}
+
+	public static JsonDataProvider getJsonDataProvider(String json) {
+		return new JsonDataProvider(json);
+	}
+
+	public static XmlPropertiesDataProvider getXmlPropertiesDataProvider(File xmlFile) {
+		return new XmlPropertiesDataProvider(xmlFile);
+	}
+
+	public static HttpPollingDataProvider getHttpPollingDataProvider(URL url, File cacheFile) {
+		return new HttpPollingDataProvider(url, cacheFile);
+	}
+
+	public static JdbcTableDataProvider getJdbcTableDataProvider(DataSource dataSource, String tableName) {
+		return new JdbcTableDataProvider(dataSource, tableName);
+	}
+
+	public static ReadThroughCachingDataProvider getCachingDataProvider(ConfigurationDataProvider delegate, long softTtl, TimeUnit unit) {
+		return new ReadThroughCachingDataProvider(delegate, softTtl, unit);
+	}
+
+	public static SnapshotBackedDataProvider getSnapshotBackedDataProvider(File snapshotFile,
+																		 Callable<? extends EnumerableDataProvider> delegateLoader) {
+		return new SnapshotBackedDataProvider(snapshotFile, delegateLoader);
+	}
+
+	public static ConfigurationDataProvider getBinaryDataProvider(File compiledFile) throws IOException {
+		return new BinaryDataProvider(compiledFile);
+	}
+
+	public static ConfigurationDataProvider getSharedMemoryDataProvider(File sharedFile) throws IOException {
+		return new SharedMemoryDataProvider(sharedFile);
+	}
+
+	public static PrefixTrieDataProvider getPrefixTrieDataProvider(Map<String, ?> dataSource) {
+		return new PrefixTrieDataProvider(dataSource);
+	}
+
 	public static ConfigurationDataProvider getCompoundDataProvider(ConfigurationDataProvider... providers) {
 		return new CompoundDataProvider(providers);
 	}
 
+	public static ConfigurationDataProvider getIndexedCompoundDataProvider(ConfigurationDataProvider... providers) {
+		return new IndexedCompoundDataProvider(providers);
+	}
+
+	public static ConfigurationDataProvider getRoutingCompoundDataProvider(ConfigurationDataProvider... providers) {
+		return new RoutingCompoundDataProvider(providers);
+	}
+
+	public static ConfigurationDataProvider getParallelCompoundDataProvider(ConfigurationDataProvider... providers) {
+		return new ParallelCompoundDataProvider(providers);
+	}
+
+	public static ConfigurationDataProvider getRelaxedKeyDataProvider(EnumerableDataProvider provider) {
+		return new RelaxedKeyDataProvider(provider);
+	}
+
+	/**
+	 * Determines keys that were added, removed or whose raw values have changed between two providers.
+	 */
+	public static ConfigurationDataDiff diff(EnumerableDataProvider oldProvider, EnumerableDataProvider newProvider) {
+		return DataProviderComparator.compare(oldProvider, newProvider);
+	}
+
+	/**
+	 * Compares translated values of two configuration objects; the keys of the diff are method names.
+	 */
+	public static <T> ConfigurationDataDiff diff(Class<T> type, T oldObject, T newObject) {
+		return DataProviderComparator.compareObjects(type, oldObject, newObject);
+	}
+
 	@SuppressWarnings("unchecked")
 	public static <T> T createConfigurationObject(ConfigurationDataProvider dataProvider, Class<T> targetClass, ClassLoader clsLoader, boolean strict) {
 		if ((null == dataProvider) || (null == targetClass)) {
@@ -100,6 +233,34 @@ public final class ConfigurationData {
 		return createConfigurationObject(dataProvider, targetClass, null, true);
 	}
 
+	/**
+	 * Schedules periodic refresh of a provider. Failures of individual refresh attempts are ignored,
+	 * so that they don't suppress subsequent executions.
+	 *
+	 * @param provider provider to be refreshed
+	 * @param scheduler executor that performs the refresh
+	 * @param period period between successive refreshes
+	 * @param unit time unit of {@code period}
+	 * @return handle that allows cancelling the periodic refresh
+	 */
+	public static ScheduledFuture<?> scheduleRefresh(final RefreshableDataProvider provider, ScheduledExecutorService scheduler,
+													 long period, TimeUnit unit) {
+		if ((null == provider) || (null == scheduler) || (null == unit)) {
+			throw new NullPointerException();
+		}
+		final Runnable refreshTask = new Runnable() {
+			@Override
+			public void run() {
+				try {
+					provider.refresh();
+				} catch (RuntimeException e) {
+					// Silently ignored, the provider keeps its current contents
+				}
+			}
+		};
+		return scheduler.scheduleWithFixedDelay(refreshTask, period, period, unit);
+	}
+
 	private ConfigurationData() {
 		throw new AssertionError();
 	}
@@ -20,7 +20,10 @@ import cz.auderis.tools.config.annotation.ConfigurationEntries;
 import cz.auderis.tools.config.annotation.ConfigurationEntry;
 import cz.auderis.tools.config.annotation.DefaultConfigurationEntryValue;
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.AnnotatedElement;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
@@ -32,11 +35,16 @@ import java.util.Collections;
 import java.util.EnumSet;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
 import java.util.Set;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * {@code ResourceProxyHandler}
@@ -49,49 +57,112 @@ class ConfigurationDataAccessProxyHandler implements InvocationHandler {
 	private static final String GETTER_PREFIX = "get";
 	private static final String GETTER_PREFIX_BOOLEAN = "is";
 	private static final Object NULL_CACHE_ENTRY = new Object();
+	private static final Object CACHE_MISS = new Object();
 
 	private final ConfigurationDataProvider dataProvider;
+	private final KeyedDataProvider keyedDataProvider;
+	private final ConcurrentMap<Method, EntryKeyPlan> keyPlans;
 	private final ConcurrentMap<Method, SoftReference<Object>> cache;
+	private final ConcurrentMap<Method, PendingResolution> pendingResolutions;
 	private final ConcurrentMap<Method, TranslationPhase> successfulPhase;
+	private final AtomicLong invalidationCount;
 
 	private final boolean strictMode;
 
 	ConfigurationDataAccessProxyHandler(ConfigurationDataProvider dataProvider, boolean strictMode) {
 		assert null != dataProvider;
 		this.dataProvider = dataProvider;
+		this.keyedDataProvider = (dataProvider instanceof KeyedDataProvider) ? (KeyedDataProvider) dataProvider : null;
+		this.keyPlans = new ConcurrentHashMap<Method, EntryKeyPlan>(64);
 		this.cache = new ConcurrentHashMap<Method, SoftReference<Object>>(64);
+		this.pendingResolutions = new ConcurrentHashMap<Method, PendingResolution>();
 		this.successfulPhase = new ConcurrentHashMap<Method, TranslationPhase>(64);
+		this.invalidationCount = new AtomicLong();
 		this.strictMode = strictMode;
+		if (dataProvider instanceof ObservableDataProvider) {
+			final ObservableDataProvider observableProvider = (ObservableDataProvider) dataProvider;
+			InvalidationListener.purgeCleared();
+			observableProvider.addChangeListener(new InvalidationListener(this, observableProvider));
+		}
 	}
 
 	@Override
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 		assert (null == args) || (0 != args.length);
-		if (null == args) {
-			// Bypass all processing if the previous no-arg call has failed to produce any result
-			if (TranslationPhase.NONE == successfulPhase.get(method)) {
-				return null;
-			}
-			// Try to reuse cached value
-			final SoftReference<Object> cachedValueRef = cache.get(method);
-			if (null != cachedValueRef) {
-				final Object cachedValue = cachedValueRef.get();
-				if (NULL_CACHE_ENTRY == cachedValue) {
-					return null;
-				} else if (null != cachedValue) {
-					return cachedValue;
+		if (null != args) {
+			return computeValue(method, args);
+		}
+		final Object cachedValue = getCachedValue(method);
+		if (CACHE_MISS != cachedValue) {
+			return cachedValue;
+		}
+		// Only one thread computes the missing value, the others wait for its result
+		final PendingResolution resolution = getPendingResolution(method);
+		// Run the resolution unless another thread is already running it (no-op then)
+		resolution.run();
+		try {
+			return awaitUninterruptibly(resolution);
+		} catch (ExecutionException e) {
+			throw e.getCause();
+		}
+	}
+
+	private static Object awaitUninterruptibly(PendingResolution resolution) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return resolution.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
 				}
-				// Soft-reference content was probably destroyed by garbage collector,
-				// remove stale cache entry and fall back to normal value resolution
-				cache.remove(method, cachedValueRef);
 			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private Object getCachedValue(Method method) {
+		// Bypass all processing if the previous no-arg call has failed to produce any result
+		if (TranslationPhase.NONE == successfulPhase.get(method)) {
+			return null;
+		}
+		// Try to reuse cached value
+		final SoftReference<Object> cachedValueRef = cache.get(method);
+		if (null != cachedValueRef) {
+			final Object cachedValue = cachedValueRef.get();
+			if (NULL_CACHE_ENTRY == cachedValue) {
+				return null;
+			} else if (null != cachedValue) {
+				return cachedValue;
+			}
+			// Soft-reference content was probably destroyed by garbage collector,
+			// remove stale cache entry and fall back to normal value resolution
+			cache.remove(method, cachedValueRef);
+		}
+		return CACHE_MISS;
+	}
+
+	private PendingResolution getPendingResolution(Method method) {
+		final PendingResolution pending = pendingResolutions.get(method);
+		if (null != pending) {
+			return pending;
 		}
+		final PendingResolution newResolution = new PendingResolution(method);
+		final PendingResolution concurrentResolution = pendingResolutions.putIfAbsent(method, newResolution);
+		return (null != concurrentResolution) ? concurrentResolution : newResolution;
+	}
+
+	private Object computeValue(Method method, Object[] args) {
+		final long invalidationMark = invalidationCount.get();
 		// Get value to be translated to the result value
-		final String keyName = getResourceKey(method);
-		assert null != keyName;
+		final EntryKeyPlan keyPlan = getEntryKeyPlan(method);
+		final ConfigKey key = resolveKey(keyPlan);
 		final Object sourceValue;
-		if (dataProvider.containsKey(keyName)) {
-			sourceValue = dataProvider.getRawObject(keyName);
+		if (null != key) {
+			sourceValue = getRawObject(key);
 		} else {
 			sourceValue = getDefaultSourceValue(method);
 		}
@@ -105,11 +176,52 @@ class ConfigurationDataAccessProxyHandler implements InvocationHandler {
 			}
 			// Cache result
 			final Object cachedValue = (null != result) ? result : NULL_CACHE_ENTRY;
-			cache.put(method, new SoftReference<Object>(cachedValue));
+			final SoftReference<Object> cachedValueRef = new SoftReference<Object>(cachedValue);
+			cache.put(method, cachedValueRef);
+			if (invalidationMark != invalidationCount.get()) {
+				// Source value may predate a concurrent change of the data
+				cache.remove(method, cachedValueRef);
+				successfulPhase.remove(method, TranslationPhase.NONE);
+			}
 		}
 		return result;
 	}
 
+	/**
+	 * Discards cached results of methods that depend on changed entries.
+	 */
+	void invalidate(ConfigurationDataChangeEvent event) {
+		invalidationCount.incrementAndGet();
+		if (event.isFullReload()) {
+			cache.clear();
+			successfulPhase.values().removeAll(Collections.singleton(TranslationPhase.NONE));
+			return;
+		}
+		for (Method method : cache.keySet()) {
+			if (dependsOnChange(method, event)) {
+				cache.remove(method);
+			}
+		}
+		for (Map.Entry<Method, TranslationPhase> phaseEntry : successfulPhase.entrySet()) {
+			if ((TranslationPhase.NONE == phaseEntry.getValue()) && dependsOnChange(phaseEntry.getKey(), event)) {
+				successfulPhase.remove(phaseEntry.getKey(), TranslationPhase.NONE);
+			}
+		}
+	}
+
+	private boolean dependsOnChange(Method method, ConfigurationDataChangeEvent event) {
+		final EntryKeyPlan keyPlan = keyPlans.get(method);
+		if (null == keyPlan) {
+			return true;
+		}
+		for (ConfigKey candidate : keyPlan.candidateKeys) {
+			if (event.affects(candidate.getName())) {
+				return true;
+			}
+		}
+		return event.affects(keyPlan.fallbackKey.getName());
+	}
+
 	private Object getDefaultSourceValue(Method method) {
 		final DefaultConfigurationEntryValue defaultValAnnotation = method.getAnnotation(DefaultConfigurationEntryValue.class);
 		String result = (null != defaultValAnnotation) ? defaultValAnnotation.value() : null;
@@ -344,14 +456,59 @@ class ConfigurationDataAccessProxyHandler implements InvocationHandler {
 		return true;
 	}
 
-	private String getResourceKey(Method method) {
+	/**
+	 * Finds the first candidate key of the plan that is present in the data provider.
+	 *
+	 * @return key of the entry to be used; {@code null} if no candidate key is present
+	 */
+	private ConfigKey resolveKey(EntryKeyPlan keyPlan) {
+		for (ConfigKey candidate : keyPlan.candidateKeys) {
+			if (containsKey(candidate)) {
+				return candidate;
+			}
+		}
+		if (!keyPlan.fallbackKeyChecked && containsKey(keyPlan.fallbackKey)) {
+			return keyPlan.fallbackKey;
+		}
+		return null;
+	}
+
+	private boolean containsKey(ConfigKey key) {
+		if (null != keyedDataProvider) {
+			return keyedDataProvider.containsKey(key);
+		}
+		return dataProvider.containsKey(key.getName());
+	}
+
+	private Object getRawObject(ConfigKey key) {
+		if (null != keyedDataProvider) {
+			return keyedDataProvider.getRawObject(key);
+		}
+		return dataProvider.getRawObject(key.getName());
+	}
+
+	private EntryKeyPlan getEntryKeyPlan(Method method) {
+		EntryKeyPlan keyPlan = keyPlans.get(method);
+		if (null == keyPlan) {
+			keyPlan = createEntryKeyPlan(method);
+			keyPlans.putIfAbsent(method, keyPlan);
+		}
+		return keyPlan;
+	}
+
+	/**
+	 * Determines, in the order of preference, all keys under which the configuration entry
+	 * represented by the method may be found.
+	 */
+	private EntryKeyPlan createEntryKeyPlan(Method method) {
 		final String keyPrefix = getResourceKeyPrefix(method);
+		final List<ConfigKey> candidates = new ArrayList<ConfigKey>(4);
 		final ConfigurationEntry nameAnnotation = method.getAnnotation(ConfigurationEntry.class);
 		if (null != nameAnnotation) {
 			final String keyName = nameAnnotation.name();
 			final boolean keyNameDefined = (null != keyName) && !keyName.isEmpty();
-			if (keyNameDefined && dataProvider.containsKey(keyPrefix + keyName)) {
-				return keyPrefix + keyName;
+			if (keyNameDefined) {
+				candidates.add(ConfigKey.of(keyPrefix + keyName));
 			}
 			final String[] keyAliases = nameAnnotation.alias();
 			if ((null != keyAliases) && (0 != keyAliases.length)) {
@@ -366,33 +523,28 @@ class ConfigurationDataAccessProxyHandler implements InvocationHandler {
 					// If the dot is the leading character, it means that the alias following the initial dot
 					// is a fully-qualified name that shouldn't be considered with prepended prefix
 					if (0 == firstDotIndex) {
-						final String qualifiedAlias = alias.substring(1);
-						if (dataProvider.containsKey(qualifiedAlias)) {
-							return qualifiedAlias;
-						}
+						candidates.add(ConfigKey.of(alias.substring(1)));
 						// Do not check prefixed alias
 						continue;
 					}
 					// Try to prepend prefix to both qualified and unqualified aliases
-					if (dataProvider.containsKey(keyPrefix + alias)) {
-						return keyPrefix + alias;
-					}
+					candidates.add(ConfigKey.of(keyPrefix + alias));
 					// Check if qualified alias exists without prefix
-					if ((-1 != firstDotIndex) && (dataProvider.containsKey(alias))) {
-						return alias;
+					if (-1 != firstDotIndex) {
+						candidates.add(ConfigKey.of(alias));
 					}
 				}
 			}
 			// If the explicit name was defined, use it in all cases (i.e. don't use the implicit name)
 			if (keyNameDefined) {
-				return keyPrefix + keyName;
+				return new EntryKeyPlan(candidates, candidates.get(0), true);
 			}
 		}
 		// There is no annotation present or the name is empty, derive name from method
 		final String methodName = method.getName();
 		final boolean booleanGetter = isBasicBooleanGetter(method);
 		final String keyName = trimOptionalGetterPrefix(methodName, booleanGetter);
-		return keyPrefix + keyName;
+		return new EntryKeyPlan(candidates, ConfigKey.of(keyPrefix + keyName), false);
 	}
 
 	private String getResourceKeyPrefix(Member method) {
@@ -445,6 +597,75 @@ class ConfigurationDataAccessProxyHandler implements InvocationHandler {
 		return true;
 	}
 
+	final class PendingResolution extends FutureTask<Object> {
+		private final Method method;
+
+		PendingResolution(final Method method) {
+			super(new Callable<Object>() {
+				@Override
+				public Object call() {
+					// The value may have been cached by a resolution that has just finished
+					final Object cachedValue = getCachedValue(method);
+					return (CACHE_MISS != cachedValue) ? cachedValue : computeValue(method, null);
+				}
+			});
+			this.method = method;
+		}
+
+		@Override
+		protected void done() {
+			pendingResolutions.remove(method, this);
+		}
+	}
+
+	/**
+	 * Holds the handler weakly, so that the data provider does not keep discarded proxies alive.
+	 * Listeners of collected handlers are unregistered when the next handler is created,
+	 * or when they receive an event.
+	 */
+	static final class InvalidationListener extends WeakReference<ConfigurationDataAccessProxyHandler>
+			implements ConfigurationDataChangeListener {
+		private static final ReferenceQueue<ConfigurationDataAccessProxyHandler> CLEARED = new ReferenceQueue<ConfigurationDataAccessProxyHandler>();
+
+		private final ObservableDataProvider source;
+
+		InvalidationListener(ConfigurationDataAccessProxyHandler handler, ObservableDataProvider source) {
+			super(handler, CLEARED);
+			this.source = source;
+		}
+
+		@Override
+		public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+			final ConfigurationDataAccessProxyHandler handler = get();
+			if (null != handler) {
+				handler.invalidate(event);
+			} else {
+				source.removeChangeListener(this);
+			}
+		}
+
+		static void purgeCleared() {
+			Reference<? extends ConfigurationDataAccessProxyHandler> ref;
+			while (null != (ref = CLEARED.poll())) {
+				final InvalidationListener listener = (InvalidationListener) ref;
+				listener.source.removeChangeListener(listener);
+			}
+		}
+	}
+
+	static final class EntryKeyPlan {
+
+		final ConfigKey[] candidateKeys;
+		final ConfigKey fallbackKey;
+		final boolean fallbackKeyChecked;
+
+		EntryKeyPlan(List<ConfigKey> candidateKeys, ConfigKey fallbackKey, boolean fallbackKeyChecked) {
+			this.candidateKeys = candidateKeys.toArray(new ConfigKey[candidateKeys.size()]);
+			this.fallbackKey = fallbackKey;
+			this.fallbackKeyChecked = fallbackKeyChecked;
+		}
+	}
+
 	static final class TranslatorCandidate implements Comparable<TranslatorCandidate> {
 
 		final DataTranslator translator;
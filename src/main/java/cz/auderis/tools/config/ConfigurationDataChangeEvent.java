@@ -0,0 +1,101 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EventObject;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * {@code ConfigurationDataChangeEvent} describes a change of provider contents. The event
+ * either lists keys of entries that were added, modified or removed, or it denotes a full
+ * reload, in which case any entry may have changed.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class ConfigurationDataChangeEvent extends EventObject {
+	private static final long serialVersionUID = 3811626004392712641L;
+
+	private final Set<String> changedKeys;
+
+	public static ConfigurationDataChangeEvent fullReload(ConfigurationDataProvider source) {
+		return new ConfigurationDataChangeEvent(source, null);
+	}
+
+	public static ConfigurationDataChangeEvent keysChanged(ConfigurationDataProvider source, Collection<String> keys) {
+		if (null == keys) {
+			throw new NullPointerException();
+		}
+		return new ConfigurationDataChangeEvent(source, Collections.unmodifiableSet(new HashSet<String>(keys)));
+	}
+
+	/**
+	 * Creates an event describing the same change as {@code original}, but originating
+	 * from a different provider. This is useful for providers that decorate or aggregate
+	 * other providers and propagate their changes.
+	 *
+	 * @param source provider that propagates the change
+	 * @param original original change event
+	 * @return event with replaced source
+	 */
+	public static ConfigurationDataChangeEvent derive(ConfigurationDataProvider source, ConfigurationDataChangeEvent original) {
+		return new ConfigurationDataChangeEvent(source, original.changedKeys);
+	}
+
+	protected ConfigurationDataChangeEvent(ConfigurationDataProvider source, Set<String> changedKeys) {
+		super(source);
+		this.changedKeys = changedKeys;
+	}
+
+	@Override
+	public ConfigurationDataProvider getSource() {
+		return (ConfigurationDataProvider) super.getSource();
+	}
+
+	public boolean isFullReload() {
+		return null == changedKeys;
+	}
+
+	/**
+	 * Gets keys of changed entries.
+	 *
+	 * @return unmodifiable set of changed keys; {@code null} if the event represents full reload
+	 */
+	public Set<String> getChangedKeys() {
+		return changedKeys;
+	}
+
+	public boolean affects(String key) {
+		return (null == changedKeys) || changedKeys.contains(key);
+	}
+
+	@Override
+	public String toString() {
+		final StringBuilder str = new StringBuilder(getClass().getSimpleName());
+		str.append("[source=").append(getSource());
+		if (null == changedKeys) {
+			str.append(", full reload]");
+		} else {
+			str.append(", keys=").append(changedKeys).append(']');
+		}
+		return str.toString();
+	}
+
+}
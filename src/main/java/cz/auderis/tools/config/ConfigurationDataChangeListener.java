@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import java.util.EventListener;
+
+/**
+ * {@code ConfigurationDataChangeListener}
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface ConfigurationDataChangeListener extends EventListener {
+
+	/**
+	 * Invoked after the contents of an observed provider have changed. The notification
+	 * is delivered synchronously in the thread that performed the change, so implementations
+	 * should return quickly.
+	 *
+	 * @param event description of the change
+	 */
+	void configurationDataChanged(ConfigurationDataChangeEvent event);
+
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * {@code ConfigurationDataDiff} describes differences between two sets of configuration entries:
+ * keys present only in the newer set, keys present only in the older set, and keys present in both
+ * with different values. All key sets are sorted, so that the diff can be reported in a stable order.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class ConfigurationDataDiff {
+
+	private final SortedSet<String> addedKeys;
+	private final SortedSet<String> removedKeys;
+	private final SortedSet<String> changedKeys;
+
+	public ConfigurationDataDiff(Collection<String> addedKeys, Collection<String> removedKeys, Collection<String> changedKeys) {
+		if ((null == addedKeys) || (null == removedKeys) || (null == changedKeys)) {
+			throw new NullPointerException();
+		}
+		this.addedKeys = Collections.unmodifiableSortedSet(new TreeSet<String>(addedKeys));
+		this.removedKeys = Collections.unmodifiableSortedSet(new TreeSet<String>(removedKeys));
+		this.changedKeys = Collections.unmodifiableSortedSet(new TreeSet<String>(changedKeys));
+	}
+
+	public SortedSet<String> getAddedKeys() {
+		return addedKeys;
+	}
+
+	public SortedSet<String> getRemovedKeys() {
+		return removedKeys;
+	}
+
+	public SortedSet<String> getChangedKeys() {
+		return changedKeys;
+	}
+
+	/**
+	 * Returns keys that were added, removed or changed.
+	 */
+	public SortedSet<String> getAffectedKeys() {
+		final SortedSet<String> result = new TreeSet<String>(addedKeys);
+		result.addAll(removedKeys);
+		result.addAll(changedKeys);
+		return Collections.unmodifiableSortedSet(result);
+	}
+
+	public boolean isEmpty() {
+		return addedKeys.isEmpty() && removedKeys.isEmpty() && changedKeys.isEmpty();
+	}
+
+	/**
+	 * Creates a change event that reports all affected keys as originating from the given provider.
+	 */
+	public ConfigurationDataChangeEvent toChangeEvent(ConfigurationDataProvider source) {
+		return ConfigurationDataChangeEvent.keysChanged(source, getAffectedKeys());
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof ConfigurationDataDiff)) {
+			return false;
+		}
+		final ConfigurationDataDiff other = (ConfigurationDataDiff) obj;
+		return addedKeys.equals(other.addedKeys) && removedKeys.equals(other.removedKeys)
+				&& changedKeys.equals(other.changedKeys);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * addedKeys.hashCode() + removedKeys.hashCode()) + changedKeys.hashCode();
+	}
+
+	@Override
+	public String toString() {
+		return "ConfigurationDataDiff[added=" + addedKeys + ", removed=" + removedKeys + ", changed=" + changedKeys + "]";
+	}
+
+}
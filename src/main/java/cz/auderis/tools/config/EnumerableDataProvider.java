@@ -0,0 +1,42 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import java.util.Set;
+
+/**
+ * {@code EnumerableDataProvider} is a data provider that is able to list
+ * all configuration entry keys it contains.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface EnumerableDataProvider extends ConfigurationDataProvider {
+
+	/**
+	 * Gets keys of all configuration entries available from this provider. For every key
+	 * in the returned set, {@link #containsKey(String)} must return {@code true} at the moment
+	 * of the call.
+	 *
+	 * <p>The returned set is not modifiable. It may be a live view of provider contents, therefore
+	 * callers should copy it if a stable snapshot is required.
+	 *
+	 * @return set of available configuration entry keys
+	 */
+	Set<String> getKeys();
+
+}
@@ -0,0 +1,33 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+/**
+ * {@code KeyedDataProvider} is a data provider that accepts interned {@link ConfigKey}s
+ * in addition to textual keys. The results of both variants of lookup methods must be
+ * the same for a key and its name.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface KeyedDataProvider extends ConfigurationDataProvider {
+
+	boolean containsKey(ConfigKey key);
+
+	Object getRawObject(ConfigKey key);
+
+}
@@ -0,0 +1,38 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+/**
+ * {@code RefreshableDataProvider} is a data provider that serves a snapshot of an underlying source
+ * and is able to bring the snapshot up to date on request.
+ *
+ * @see ConfigurationData#scheduleRefresh(RefreshableDataProvider, java.util.concurrent.ScheduledExecutorService, long, java.util.concurrent.TimeUnit)
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface RefreshableDataProvider extends ConfigurationDataProvider {
+
+	/**
+	 * Re-reads the underlying source and replaces the current snapshot if the source has changed.
+	 *
+	 * @return {@code true} if the contents of the provider have changed
+	 * @throws ConfigurationDataException if the source cannot be read; the current snapshot
+	 * is kept in such case
+	 */
+	boolean refresh();
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+/**
+ * {@code VersionedDataProvider} is a data provider that tracks every change of its contents
+ * by a version number. Providers whose contents never change may simply return a constant.
+ *
+ * <p>Unlike {@link ObservableDataProvider}, which only promises to report the changes it is
+ * aware of, this interface is a guarantee: if the version did not change between two calls,
+ * neither did the contents. Consumers therefore may cache lookup results (including negative ones)
+ * and validate them by comparing versions.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public interface VersionedDataProvider extends ConfigurationDataProvider {
+
+	/**
+	 * Gets current version of provider contents. The value never decreases; it is increased
+	 * after every change of the contents has become visible to readers.
+	 *
+	 * @return current version
+	 */
+	long getVersion();
+
+}
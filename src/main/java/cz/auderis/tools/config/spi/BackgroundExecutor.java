@@ -0,0 +1,62 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+
+package cz.auderis.tools.config.spi;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code BackgroundExecutor} holds the executor used by default for background work of providers,
+ * such as refreshing cached entries, loading delegates or writing snapshots. It runs at most one daemon
+ * thread per processor (but at least two), idle threads are stopped. Tasks that do not fit into its
+ * bounded queue are rejected; providers then perform the work later or in the calling thread.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class BackgroundExecutor {
+
+	static final int MAX_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+	static final int QUEUE_CAPACITY = 1024;
+	static final ExecutorService INSTANCE = createExecutor();
+
+	private static ExecutorService createExecutor() {
+		final ThreadPoolExecutor executor = new ThreadPoolExecutor(MAX_THREADS, MAX_THREADS, 30L, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(QUEUE_CAPACITY), new ThreadFactory() {
+			private final AtomicInteger threadCounter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable task) {
+				final Thread thread = new Thread(task, "config-background-" + threadCounter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.allowCoreThreadTimeOut(true);
+		return executor;
+	}
+
+	private BackgroundExecutor() {
+		throw new AssertionError();
+	}
+
+}
@@ -0,0 +1,251 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ResourceBundle;
+
+/**
+ * {@code BinaryConfigurationCompiler} converts configuration entries into the binary format read
+ * by {@link BinaryDataProvider}. The format contains a hash index of keys, fixed-size entry records
+ * and a table of distinct strings. Values of type {@code Integer}, {@code Long}, {@code Double} and
+ * {@code Boolean} are stored as such, textual values are stored as text. Optionally, textual values
+ * that are canonical representations of integers or booleans can be stored as numbers or booleans,
+ * so that they do not need to be parsed when read; this is not the default, because typed values
+ * are translated differently from their text (see {@link #compile(Map, OutputStream, boolean)}).
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class BinaryConfigurationCompiler {
+
+	private BinaryConfigurationCompiler() {
+		throw new AssertionError();
+	}
+
+	public static void compile(Map<String, ?> entries, OutputStream output) throws IOException {
+		compile(entries, output, false);
+	}
+
+	public static void compile(Map<String, ?> entries, File outputFile) throws IOException {
+		compile(entries, outputFile, false);
+	}
+
+	/**
+	 * @see #compile(Map, OutputStream, boolean)
+	 */
+	public static void compile(Map<String, ?> entries, File outputFile, boolean detectTypedValues) throws IOException {
+		final OutputStream output = new BufferedOutputStream(new FileOutputStream(outputFile));
+		try {
+			compile(entries, output, detectTypedValues);
+		} finally {
+			output.close();
+		}
+	}
+
+	public static void compile(Properties properties, OutputStream output) throws IOException {
+		compile(properties, output, false);
+	}
+
+	/**
+	 * @see #compile(Map, OutputStream, boolean)
+	 */
+	public static void compile(Properties properties, OutputStream output, boolean detectTypedValues) throws IOException {
+		final Map<String, Object> entries = new HashMap<String, Object>();
+		for (String key : properties.stringPropertyNames()) {
+			entries.put(key, properties.getProperty(key));
+		}
+		compile(entries, output, detectTypedValues);
+	}
+
+	public static void compile(ResourceBundle bundle, OutputStream output) throws IOException {
+		compile(bundle, output, false);
+	}
+
+	/**
+	 * @see #compile(Map, OutputStream, boolean)
+	 */
+	public static void compile(ResourceBundle bundle, OutputStream output, boolean detectTypedValues) throws IOException {
+		final Map<String, Object> entries = new HashMap<String, Object>();
+		for (String key : bundle.keySet()) {
+			entries.put(key, bundle.getObject(key));
+		}
+		compile(entries, output, detectTypedValues);
+	}
+
+	/**
+	 * Writes entries in the binary format. Values must be strings, {@code Integer}s, {@code Long}s,
+	 * {@code Double}s, {@code Boolean}s or {@code null}.
+	 *
+	 * <p>Typed value detection changes the results of configuration objects: a number is narrowed
+	 * to {@code byte} or {@code short} without range checks, {@code "1"} is not a boolean value,
+	 * and translators that accept only text (such as those of {@code Pattern} or {@code UUID}) do not
+	 * handle numbers. Enable it only if no entry is read in such a way.
+	 *
+	 * @param detectTypedValues if {@code true}, textual values that represent integers and booleans
+	 *                          are stored as typed values
+	 */
+	public static void compile(Map<String, ?> entries, OutputStream output, boolean detectTypedValues) throws IOException {
+		if ((null == entries) || (null == output)) {
+			throw new NullPointerException();
+		}
+		final int entryCount = entries.size();
+		final int capacity = CompactEntryTable.tableCapacity(entryCount);
+		final int entriesStart = BinaryDataProvider.HEADER_SIZE + BinaryDataProvider.SLOT_SIZE * capacity;
+		final int stringsStart = entriesStart + BinaryDataProvider.ENTRY_SIZE * entryCount;
+		// Assign offsets to distinct strings
+		final Map<String, Integer> stringOffsets = new LinkedHashMap<String, Integer>();
+		long size = stringsStart;
+		for (Map.Entry<String, ?> entry : entries.entrySet()) {
+			if (null == entry.getKey()) {
+				throw new NullPointerException("null key");
+			}
+			size = addString(stringOffsets, entry.getKey(), size);
+			final Object value = typedValue(entry.getKey(), entry.getValue(), detectTypedValues);
+			if (value instanceof String) {
+				size = addString(stringOffsets, (String) value, size);
+			}
+		}
+		if (size > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("compiled configuration too large: " + size + " bytes");
+		}
+		final ByteBuffer buffer = ByteBuffer.allocate((int) size);
+		buffer.putInt(0, BinaryDataProvider.MAGIC);
+		buffer.putInt(4, BinaryDataProvider.FORMAT_VERSION);
+		buffer.putInt(8, entryCount);
+		buffer.putInt(12, capacity);
+		final int mask = capacity - 1;
+		int entryIndex = 0;
+		for (Map.Entry<String, ?> entry : entries.entrySet()) {
+			final String key = entry.getKey();
+			final int hash = key.hashCode();
+			int slot = CompactEntryTable.mix(hash) & mask;
+			while (0 != buffer.getInt(BinaryDataProvider.HEADER_SIZE + BinaryDataProvider.SLOT_SIZE * slot + 4)) {
+				slot = (slot + 1) & mask;
+			}
+			final int slotStart = BinaryDataProvider.HEADER_SIZE + BinaryDataProvider.SLOT_SIZE * slot;
+			buffer.putInt(slotStart, hash);
+			buffer.putInt(slotStart + 4, entryIndex + 1);
+			final int entryStart = entriesStart + BinaryDataProvider.ENTRY_SIZE * entryIndex;
+			buffer.putInt(entryStart, stringOffsets.get(key).intValue());
+			writeValue(buffer, entryStart + 4, typedValue(key, entry.getValue(), detectTypedValues), stringOffsets);
+			++entryIndex;
+		}
+		for (Map.Entry<String, Integer> stringEntry : stringOffsets.entrySet()) {
+			CompactEntryTable.writeText(buffer, stringEntry.getValue().intValue(), stringEntry.getKey());
+		}
+		output.write(buffer.array());
+		output.flush();
+	}
+
+	private static long addString(Map<String, Integer> stringOffsets, String text, long nextOffset) {
+		if (stringOffsets.containsKey(text)) {
+			return nextOffset;
+		}
+		stringOffsets.put(text, Integer.valueOf((int) Math.min(nextOffset, Integer.MAX_VALUE)));
+		return nextOffset + 4 + CompactEntryTable.encodedLength(text);
+	}
+
+	private static void writeValue(ByteBuffer buffer, int position, Object value, Map<String, Integer> stringOffsets) {
+		if (null == value) {
+			buffer.putInt(position, BinaryDataProvider.TYPE_NULL);
+		} else if (value instanceof String) {
+			buffer.putInt(position, BinaryDataProvider.TYPE_STRING);
+			buffer.putLong(position + 4, stringOffsets.get(value).intValue());
+		} else if (value instanceof Integer) {
+			buffer.putInt(position, BinaryDataProvider.TYPE_INT);
+			buffer.putLong(position + 4, ((Integer) value).longValue());
+		} else if (value instanceof Long) {
+			buffer.putInt(position, BinaryDataProvider.TYPE_LONG);
+			buffer.putLong(position + 4, ((Long) value).longValue());
+		} else if (value instanceof Double) {
+			buffer.putInt(position, BinaryDataProvider.TYPE_DOUBLE);
+			buffer.putLong(position + 4, Double.doubleToRawLongBits(((Double) value).doubleValue()));
+		} else {
+			buffer.putInt(position, BinaryDataProvider.TYPE_BOOLEAN);
+			buffer.putLong(position + 4, ((Boolean) value).booleanValue() ? 1L : 0L);
+		}
+	}
+
+	/**
+	 * Converts the value to the form in which it is stored.
+	 */
+	private static Object typedValue(String key, Object value, boolean detectTypedValues) {
+		if ((null == value) || (value instanceof Integer) || (value instanceof Long)
+				|| (value instanceof Double) || (value instanceof Boolean)) {
+			return value;
+		} else if (!(value instanceof String)) {
+			throw new IllegalArgumentException("unsupported type of value '" + key + "': " + value.getClass().getName());
+		} else if (!detectTypedValues) {
+			return value;
+		}
+		final String text = (String) value;
+		if ("true".equals(text)) {
+			return Boolean.TRUE;
+		} else if ("false".equals(text)) {
+			return Boolean.FALSE;
+		} else if (!isCanonicalInteger(text)) {
+			return text;
+		}
+		final long number = Long.parseLong(text);
+		if ((number >= Integer.MIN_VALUE) && (number <= Integer.MAX_VALUE)) {
+			return Integer.valueOf((int) number);
+		}
+		return Long.valueOf(number);
+	}
+
+	/**
+	 * Checks that the text is exactly what {@link Long#toString(long)} produces for some value,
+	 * so that the text can be restored from the number.
+	 */
+	private static boolean isCanonicalInteger(String text) {
+		final int length = text.length();
+		final int start = text.startsWith("-") ? 1 : 0;
+		final int digits = length - start;
+		if ((0 == digits) || (digits > 19)) {
+			return false;
+		} else if (('0' == text.charAt(start)) && ((1 != digits) || (1 == start))) {
+			// Leading zeros or negative zero
+			return false;
+		}
+		for (int i = start; i < length; ++i) {
+			final char c = text.charAt(i);
+			if ((c < '0') || (c > '9')) {
+				return false;
+			}
+		}
+		if (19 == digits) {
+			// May be beyond the range of long
+			try {
+				Long.parseLong(text);
+			} catch (NumberFormatException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+}
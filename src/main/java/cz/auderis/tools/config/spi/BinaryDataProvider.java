@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * {@code BinaryDataProvider} reads configuration compiled by {@link BinaryConfigurationCompiler}.
+ * The compiled data is used as it is, either mapped into memory or wrapped from an array,
+ * so opening costs no parsing. Values stored as numbers or booleans are returned as {@code Integer},
+ * {@code Long}, {@code Double} or {@code Boolean} objects and thus need not be parsed by translators.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class BinaryDataProvider implements VersionedDataProvider {
+
+	static final int MAGIC = 0x41434647;
+	static final int FORMAT_VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int SLOT_SIZE = 8;
+	static final int ENTRY_SIZE = 16;
+	static final int TYPE_NULL = 0;
+	static final int TYPE_STRING = 1;
+	static final int TYPE_INT = 2;
+	static final int TYPE_LONG = 3;
+	static final int TYPE_DOUBLE = 4;
+	static final int TYPE_BOOLEAN = 5;
+
+	private final ByteBuffer data;
+	private final int mask;
+	private final int entriesStart;
+
+	public BinaryDataProvider(File file) throws IOException {
+		this(mapFile(file));
+	}
+
+	public BinaryDataProvider(byte[] compiledData) throws IOException {
+		this(ByteBuffer.wrap(compiledData));
+	}
+
+	private BinaryDataProvider(ByteBuffer data) throws IOException {
+		if ((data.capacity() < HEADER_SIZE) || (MAGIC != data.getInt(0)) || (FORMAT_VERSION != data.getInt(4))) {
+			throw new IOException("not a compiled configuration");
+		}
+		final int capacity = data.getInt(12);
+		if ((capacity <= 0) || (0 != (capacity & (capacity - 1)))) {
+			throw new IOException("invalid compiled configuration");
+		}
+		this.data = data;
+		this.mask = capacity - 1;
+		this.entriesStart = HEADER_SIZE + SLOT_SIZE * capacity;
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return -1 != find(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int entryStart = find(key);
+		if (-1 == entryStart) {
+			return null;
+		}
+		final long payload = data.getLong(entryStart + 8);
+		switch (data.getInt(entryStart + 4)) {
+			case TYPE_STRING:
+				return CompactEntryTable.readText(data, (int) payload);
+			case TYPE_INT:
+				return Integer.valueOf((int) payload);
+			case TYPE_LONG:
+				return Long.valueOf(payload);
+			case TYPE_DOUBLE:
+				return Double.valueOf(Double.longBitsToDouble(payload));
+			case TYPE_BOOLEAN:
+				return Boolean.valueOf(0L != payload);
+			default:
+				return null;
+		}
+	}
+
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size() {
+		return data.getInt(8);
+	}
+
+	/**
+	 * @return position of the entry record; -1 if the key is not present
+	 */
+	private int find(String key) {
+		final int hash = key.hashCode();
+		int slot = CompactEntryTable.mix(hash) & mask;
+		while (true) {
+			final int slotStart = HEADER_SIZE + SLOT_SIZE * slot;
+			final int entryIndex = data.getInt(slotStart + 4) - 1;
+			if (-1 == entryIndex) {
+				return -1;
+			}
+			final int entryStart = entriesStart + ENTRY_SIZE * entryIndex;
+			if ((hash == data.getInt(slotStart)) && CompactEntryTable.textEquals(data, data.getInt(entryStart), key)) {
+				return entryStart;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	private static ByteBuffer mapFile(File file) throws IOException {
+		if (null == file) {
+			throw new NullPointerException();
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			return channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+		} finally {
+			raf.close();
+		}
+	}
+
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataProvider;
+
+import java.util.Collection;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code ChangeListenerSupport} is a helper for implementations of
+ * {@link cz.auderis.tools.config.ObservableDataProvider}, similar in purpose
+ * to {@link java.beans.PropertyChangeSupport}. Besides listener management it also maintains
+ * a version counter suitable for {@link cz.auderis.tools.config.VersionedDataProvider#getVersion()},
+ * which is increased by every reported change.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class ChangeListenerSupport {
+
+	private final ConfigurationDataProvider source;
+	private final CopyOnWriteArrayList<ConfigurationDataChangeListener> listeners;
+	private final AtomicLong version;
+
+	public ChangeListenerSupport(ConfigurationDataProvider source) {
+		if (null == source) {
+			throw new NullPointerException();
+		}
+		this.source = source;
+		this.listeners = new CopyOnWriteArrayList<ConfigurationDataChangeListener>();
+		this.version = new AtomicLong();
+	}
+
+	public long getVersion() {
+		return version.get();
+	}
+
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		if (null == listener) {
+			throw new NullPointerException();
+		}
+		listeners.addIfAbsent(listener);
+	}
+
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		listeners.remove(listener);
+	}
+
+	public boolean hasListeners() {
+		return !listeners.isEmpty();
+	}
+
+	public void fireKeysChanged(Collection<String> keys) {
+		if (keys.isEmpty()) {
+			return;
+		}
+		version.incrementAndGet();
+		if (!listeners.isEmpty()) {
+			notifyListeners(ConfigurationDataChangeEvent.keysChanged(source, keys));
+		}
+	}
+
+	public void fireFullReload() {
+		version.incrementAndGet();
+		if (!listeners.isEmpty()) {
+			notifyListeners(ConfigurationDataChangeEvent.fullReload(source));
+		}
+	}
+
+	public void fire(ConfigurationDataChangeEvent event) {
+		version.incrementAndGet();
+		notifyListeners(event);
+	}
+
+	private void notifyListeners(ConfigurationDataChangeEvent event) {
+		for (ConfigurationDataChangeListener listener : listeners) {
+			try {
+				listener.configurationDataChanged(event);
+			} catch (RuntimeException e) {
+				// Silently ignored, a failing listener must not prevent notification of others
+			}
+		}
+	}
+
+}
@@ -0,0 +1,229 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * {@code CompactEntryTable} defines a compact, position independent layout of string entries
+ * in a byte buffer, together with an open-addressing table used for lookups. Texts consisting
+ * of ISO 8859-1 characters take a single byte per character, other texts two bytes per character,
+ * so that lookups compare the stored key with the requested one without decoding it.
+ *
+ * <p>Layout: table capacity, number of entries, table slots (hash of the key and position
+ * of the entry relative to the start of the table plus one) and entries (key, value), where every text
+ * is stored as its code (length shifted left, the lowest bit marks two-byte characters) followed
+ * by the characters. Only absolute buffer operations are used.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class CompactEntryTable {
+
+	private static final int HEADER_SIZE = 8;
+	private static final int SLOT_SIZE = 8;
+	private static final int NULL_TEXT = -1;
+
+	private CompactEntryTable() {
+		throw new AssertionError();
+	}
+
+	/**
+	 * Computes the number of bytes needed to store the entries. Values must be strings or {@code null}.
+	 */
+	static long requiredSize(Map<String, ?> entries) {
+		long size = HEADER_SIZE + (long) SLOT_SIZE * tableCapacity(entries.size());
+		for (Map.Entry<String, ?> entry : entries.entrySet()) {
+			final String key = entry.getKey();
+			if (null == key) {
+				throw new NullPointerException("null key in data source");
+			}
+			final Object value = entry.getValue();
+			if ((null != value) && !(value instanceof String)) {
+				throw new IllegalArgumentException("value of '" + key + "' is not a string: " + value.getClass().getName());
+			}
+			size += 8 + encodedLength(key) + encodedLength((String) value);
+		}
+		return size;
+	}
+
+	static void write(ByteBuffer buffer, int base, Map<String, ?> entries) {
+		final int capacity = tableCapacity(entries.size());
+		final int mask = capacity - 1;
+		buffer.putInt(base, capacity);
+		buffer.putInt(base + 4, entries.size());
+		final int tableStart = base + HEADER_SIZE;
+		for (int slot = 0; slot < capacity; ++slot) {
+			buffer.putLong(tableStart + SLOT_SIZE * slot, 0L);
+		}
+		int position = tableStart + SLOT_SIZE * capacity;
+		for (Map.Entry<String, ?> entry : entries.entrySet()) {
+			final String key = entry.getKey();
+			final int hash = key.hashCode();
+			int slot = mix(hash) & mask;
+			while (0 != buffer.getInt(tableStart + SLOT_SIZE * slot + 4)) {
+				slot = (slot + 1) & mask;
+			}
+			buffer.putInt(tableStart + SLOT_SIZE * slot, hash);
+			buffer.putInt(tableStart + SLOT_SIZE * slot + 4, position - base + 1);
+			position = writeText(buffer, position, key);
+			position = writeText(buffer, position, (String) entry.getValue());
+		}
+	}
+
+	static int size(ByteBuffer buffer, int base) {
+		return buffer.getInt(base + 4);
+	}
+
+	/**
+	 * @return absolute position of the entry; -1 if the key is not present
+	 */
+	static int find(ByteBuffer buffer, int base, String key) {
+		final int mask = buffer.getInt(base) - 1;
+		final int tableStart = base + HEADER_SIZE;
+		final int hash = key.hashCode();
+		int slot = mix(hash) & mask;
+		// Number of probes is bounded, so that a table being overwritten by a publisher cannot loop forever
+		for (int probe = 0; probe <= mask; ++probe) {
+			final int position = buffer.getInt(tableStart + SLOT_SIZE * slot + 4) - 1;
+			if (-1 == position) {
+				return -1;
+			} else if ((hash == buffer.getInt(tableStart + SLOT_SIZE * slot)) && textEquals(buffer, base + position, key)) {
+				return base + position;
+			}
+			slot = (slot + 1) & mask;
+		}
+		return -1;
+	}
+
+	static String readValue(ByteBuffer buffer, int entryPosition) {
+		return readText(buffer, entryPosition + 4 + encodedLength(buffer.getInt(entryPosition)));
+	}
+
+	static boolean textEquals(ByteBuffer buffer, int position, String text) {
+		final int code = buffer.getInt(position);
+		final int length = code >>> 1;
+		if ((NULL_TEXT == code) || (length != text.length())) {
+			return false;
+		}
+		int offset = position + 4;
+		if (0 == (code & 1)) {
+			for (int i = 0; i < length; ++i) {
+				if (text.charAt(i) != (char) (buffer.get(offset++) & 0xFF)) {
+					return false;
+				}
+			}
+		} else {
+			for (int i = 0; i < length; ++i, offset += 2) {
+				if (text.charAt(i) != buffer.getChar(offset)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	static String readText(ByteBuffer buffer, int position) {
+		final int code = buffer.getInt(position);
+		if (NULL_TEXT == code) {
+			return null;
+		}
+		final int length = code >>> 1;
+		int offset = position + 4;
+		if ((long) length << (code & 1) > buffer.limit() - offset) {
+			// Damaged or concurrently overwritten data
+			throw new IndexOutOfBoundsException("text length " + length + " exceeds buffer");
+		}
+		final char[] chars = new char[length];
+		if (0 == (code & 1)) {
+			for (int i = 0; i < length; ++i) {
+				chars[i] = (char) (buffer.get(offset++) & 0xFF);
+			}
+		} else {
+			for (int i = 0; i < length; ++i, offset += 2) {
+				chars[i] = buffer.getChar(offset);
+			}
+		}
+		return new String(chars);
+	}
+
+	/**
+	 * @return position following the stored text
+	 */
+	static int writeText(ByteBuffer buffer, int position, String text) {
+		if (null == text) {
+			buffer.putInt(position, NULL_TEXT);
+			return position + 4;
+		}
+		final int length = text.length();
+		int offset = position + 4;
+		if (isLatin1(text)) {
+			buffer.putInt(position, length << 1);
+			for (int i = 0; i < length; ++i) {
+				buffer.put(offset++, (byte) text.charAt(i));
+			}
+		} else {
+			buffer.putInt(position, (length << 1) | 1);
+			for (int i = 0; i < length; ++i, offset += 2) {
+				buffer.putChar(offset, text.charAt(i));
+			}
+		}
+		return offset;
+	}
+
+	/**
+	 * @return number of bytes occupied by the characters of a text with the given code
+	 */
+	static int encodedLength(int code) {
+		if (NULL_TEXT == code) {
+			return 0;
+		}
+		return (code >>> 1) << (code & 1);
+	}
+
+	static int encodedLength(String text) {
+		if (null == text) {
+			return 0;
+		}
+		return isLatin1(text) ? text.length() : 2 * text.length();
+	}
+
+	private static boolean isLatin1(String text) {
+		final int length = text.length();
+		for (int i = 0; i < length; ++i) {
+			if (text.charAt(i) > 0xFF) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static int tableCapacity(int entryCount) {
+		int capacity = 16;
+		while (capacity < 2 * entryCount) {
+			capacity <<= 1;
+		}
+		return capacity;
+	}
+
+	static int mix(int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+}
@@ -16,9 +16,13 @@
 
 package cz.auderis.tools.config.spi;
 
+import cz.auderis.tools.config.ConfigKey;
 import cz.auderis.tools.config.ConfigurationDataProvider;
+import cz.auderis.tools.config.KeyedDataProvider;
 
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * {@code CascadingDataProvider}
@@ -26,7 +30,7 @@ import java.util.Arrays;
  * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
  * @version 1.0
  */
-public class CompoundDataProvider implements ConfigurationDataProvider {
+public class CompoundDataProvider implements KeyedDataProvider {
 
 	private final ConfigurationDataProvider[] delegates;
 
@@ -44,6 +48,14 @@ public class CompoundDataProvider implements ConfigurationDataProvider {
 		this.delegates = Arrays.copyOf(providers, providers.length);
 	}
 
+	/**
+	 * Gets the delegate providers in the order of their precedence.
+	 *
+	 * @return unmodifiable list of delegates
+	 */
+	protected final List<ConfigurationDataProvider> getDelegates() {
+		return Collections.unmodifiableList(Arrays.asList(delegates));
+	}
 
 	@Override
 	public boolean containsKey(String key) {
@@ -71,4 +83,40 @@ public class CompoundDataProvider implements ConfigurationDataProvider {
 		return null;
 	}
 
+	@Override
+	public boolean containsKey(ConfigKey key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		for (ConfigurationDataProvider delegate : delegates) {
+			if (containsKey(delegate, key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Object getRawObject(ConfigKey key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		for (ConfigurationDataProvider delegate : delegates) {
+			if (containsKey(delegate, key)) {
+				if (delegate instanceof KeyedDataProvider) {
+					return ((KeyedDataProvider) delegate).getRawObject(key);
+				}
+				return delegate.getRawObject(key.getName());
+			}
+		}
+		return null;
+	}
+
+	private static boolean containsKey(ConfigurationDataProvider delegate, ConfigKey key) {
+		if (delegate instanceof KeyedDataProvider) {
+			return ((KeyedDataProvider) delegate).containsKey(key);
+		}
+		return delegate.containsKey(key.getName());
+	}
+
 }
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.EnumerableDataProvider;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * {@code ContentDigest} is a hash tree summarizing the entries of a provider. Entries are distributed
+ * into buckets by the hash of their keys; the digest of a bucket is derived from the order-independent
+ * sum of hashes of its entries, so that adding or removing an entry only adjusts one bucket. Inner nodes
+ * of the tree combine the digests of their {@value #FANOUT} children, their digests are recomputed
+ * lazily, only for the changed paths.
+ *
+ * <p>Digests of equal contents are equal regardless of the JVM that computed them; values are hashed
+ * by their textual form. Comparing two digests descends only into the subtrees that differ, so finding
+ * the buckets containing differences costs time proportional to their number and the tree depth. The keys
+ * that actually differ can then be found by examining only the keys of those buckets
+ * (see {@link #getBucket(String)} and {@link PatchableDataProvider#getBucketKeys(int)}).
+ *
+ * <p>Only {@link PatchableDataProvider} maintains its digest incrementally, as entries are changed.
+ * For other providers, including the refreshable ones such as {@link JdbcTableDataProvider}
+ * or {@link DirectoryDataProvider}, the digest has to be computed by {@link #of(EnumerableDataProvider)},
+ * which reads all entries of the provider.
+ *
+ * <p>This class is not thread-safe.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class ContentDigest {
+
+	public static final int FANOUT = 16;
+	public static final int DEFAULT_DEPTH = 3;
+	public static final int MAX_DEPTH = 6;
+
+	private static final int FORMAT_MAGIC = 0x43464447;
+	private static final int BITS_PER_LEVEL = 4;
+
+	private final int depth;
+	private final long[] bucketSums;
+	private final int[] bucketCounts;
+	/** Node digests by level; level 0 is the root, level {@code depth} are the buckets. */
+	private final long[][] nodes;
+	private final BitSet dirtyBuckets;
+
+	public ContentDigest() {
+		this(DEFAULT_DEPTH);
+	}
+
+	public ContentDigest(int depth) {
+		if ((depth < 1) || (depth > MAX_DEPTH)) {
+			throw new IllegalArgumentException("invalid digest depth: " + depth);
+		}
+		this.depth = depth;
+		final int bucketCount = 1 << (BITS_PER_LEVEL * depth);
+		this.bucketSums = new long[bucketCount];
+		this.bucketCounts = new int[bucketCount];
+		this.nodes = new long[depth + 1][];
+		for (int level = 0; level <= depth; ++level) {
+			nodes[level] = new long[1 << (BITS_PER_LEVEL * level)];
+		}
+		this.dirtyBuckets = new BitSet(bucketCount);
+		dirtyBuckets.set(0, bucketCount);
+	}
+
+	private ContentDigest(ContentDigest original) {
+		original.recomputeIfNeeded();
+		this.depth = original.depth;
+		this.bucketSums = original.bucketSums.clone();
+		this.bucketCounts = original.bucketCounts.clone();
+		this.nodes = new long[depth + 1][];
+		for (int level = 0; level <= depth; ++level) {
+			nodes[level] = original.nodes[level].clone();
+		}
+		this.dirtyBuckets = new BitSet(bucketSums.length);
+	}
+
+	public static ContentDigest of(EnumerableDataProvider provider) {
+		final ContentDigest result = new ContentDigest();
+		for (String key : provider.getKeys()) {
+			result.add(key, provider.getRawObject(key));
+		}
+		return result;
+	}
+
+	public static ContentDigest readFrom(DataInput input) throws IOException {
+		if (FORMAT_MAGIC != input.readInt()) {
+			throw new IOException("invalid content digest format");
+		}
+		final int depth = input.readInt();
+		if ((depth < 1) || (depth > MAX_DEPTH)) {
+			throw new IOException("invalid content digest depth " + depth);
+		}
+		final ContentDigest result = new ContentDigest(depth);
+		for (int i = 0; i < result.bucketSums.length; ++i) {
+			result.bucketCounts[i] = input.readInt();
+			result.bucketSums[i] = input.readLong();
+		}
+		return result;
+	}
+
+	public void writeTo(DataOutput output) throws IOException {
+		output.writeInt(FORMAT_MAGIC);
+		output.writeInt(depth);
+		for (int i = 0; i < bucketSums.length; ++i) {
+			output.writeInt(bucketCounts[i]);
+			output.writeLong(bucketSums[i]);
+		}
+	}
+
+	public ContentDigest copy() {
+		return new ContentDigest(this);
+	}
+
+	public void add(String key, Object value) {
+		final long keyHash = keyHash(key);
+		final int bucket = bucketOf(keyHash);
+		bucketSums[bucket] += entryHash(keyHash, value);
+		++bucketCounts[bucket];
+		dirtyBuckets.set(bucket);
+	}
+
+	/**
+	 * Removes an entry; the value must be equal to the one that was added.
+	 */
+	public void remove(String key, Object value) {
+		final long keyHash = keyHash(key);
+		final int bucket = bucketOf(keyHash);
+		bucketSums[bucket] -= entryHash(keyHash, value);
+		--bucketCounts[bucket];
+		dirtyBuckets.set(bucket);
+	}
+
+	public int getDepth() {
+		return depth;
+	}
+
+	public int getBucketCount() {
+		return bucketSums.length;
+	}
+
+	public int getBucket(String key) {
+		return bucketOf(keyHash(key));
+	}
+
+	public long getRootDigest() {
+		recomputeIfNeeded();
+		return nodes[0][0];
+	}
+
+	/**
+	 * Returns sorted indexes of buckets whose contents differ between the digests.
+	 */
+	public int[] getDifferingBuckets(ContentDigest other) {
+		if (depth != other.depth) {
+			throw new IllegalArgumentException("digests have different depth");
+		}
+		recomputeIfNeeded();
+		other.recomputeIfNeeded();
+		final int[] result = new int[bucketSums.length];
+		final int count = collectDifferences(other, 0, 0, result, 0);
+		return Arrays.copyOf(result, count);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		} else if (!(obj instanceof ContentDigest)) {
+			return false;
+		}
+		final ContentDigest other = (ContentDigest) obj;
+		return (depth == other.depth) && Arrays.equals(bucketCounts, other.bucketCounts)
+				&& Arrays.equals(bucketSums, other.bucketSums);
+	}
+
+	@Override
+	public int hashCode() {
+		final long root = getRootDigest();
+		return (int) (root ^ (root >>> 32));
+	}
+
+	@Override
+	public String toString() {
+		return "ContentDigest[" + Long.toHexString(getRootDigest()) + "]";
+	}
+
+	private int collectDifferences(ContentDigest other, int level, int index, int[] result, int count) {
+		if (nodes[level][index] == other.nodes[level][index]) {
+			return count;
+		} else if (level == depth) {
+			result[count] = index;
+			return count + 1;
+		}
+		final int firstChild = index * FANOUT;
+		for (int child = firstChild; child < firstChild + FANOUT; ++child) {
+			count = collectDifferences(other, level + 1, child, result, count);
+		}
+		return count;
+	}
+
+	private void recomputeIfNeeded() {
+		if (dirtyBuckets.isEmpty()) {
+			return;
+		}
+		BitSet dirtyNodes = dirtyBuckets;
+		for (int level = depth; level >= 0; --level) {
+			final BitSet dirtyParents = new BitSet();
+			final long[] levelNodes = nodes[level];
+			for (int i = dirtyNodes.nextSetBit(0); i >= 0; i = dirtyNodes.nextSetBit(i + 1)) {
+				if (level == depth) {
+					levelNodes[i] = mix(bucketSums[i] ^ mix(bucketCounts[i] + 0x9E3779B97F4A7C15L));
+				} else {
+					long h = level;
+					final long[] children = nodes[level + 1];
+					for (int child = i * FANOUT; child < (i + 1) * FANOUT; ++child) {
+						h = mix(h * 31L + children[child]);
+					}
+					levelNodes[i] = h;
+				}
+				dirtyParents.set(i / FANOUT);
+			}
+			dirtyNodes = dirtyParents;
+		}
+		dirtyBuckets.clear();
+	}
+
+	private int bucketOf(long keyHash) {
+		return (int) (keyHash >>> (64 - BITS_PER_LEVEL * depth));
+	}
+
+	private static long keyHash(String key) {
+		return mix(hashText(0xCBF29CE484222325L, key));
+	}
+
+	private static long entryHash(long keyHash, Object value) {
+		if (null == value) {
+			return mix(keyHash ^ 0x5851F42D4C957F2DL);
+		}
+		return mix(hashText(keyHash, value.toString()));
+	}
+
+	private static long hashText(long h, String text) {
+		final int length = text.length();
+		for (int i = 0; i < length; ++i) {
+			h = (h ^ text.charAt(i)) * 0x100000001B3L;
+		}
+		return h;
+	}
+
+	private static long mix(long h) {
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+
+}
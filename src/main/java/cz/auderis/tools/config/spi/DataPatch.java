@@ -0,0 +1,138 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataException;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code DataPatch} is a versioned set of changes applicable to a {@link PatchableDataProvider}:
+ * entries to be put and keys to be removed. A key must not be both put and removed.
+ *
+ * <p>A patch file is a UTF-8 text file. Its first line that is neither empty nor a comment
+ * (starting with {@code #}) must be {@code @version N}; every following such line is either
+ * {@code +key=value} to put an entry or {@code -key} to remove one. The key ends at the first
+ * {@code =}, the rest of the line is the value.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class DataPatch {
+
+	private static final String VERSION_PREFIX = "@version ";
+
+	private final long version;
+	private final Map<String, Object> puts;
+	private final Set<String> removals;
+
+	public DataPatch(long version, Map<String, ?> puts, Collection<String> removals) {
+		if ((null == puts) || (null == removals)) {
+			throw new NullPointerException();
+		} else if (version <= 0L) {
+			throw new IllegalArgumentException("invalid patch version: " + version);
+		}
+		this.version = version;
+		this.puts = Collections.unmodifiableMap(new LinkedHashMap<String, Object>(puts));
+		this.removals = Collections.unmodifiableSet(new LinkedHashSet<String>(removals));
+		for (String key : this.removals) {
+			if (null == key) {
+				throw new NullPointerException();
+			} else if (this.puts.containsKey(key)) {
+				throw new IllegalArgumentException("key '" + key + "' is both put and removed");
+			}
+		}
+		if (this.puts.containsKey(null)) {
+			throw new NullPointerException();
+		}
+	}
+
+	public static DataPatch read(File patchFile) throws IOException {
+		final Reader reader = new InputStreamReader(new FileInputStream(patchFile), "UTF-8");
+		try {
+			return read(reader);
+		} finally {
+			reader.close();
+		}
+	}
+
+	public static DataPatch read(Reader reader) throws IOException {
+		final BufferedReader lineReader = new BufferedReader(reader);
+		final Map<String, Object> puts = new LinkedHashMap<String, Object>();
+		final Set<String> removals = new LinkedHashSet<String>();
+		long version = -1L;
+		int lineNumber = 0;
+		String line;
+		while (null != (line = lineReader.readLine())) {
+			++lineNumber;
+			if (line.isEmpty() || line.startsWith("#")) {
+				continue;
+			} else if (version < 0L) {
+				if (!line.startsWith(VERSION_PREFIX)) {
+					throw new ConfigurationDataException("patch must start with version, line " + lineNumber);
+				}
+				try {
+					version = Long.parseLong(line.substring(VERSION_PREFIX.length()).trim());
+				} catch (NumberFormatException e) {
+					throw new ConfigurationDataException("invalid patch version, line " + lineNumber, e);
+				}
+			} else if ('+' == line.charAt(0)) {
+				final int separator = line.indexOf('=');
+				if (separator < 2) {
+					throw new ConfigurationDataException("invalid patch entry, line " + lineNumber);
+				}
+				puts.put(line.substring(1, separator), line.substring(separator + 1));
+			} else if (('-' == line.charAt(0)) && (line.length() > 1)) {
+				removals.add(line.substring(1));
+			} else {
+				throw new ConfigurationDataException("invalid patch entry, line " + lineNumber);
+			}
+		}
+		if (version < 0L) {
+			throw new ConfigurationDataException("patch version is missing");
+		}
+		try {
+			return new DataPatch(version, puts, removals);
+		} catch (IllegalArgumentException e) {
+			throw new ConfigurationDataException("invalid patch", e);
+		}
+	}
+
+	public long getVersion() {
+		return version;
+	}
+
+	public Map<String, Object> getPuts() {
+		return puts;
+	}
+
+	public Set<String> getRemovals() {
+		return removals;
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataDiff;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.EnumerableDataProvider;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * {@code DataProviderComparator} computes differences between two enumerable providers without copying
+ * their contents: the keys of each provider are looked up directly in the other one. Large key sets
+ * are split into chunks that are compared concurrently, with no more chunks in progress than there
+ * are available processors; the providers must therefore support concurrent lookups, and their
+ * contents must not change during the comparison.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public final class DataProviderComparator {
+
+	public static final int PARALLEL_THRESHOLD = 32768;
+
+	private static final int CHUNK_SIZE = 16384;
+
+	public static ConfigurationDataDiff compare(EnumerableDataProvider oldProvider, EnumerableDataProvider newProvider) {
+		return compare(oldProvider, newProvider, ParallelCompoundDataProvider.DefaultExecutorHolder.EXECUTOR);
+	}
+
+	public static ConfigurationDataDiff compare(EnumerableDataProvider oldProvider, EnumerableDataProvider newProvider,
+												Executor executor) {
+		if ((null == oldProvider) || (null == newProvider) || (null == executor)) {
+			throw new NullPointerException();
+		}
+		final String[] oldKeys = oldProvider.getKeys().toArray(new String[0]);
+		final String[] newKeys = newProvider.getKeys().toArray(new String[0]);
+		final List<FutureTask<ChunkResult>> tasks = new ArrayList<FutureTask<ChunkResult>>();
+		final boolean parallel = (oldKeys.length + newKeys.length) >= PARALLEL_THRESHOLD;
+		final int chunkSize = parallel ? CHUNK_SIZE : Integer.MAX_VALUE;
+		// Keys missing in the new provider are removed, the others may have changed value
+		for (int start = 0; start < oldKeys.length; start += chunkSize) {
+			final int end = (int) Math.min((long) start + chunkSize, oldKeys.length);
+			tasks.add(new FutureTask<ChunkResult>(new ChunkComparison(oldKeys, start, end, oldProvider, newProvider, true)));
+		}
+		final int addedTasksStart = tasks.size();
+		// Keys missing in the old provider are added; values of common keys are already compared
+		for (int start = 0; start < newKeys.length; start += chunkSize) {
+			final int end = (int) Math.min((long) start + chunkSize, newKeys.length);
+			tasks.add(new FutureTask<ChunkResult>(new ChunkComparison(newKeys, start, end, newProvider, oldProvider, false)));
+		}
+		// The calling thread compares chunks as well, so the executor gets one chunk less than there are processors
+		final int maxSubmitted = parallel ? (Runtime.getRuntime().availableProcessors() - 1) : 0;
+		int submittedCount = 0;
+		while ((submittedCount < maxSubmitted) && (submittedCount < tasks.size())
+				&& submit(executor, tasks.get(submittedCount))) {
+			++submittedCount;
+		}
+		boolean submitting = (0 < maxSubmitted) && (submittedCount == maxSubmitted);
+		final List<String> added = new ArrayList<String>();
+		final List<String> removed = new ArrayList<String>();
+		final List<String> changed = new ArrayList<String>();
+		try {
+			for (int i = 0; i < tasks.size(); ++i) {
+				final FutureTask<ChunkResult> task = tasks.get(i);
+				// Run the task locally if the executor hasn't started it yet (no-op otherwise)
+				task.run();
+				final ChunkResult result = task.get();
+				if (submitting && (submittedCount < tasks.size())) {
+					// Replace the finished chunk
+					submitting = submit(executor, tasks.get(submittedCount));
+					if (submitting) {
+						++submittedCount;
+					}
+				}
+				if (i < addedTasksStart) {
+					removed.addAll(result.missingKeys);
+					changed.addAll(result.changedKeys);
+				} else {
+					added.addAll(result.missingKeys);
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConfigurationDataException("interrupted while comparing providers", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ConfigurationDataException("comparison of providers failed", cause);
+		} finally {
+			// Running chunks are not interrupted, the threads belong to a shared pool
+			for (FutureTask<ChunkResult> task : tasks) {
+				task.cancel(false);
+			}
+		}
+		return new ConfigurationDataDiff(added, removed, changed);
+	}
+
+	private static boolean submit(Executor executor, Runnable task) {
+		try {
+			executor.execute(task);
+			return true;
+		} catch (RejectedExecutionException e) {
+			// Executor is saturated or shut down, the remaining tasks will be run in the calling thread
+			return false;
+		}
+	}
+
+	/**
+	 * Compares values returned by getters (public methods without arguments) of two configuration
+	 * objects, e.g. proxies created by {@link cz.auderis.tools.config.ConfigurationData}. The keys
+	 * of the diff are the names of the methods; a method that returns {@code null} for one object only
+	 * is reported as added or removed.
+	 */
+	public static <T> ConfigurationDataDiff compareObjects(Class<T> type, T oldObject, T newObject) {
+		if ((null == type) || (null == oldObject) || (null == newObject)) {
+			throw new NullPointerException();
+		}
+		final List<String> added = new ArrayList<String>();
+		final List<String> removed = new ArrayList<String>();
+		final List<String> changed = new ArrayList<String>();
+		for (Method method : type.getMethods()) {
+			if ((0 != method.getParameterTypes().length) || (void.class == method.getReturnType())
+					|| (Object.class == method.getDeclaringClass())) {
+				continue;
+			}
+			final Object oldValue = invokeGetter(method, oldObject);
+			final Object newValue = invokeGetter(method, newObject);
+			if (null == oldValue) {
+				if (null != newValue) {
+					added.add(method.getName());
+				}
+			} else if (null == newValue) {
+				removed.add(method.getName());
+			} else if (!Arrays.deepEquals(new Object[] { oldValue }, new Object[] { newValue })) {
+				changed.add(method.getName());
+			}
+		}
+		return new ConfigurationDataDiff(added, removed, changed);
+	}
+
+	private static Object invokeGetter(Method method, Object target) {
+		try {
+			return method.invoke(target);
+		} catch (IllegalAccessException e) {
+			throw new ConfigurationDataException("cannot access " + method, e);
+		} catch (InvocationTargetException e) {
+			throw new ConfigurationDataException("cannot get value of " + method.getName(), e.getCause());
+		}
+	}
+
+	static final class ChunkComparison implements Callable<ChunkResult> {
+		private final String[] keys;
+		private final int start;
+		private final int end;
+		private final EnumerableDataProvider source;
+		private final EnumerableDataProvider target;
+		private final boolean compareValues;
+
+		ChunkComparison(String[] keys, int start, int end, EnumerableDataProvider source, EnumerableDataProvider target,
+						boolean compareValues) {
+			this.keys = keys;
+			this.start = start;
+			this.end = end;
+			this.source = source;
+			this.target = target;
+			this.compareValues = compareValues;
+		}
+
+		@Override
+		public ChunkResult call() {
+			final ChunkResult result = new ChunkResult();
+			for (int i = start; i < end; ++i) {
+				final String key = keys[i];
+				if (!target.containsKey(key)) {
+					result.missingKeys.add(key);
+				} else if (compareValues && !MapDiff.equal(source.getRawObject(key), target.getRawObject(key))) {
+					result.changedKeys.add(key);
+				}
+			}
+			return result;
+		}
+	}
+
+	static final class ChunkResult {
+		final List<String> missingKeys = new ArrayList<String>();
+		final List<String> changedKeys = new ArrayList<String>();
+	}
+
+	private DataProviderComparator() {
+		throw new AssertionError();
+	}
+
+}
@@ -0,0 +1,252 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.RefreshableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code DirectoryDataProvider} maps files in a directory tree to configuration entries, as used
+ * by configuration volumes mounted into containers. The key of an entry is the path of the file
+ * relative to the directory, with path separators replaced by dots; the value is the content
+ * of the file. Names starting with {@code ".."} (such as the {@code ..data} link of atomically
+ * updated volumes) are ignored.
+ *
+ * <p>Contents of files are read when first requested and then remembered. Changes are detected
+ * by {@link #refresh()}: if the directory contains the {@code ..data} link, the tree is only scanned
+ * again when the link has been switched to another target, otherwise it is scanned every time.
+ * Only files whose size, modification time or target has changed are considered; of those,
+ * the ones whose contents have been read before are read again and reported to listeners
+ * if the contents differ. Added and removed files are reported as well.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class DirectoryDataProvider implements EnumerableDataProvider, ObservableDataProvider,
+		VersionedDataProvider, RefreshableDataProvider {
+
+	public static final String DATA_LINK_NAME = "..data";
+
+	private static final String IGNORED_NAME_PREFIX = "..";
+
+	private final File directory;
+	private final Charset charset;
+	private final ChangeListenerSupport changeSupport;
+	private volatile Map<String, FileEntry> entries;
+	private String dataLinkTarget;
+
+	public DirectoryDataProvider(File directory) {
+		this(directory, Charset.forName("UTF-8"));
+	}
+
+	public DirectoryDataProvider(File directory, Charset charset) {
+		if ((null == directory) || (null == charset)) {
+			throw new NullPointerException();
+		} else if (!directory.isDirectory()) {
+			throw new IllegalArgumentException("not a directory: " + directory);
+		}
+		this.directory = directory;
+		this.charset = charset;
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.dataLinkTarget = resolveDataLink();
+		this.entries = scan();
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final FileEntry entry = entries.get(key);
+		if (null == entry) {
+			return null;
+		}
+		String content = entry.content;
+		if (null == content) {
+			content = readContent(entry.file);
+			entry.content = content;
+		}
+		return content;
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return entries.keySet();
+	}
+
+	@Override
+	public boolean refresh() {
+		final Set<String> changedKeys;
+		synchronized (this) {
+			final String newDataLinkTarget = resolveDataLink();
+			if ((null != newDataLinkTarget) && newDataLinkTarget.equals(dataLinkTarget)) {
+				// Volume has not been switched
+				return false;
+			}
+			dataLinkTarget = newDataLinkTarget;
+			final Map<String, FileEntry> oldEntries = entries;
+			final Map<String, FileEntry> newEntries = scan();
+			changedKeys = new HashSet<String>();
+			for (Map.Entry<String, FileEntry> mapEntry : newEntries.entrySet()) {
+				final String key = mapEntry.getKey();
+				final FileEntry newEntry = mapEntry.getValue();
+				final FileEntry oldEntry = oldEntries.get(key);
+				if (null == oldEntry) {
+					changedKeys.add(key);
+				} else if (newEntry.hasSameState(oldEntry)) {
+					newEntry.content = oldEntry.content;
+				} else if (null != oldEntry.content) {
+					final String newContent = readContent(newEntry.file);
+					newEntry.content = newContent;
+					if (!newContent.equals(oldEntry.content)) {
+						changedKeys.add(key);
+					}
+				}
+				// Contents that have never been read cannot be held by anyone, no need to report them
+			}
+			for (String key : oldEntries.keySet()) {
+				if (!newEntries.containsKey(key)) {
+					changedKeys.add(key);
+				}
+			}
+			entries = newEntries;
+		}
+		if (changedKeys.isEmpty()) {
+			return false;
+		}
+		changeSupport.fireKeysChanged(changedKeys);
+		return true;
+	}
+
+	@Override
+	public long getVersion() {
+		return changeSupport.getVersion();
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	private String resolveDataLink() {
+		final File dataLink = new File(directory, DATA_LINK_NAME);
+		if (!dataLink.exists()) {
+			return null;
+		}
+		try {
+			return dataLink.getCanonicalPath();
+		} catch (IOException e) {
+			throw new ConfigurationDataException("cannot resolve " + dataLink, e);
+		}
+	}
+
+	private Map<String, FileEntry> scan() {
+		final Map<String, FileEntry> result = new HashMap<String, FileEntry>();
+		scanDirectory(directory, "", result);
+		return Collections.unmodifiableMap(result);
+	}
+
+	private void scanDirectory(File dir, String keyPrefix, Map<String, FileEntry> result) {
+		final File[] files = dir.listFiles();
+		if (null == files) {
+			return;
+		}
+		for (File file : files) {
+			final String name = file.getName();
+			if (name.startsWith(IGNORED_NAME_PREFIX)) {
+				continue;
+			}
+			if (file.isDirectory()) {
+				scanDirectory(file, keyPrefix + name + '.', result);
+			} else if (file.isFile()) {
+				try {
+					result.put(keyPrefix + name, new FileEntry(file, file.getCanonicalPath(), file.lastModified(), file.length()));
+				} catch (IOException e) {
+					throw new ConfigurationDataException("cannot resolve " + file, e);
+				}
+			}
+		}
+	}
+
+	private String readContent(File file) {
+		try {
+			final InputStream input = new FileInputStream(file);
+			try {
+				final ByteArrayOutputStream content = new ByteArrayOutputStream((int) Math.min(file.length(), 1 << 16));
+				final byte[] buffer = new byte[4096];
+				int count;
+				while (-1 != (count = input.read(buffer))) {
+					content.write(buffer, 0, count);
+				}
+				return new String(content.toByteArray(), charset.name());
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			throw new ConfigurationDataException("cannot read " + file, e);
+		}
+	}
+
+	static final class FileEntry {
+		final File file;
+		final String target;
+		final long lastModified;
+		final long length;
+		volatile String content;
+
+		FileEntry(File file, String target, long lastModified, long length) {
+			this.file = file;
+			this.target = target;
+			this.lastModified = lastModified;
+			this.length = length;
+		}
+
+		boolean hasSameState(FileEntry other) {
+			return target.equals(other.target) && (lastModified == other.lastModified) && (length == other.length);
+		}
+	}
+
+}
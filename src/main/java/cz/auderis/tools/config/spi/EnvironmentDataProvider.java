@@ -0,0 +1,164 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * {@code EnvironmentDataProvider} provides access to environment variables using configuration
+ * entry keys. Variable names are split into segments at underscores and every variable is made
+ * available under its original name as well as under derived keys, where the lower-cased segments
+ * are joined either by dots or in camel-case. For example the variable {@code DB_MAX_POOL_SIZE}
+ * is available under keys {@code db.max.pool.size}, {@code dbMaxPoolSize}, {@code db.maxPoolSize},
+ * {@code db.max.poolSize} and other combinations.
+ *
+ * <p>All the keys are computed once when the provider is created, so that a lookup is a single hash
+ * probe. If a derived key could represent several variables, the original variable name takes
+ * precedence, otherwise the variable with the lexicographically lowest name wins.
+ *
+ * <p>An optional variable prefix (such as {@code "MYAPP_"}) restricts the provider to variables
+ * that start with the prefix; the prefix is removed before the keys are derived.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class EnvironmentDataProvider implements EnumerableDataProvider, VersionedDataProvider {
+
+	/**
+	 * Variables with more segments only get the keys with all segments joined
+	 * the same way, as the number of combinations grows exponentially.
+	 */
+	private static final int MAX_SEGMENTS_FOR_COMBINATIONS = 7;
+
+	private final Map<String, String> index;
+
+	public EnvironmentDataProvider() {
+		this(System.getenv(), null);
+	}
+
+	public EnvironmentDataProvider(String variablePrefix) {
+		this(System.getenv(), variablePrefix);
+	}
+
+	public EnvironmentDataProvider(Map<String, String> environment, String variablePrefix) {
+		if (null == environment) {
+			throw new NullPointerException();
+		}
+		this.index = Collections.unmodifiableMap(buildIndex(environment, variablePrefix));
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return index.containsKey(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return index.get(key);
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return index.keySet();
+	}
+
+	@Override
+	public long getVersion() {
+		// Environment of the process doesn't change
+		return 0L;
+	}
+
+	private static Map<String, String> buildIndex(Map<String, String> environment, String variablePrefix) {
+		final boolean prefixDefined = (null != variablePrefix) && !variablePrefix.isEmpty();
+		// Sorting makes the resolution of ambiguous derived keys deterministic
+		final Map<String, String> variables = new TreeMap<String, String>();
+		for (Map.Entry<String, String> envEntry : environment.entrySet()) {
+			final String name = envEntry.getKey();
+			if (!prefixDefined) {
+				variables.put(name, envEntry.getValue());
+			} else if (name.startsWith(variablePrefix) && (name.length() > variablePrefix.length())) {
+				variables.put(name.substring(variablePrefix.length()), envEntry.getValue());
+			}
+		}
+		final Map<String, String> result = new HashMap<String, String>(4 * variables.size());
+		// Original names take precedence over derived keys
+		result.putAll(variables);
+		for (Map.Entry<String, String> variable : variables.entrySet()) {
+			final String value = variable.getValue();
+			for (String derivedKey : deriveKeys(variable.getKey())) {
+				if (!result.containsKey(derivedKey)) {
+					result.put(derivedKey, value);
+				}
+			}
+		}
+		return result;
+	}
+
+	private static List<String> deriveKeys(String variableName) {
+		final List<String> segments = new ArrayList<String>();
+		for (String segment : variableName.split("_")) {
+			if (!segment.isEmpty()) {
+				segments.add(segment.toLowerCase(Locale.ROOT));
+			}
+		}
+		if (segments.isEmpty()) {
+			return Collections.emptyList();
+		}
+		final int gapCount = segments.size() - 1;
+		final List<String> result = new ArrayList<String>();
+		if (segments.size() > MAX_SEGMENTS_FOR_COMBINATIONS) {
+			result.add(joinSegments(segments, 0L));
+			result.add(joinSegments(segments, (1L << gapCount) - 1L));
+			return result;
+		}
+		// Each bit of the mask determines whether the corresponding gap is a dot or a camel-case join
+		for (long camelMask = 0L; camelMask < (1L << gapCount); ++camelMask) {
+			result.add(joinSegments(segments, camelMask));
+		}
+		return result;
+	}
+
+	private static String joinSegments(List<String> segments, long camelMask) {
+		final StringBuilder key = new StringBuilder(segments.get(0));
+		for (int i = 1; i < segments.size(); ++i) {
+			final String segment = segments.get(i);
+			if (0L != (camelMask & (1L << (i - 1)))) {
+				key.append(Character.toUpperCase(segment.charAt(0))).append(segment, 1, segment.length());
+			} else {
+				key.append('.').append(segment);
+			}
+		}
+		return key.toString();
+	}
+
+}
@@ -0,0 +1,267 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.RefreshableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * {@code HttpPollingDataProvider} serves entries of a document in the {@code .properties} format
+ * fetched from an HTTP endpoint. The document is fetched by {@link #refresh()}, which is intended
+ * to be called periodically from a background thread (see
+ * {@link cz.auderis.tools.config.ConfigurationData#scheduleRefresh}); the creation of the provider
+ * never accesses the network.
+ *
+ * <p>Requests are conditional: the entity tag of the last received document is sent in
+ * the {@code If-None-Match} header, so an unchanged document costs only the exchange of headers.
+ * A changed document is parsed in the refreshing thread and replaces the previous one atomically;
+ * changed keys are reported to the listeners.
+ *
+ * <p>If a cache file is given, every received document is stored in it, and the provider starts
+ * with the stored document, so that the last known good configuration is available even when
+ * the endpoint cannot be reached. A failed refresh leaves the current entries in place.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class HttpPollingDataProvider implements EnumerableDataProvider, ObservableDataProvider,
+		VersionedDataProvider, RefreshableDataProvider {
+
+	public static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+	public static final int DEFAULT_READ_TIMEOUT_MILLIS = 10000;
+
+	private static final String ETAG_FILE_SUFFIX = ".etag";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+	private final URL url;
+	private final File cacheFile;
+	private final int connectTimeout;
+	private final int readTimeout;
+	private final ChangeListenerSupport changeSupport;
+	private volatile Map<String, String> entries;
+	private String entityTag;
+
+	public HttpPollingDataProvider(URL url, File cacheFile) {
+		this(url, cacheFile, DEFAULT_CONNECT_TIMEOUT_MILLIS, DEFAULT_READ_TIMEOUT_MILLIS);
+	}
+
+	/**
+	 * @param cacheFile file for the last received document; {@code null} if it should not be stored
+	 */
+	public HttpPollingDataProvider(URL url, File cacheFile, int connectTimeoutMillis, int readTimeoutMillis) {
+		if (null == url) {
+			throw new NullPointerException();
+		} else if ((connectTimeoutMillis < 0) || (readTimeoutMillis < 0)) {
+			throw new IllegalArgumentException("invalid timeout");
+		}
+		this.url = url;
+		this.cacheFile = cacheFile;
+		this.connectTimeout = connectTimeoutMillis;
+		this.readTimeout = readTimeoutMillis;
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.entries = Collections.emptyMap();
+		if ((null != cacheFile) && cacheFile.isFile()) {
+			try {
+				this.entries = parse(readFile(cacheFile));
+				final File etagFile = new File(cacheFile.getPath() + ETAG_FILE_SUFFIX);
+				if (etagFile.isFile()) {
+					this.entityTag = new String(readFile(etagFile), "UTF-8");
+				}
+			} catch (IOException e) {
+				// Damaged cache is ignored, the document will be fetched again
+				this.entries = Collections.emptyMap();
+			}
+		}
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return entries.get(key);
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return entries.keySet();
+	}
+
+	/**
+	 * Fetches the document if it has changed.
+	 *
+	 * @throws ConfigurationDataException if the document cannot be fetched; current entries are kept
+	 */
+	@Override
+	public boolean refresh() {
+		final Set<String> changedKeys;
+		synchronized (this) {
+			final byte[] document;
+			final String newEntityTag;
+			try {
+				final HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+				connection.setConnectTimeout(connectTimeout);
+				connection.setReadTimeout(readTimeout);
+				connection.setUseCaches(false);
+				if (null != entityTag) {
+					connection.setRequestProperty("If-None-Match", entityTag);
+				}
+				try {
+					final int status = connection.getResponseCode();
+					if (HttpURLConnection.HTTP_NOT_MODIFIED == status) {
+						return false;
+					} else if (HttpURLConnection.HTTP_OK != status) {
+						throw new ConfigurationDataException("unexpected response " + status + " from " + url);
+					}
+					final InputStream input = connection.getInputStream();
+					try {
+						document = readFully(input);
+					} finally {
+						input.close();
+					}
+					newEntityTag = connection.getHeaderField("ETag");
+				} finally {
+					connection.disconnect();
+				}
+			} catch (IOException e) {
+				throw new ConfigurationDataException("cannot fetch " + url, e);
+			}
+			final Map<String, String> newEntries;
+			try {
+				newEntries = parse(document);
+			} catch (IOException e) {
+				throw new ConfigurationDataException("cannot parse document from " + url, e);
+			} catch (IllegalArgumentException e) {
+				throw new ConfigurationDataException("cannot parse document from " + url, e);
+			}
+			entityTag = newEntityTag;
+			storeInCache(document, newEntityTag);
+			changedKeys = MapDiff.changedKeys(entries, newEntries);
+			if (changedKeys.isEmpty()) {
+				return false;
+			}
+			entries = newEntries;
+		}
+		changeSupport.fireKeysChanged(changedKeys);
+		return true;
+	}
+
+	@Override
+	public long getVersion() {
+		return changeSupport.getVersion();
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	private void storeInCache(byte[] document, String newEntityTag) {
+		if (null == cacheFile) {
+			return;
+		}
+		final File etagFile = new File(cacheFile.getPath() + ETAG_FILE_SUFFIX);
+		try {
+			// Tag is removed first, so that a document is never paired with a tag of another one
+			if (etagFile.exists() && !etagFile.delete()) {
+				return;
+			}
+			writeFile(cacheFile, document);
+			if (null != newEntityTag) {
+				writeFile(etagFile, newEntityTag.getBytes("UTF-8"));
+			}
+		} catch (IOException e) {
+			// Cache is only a fallback, the entries are valid nevertheless
+		}
+	}
+
+	private static Map<String, String> parse(byte[] document) throws IOException {
+		final Properties properties = new Properties();
+		properties.load(new ByteArrayInputStream(document));
+		final Map<String, String> result = new HashMap<String, String>();
+		for (String key : properties.stringPropertyNames()) {
+			result.put(key, properties.getProperty(key));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	private static byte[] readFile(File file) throws IOException {
+		final InputStream input = new FileInputStream(file);
+		try {
+			return readFully(input);
+		} finally {
+			input.close();
+		}
+	}
+
+	private static void writeFile(File file, byte[] content) throws IOException {
+		final File tempFile = new File(file.getPath() + TEMP_FILE_SUFFIX);
+		final OutputStream output = new FileOutputStream(tempFile);
+		try {
+			output.write(content);
+		} finally {
+			output.close();
+		}
+		if (!tempFile.renameTo(file) && !(file.delete() && tempFile.renameTo(file))) {
+			throw new IOException("cannot replace " + file);
+		}
+	}
+
+	private static byte[] readFully(InputStream input) throws IOException {
+		final ByteArrayOutputStream result = new ByteArrayOutputStream();
+		final byte[] buffer = new byte[8192];
+		int count;
+		while (-1 != (count = input.read(buffer))) {
+			result.write(buffer, 0, count);
+		}
+		return result.toByteArray();
+	}
+
+}
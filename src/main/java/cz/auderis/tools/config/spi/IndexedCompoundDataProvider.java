@@ -0,0 +1,243 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigKey;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataProvider;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code IndexedCompoundDataProvider} is a variant of {@link CompoundDataProvider} that pre-merges
+ * consecutive {@link EnumerableDataProvider enumerable} delegates into a single index, which maps every
+ * key to the value of the delegate with the highest precedence. A lookup therefore costs a single hash
+ * probe per run of enumerable delegates instead of a probe per delegate. Delegates that cannot list
+ * their contents are queried directly, in their original position, so the precedence is preserved.
+ *
+ * <p>If a merged delegate is {@link ObservableDataProvider observable}, the index is updated
+ * incrementally when the delegate reports a change: only the affected keys are re-resolved, unless
+ * the delegate reports a full reload. Changes are propagated to listeners of this provider.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class IndexedCompoundDataProvider extends CompoundDataProvider implements ObservableDataProvider {
+
+	private static final Object ABSENT = new Object();
+	private static final Object NULL_VALUE = new Object();
+
+	private final Layer[] layers;
+	private final ChangeListenerSupport changeSupport;
+
+	public IndexedCompoundDataProvider(ConfigurationDataProvider... providers) {
+		super(providers);
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.layers = createLayers(getDelegates());
+		for (Layer layer : layers) {
+			layer.attach();
+		}
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		for (Layer layer : layers) {
+			if (ABSENT != layer.lookup(key)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		for (Layer layer : layers) {
+			final Object value = layer.lookup(key);
+			if (ABSENT != value) {
+				return value;
+			}
+		}
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(ConfigKey key) {
+		// Lookup strategy of this class is based on textual keys
+		return containsKey(key.getName());
+	}
+
+	@Override
+	public Object getRawObject(ConfigKey key) {
+		return getRawObject(key.getName());
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	private Layer[] createLayers(List<ConfigurationDataProvider> delegates) {
+		final List<Layer> result = new ArrayList<Layer>(delegates.size());
+		List<EnumerableDataProvider> mergeRun = null;
+		for (ConfigurationDataProvider delegate : delegates) {
+			if (delegate instanceof EnumerableDataProvider) {
+				if (null == mergeRun) {
+					mergeRun = new ArrayList<EnumerableDataProvider>(delegates.size());
+				}
+				mergeRun.add((EnumerableDataProvider) delegate);
+			} else {
+				if (null != mergeRun) {
+					result.add(new MergedLayer(mergeRun));
+					mergeRun = null;
+				}
+				result.add(new DirectLayer(delegate));
+			}
+		}
+		if (null != mergeRun) {
+			result.add(new MergedLayer(mergeRun));
+		}
+		return result.toArray(new Layer[result.size()]);
+	}
+
+	abstract class Layer {
+		/**
+		 * Returns the value of the entry, {@code ABSENT} marker if the layer does not contain the key.
+		 */
+		abstract Object lookup(String key);
+
+		abstract void attach();
+	}
+
+	final class DirectLayer extends Layer implements ConfigurationDataChangeListener {
+		private final ConfigurationDataProvider delegate;
+
+		DirectLayer(ConfigurationDataProvider delegate) {
+			this.delegate = delegate;
+		}
+
+		@Override
+		Object lookup(String key) {
+			if (delegate.containsKey(key)) {
+				return delegate.getRawObject(key);
+			}
+			return ABSENT;
+		}
+
+		@Override
+		void attach() {
+			if (delegate instanceof ObservableDataProvider) {
+				((ObservableDataProvider) delegate).addChangeListener(this);
+			}
+		}
+
+		@Override
+		public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+			// Nothing is cached for this layer, just propagate the change
+			changeSupport.fire(ConfigurationDataChangeEvent.derive(IndexedCompoundDataProvider.this, event));
+		}
+	}
+
+	final class MergedLayer extends Layer implements ConfigurationDataChangeListener {
+		private final EnumerableDataProvider[] sources;
+		private volatile ConcurrentMap<String, Object> index;
+
+		MergedLayer(List<EnumerableDataProvider> sources) {
+			this.sources = sources.toArray(new EnumerableDataProvider[sources.size()]);
+			this.index = buildIndex();
+		}
+
+		@Override
+		Object lookup(String key) {
+			final Object value = index.get(key);
+			if (null == value) {
+				return ABSENT;
+			} else if (NULL_VALUE == value) {
+				return null;
+			}
+			return value;
+		}
+
+		@Override
+		void attach() {
+			for (EnumerableDataProvider source : sources) {
+				if (source instanceof ObservableDataProvider) {
+					((ObservableDataProvider) source).addChangeListener(this);
+				}
+			}
+		}
+
+		@Override
+		public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+			synchronized (this) {
+				if (event.isFullReload()) {
+					index = buildIndex();
+				} else {
+					for (String key : event.getChangedKeys()) {
+						updateKey(key);
+					}
+				}
+			}
+			changeSupport.fire(ConfigurationDataChangeEvent.derive(IndexedCompoundDataProvider.this, event));
+		}
+
+		private ConcurrentMap<String, Object> buildIndex() {
+			int expectedSize = 0;
+			for (EnumerableDataProvider source : sources) {
+				expectedSize += source.getKeys().size();
+			}
+			final ConcurrentMap<String, Object> newIndex = new ConcurrentHashMap<String, Object>(Math.max(16, expectedSize));
+			// Lower precedence first, so that the values of higher precedence overwrite them
+			for (int i = sources.length - 1; i >= 0; --i) {
+				final EnumerableDataProvider source = sources[i];
+				for (String key : source.getKeys()) {
+					final Object value = source.getRawObject(key);
+					newIndex.put(key, (null != value) ? value : NULL_VALUE);
+				}
+			}
+			return newIndex;
+		}
+
+		private void updateKey(String key) {
+			for (EnumerableDataProvider source : sources) {
+				if (source.containsKey(key)) {
+					final Object value = source.getRawObject(key);
+					index.put(key, (null != value) ? value : NULL_VALUE);
+					return;
+				}
+			}
+			index.remove(key);
+		}
+	}
+
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.RefreshableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Pattern;
+
+/**
+ * {@code JdbcTableDataProvider} serves entries stored in a database table with key, value and version
+ * columns. The whole table is loaded by a single query when the provider is created; lookups
+ * never access the database. {@link #refresh()} then queries only the rows with a version higher
+ * than the highest one seen so far and applies them to a persistent map of the entries, copying
+ * only the paths to the changed keys; the new map replaces the current entries atomically.
+ * Changed keys are reported to the listeners.
+ *
+ * <p>A row with a {@code null} value marks a removed entry, since a deleted row cannot be noticed
+ * by the version query; {@link #reload()} loads the whole table again. Versions should be assigned
+ * in the order in which the changes are committed (e.g. from a sequence at commit time), otherwise
+ * a change committed late with a lower version may be missed until the next reload.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class JdbcTableDataProvider implements EnumerableDataProvider, ObservableDataProvider,
+		VersionedDataProvider, RefreshableDataProvider {
+
+	private static final Pattern IDENTIFIER_PATTERN = Pattern.compile("[A-Za-z_][A-Za-z0-9_$]*(\\.[A-Za-z_][A-Za-z0-9_$]*)*");
+
+	private final DataSource dataSource;
+	private final String fullQuery;
+	private final String incrementalQuery;
+	private final ChangeListenerSupport changeSupport;
+	private volatile PersistentStringMap entries;
+	private long lastSeenVersion;
+
+	public JdbcTableDataProvider(DataSource dataSource, String tableName) {
+		this(dataSource, tableName, "config_key", "config_value", "version");
+	}
+
+	public JdbcTableDataProvider(DataSource dataSource, String tableName, String keyColumn, String valueColumn,
+								 String versionColumn) {
+		if (null == dataSource) {
+			throw new NullPointerException();
+		}
+		for (String identifier : new String[] { tableName, keyColumn, valueColumn, versionColumn }) {
+			if ((null == identifier) || !IDENTIFIER_PATTERN.matcher(identifier).matches()) {
+				throw new IllegalArgumentException("invalid SQL identifier: " + identifier);
+			}
+		}
+		this.dataSource = dataSource;
+		this.fullQuery = "SELECT " + keyColumn + ", " + valueColumn + ", " + versionColumn + " FROM " + tableName;
+		this.incrementalQuery = fullQuery + " WHERE " + versionColumn + " > ?";
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.entries = PersistentStringMap.EMPTY;
+		this.lastSeenVersion = Long.MIN_VALUE;
+		reload();
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return null != entries.get(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return entries.get(key);
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return entries.keySet();
+	}
+
+	/**
+	 * Applies rows changed since the last query.
+	 */
+	@Override
+	public boolean refresh() {
+		final List<String> changedKeys = new ArrayList<String>();
+		synchronized (this) {
+			final Map<String, String> changes = new HashMap<String, String>();
+			final long maxVersion = query(incrementalQuery, lastSeenVersion, changes);
+			lastSeenVersion = maxVersion;
+			PersistentStringMap newEntries = entries;
+			for (Map.Entry<String, String> change : changes.entrySet()) {
+				final String key = change.getKey();
+				final String newValue = change.getValue();
+				final Object oldValue = newEntries.get(key);
+				if (MapDiff.equal(oldValue, newValue)) {
+					continue;
+				}
+				newEntries = (null != newValue) ? newEntries.with(key, newValue) : newEntries.without(key);
+				changedKeys.add(key);
+			}
+			if (changedKeys.isEmpty()) {
+				return false;
+			}
+			entries = newEntries;
+		}
+		changeSupport.fireKeysChanged(changedKeys);
+		return true;
+	}
+
+	/**
+	 * Loads the whole table again; this also detects rows that have been deleted.
+	 */
+	public boolean reload() {
+		final Set<String> changedKeys;
+		synchronized (this) {
+			final Map<String, String> rows = new HashMap<String, String>();
+			final long maxVersion = query(fullQuery, null, rows);
+			PersistentStringMap newEntries = PersistentStringMap.EMPTY;
+			for (Map.Entry<String, String> row : rows.entrySet()) {
+				if (null != row.getValue()) {
+					newEntries = newEntries.with(row.getKey(), row.getValue());
+				}
+			}
+			lastSeenVersion = Math.max(lastSeenVersion, maxVersion);
+			changedKeys = MapDiff.changedKeys(entries, newEntries);
+			if (changedKeys.isEmpty()) {
+				return false;
+			}
+			entries = newEntries;
+		}
+		changeSupport.fireKeysChanged(changedKeys);
+		return true;
+	}
+
+	@Override
+	public long getVersion() {
+		return changeSupport.getVersion();
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	/**
+	 * Reads rows into the map; of several rows with the same key, the one with the highest version wins.
+	 *
+	 * @return highest version seen, or the version parameter if there are no rows
+	 */
+	private long query(String sql, Long minVersion, Map<String, String> result) {
+		long maxVersion = (null != minVersion) ? minVersion.longValue() : Long.MIN_VALUE;
+		final Map<String, Long> rowVersions = new HashMap<String, Long>();
+		try {
+			final Connection connection = dataSource.getConnection();
+			try {
+				final PreparedStatement statement = connection.prepareStatement(sql);
+				try {
+					if (null != minVersion) {
+						statement.setLong(1, minVersion.longValue());
+					}
+					final ResultSet rows = statement.executeQuery();
+					try {
+						while (rows.next()) {
+							final String key = rows.getString(1);
+							final String value = rows.getString(2);
+							final long version = rows.getLong(3);
+							final Long knownVersion = rowVersions.get(key);
+							if ((null == key) || ((null != knownVersion) && (knownVersion.longValue() > version))) {
+								continue;
+							}
+							rowVersions.put(key, Long.valueOf(version));
+							result.put(key, value);
+							maxVersion = Math.max(maxVersion, version);
+						}
+					} finally {
+						rows.close();
+					}
+				} finally {
+					statement.close();
+				}
+			} finally {
+				connection.close();
+			}
+		} catch (SQLException e) {
+			throw new ConfigurationDataException("cannot query configuration table", e);
+		}
+		return maxVersion;
+	}
+
+}
@@ -0,0 +1,580 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@code JsonDataProvider} serves entries of a JSON document. Members of objects are addressed
+ * by dotted keys and elements of arrays by their indexes, so that the value {@code "b"} in
+ * <code>{"servers": [{"host": "a"}, {"host": "b"}]}</code> has the key {@code servers.1.host}.
+ * Only scalar values are entries; strings are returned decoded, numbers and booleans as their text
+ * and {@code null} as {@code null}.
+ *
+ * <p>The document is kept in its textual form. It is checked for syntax errors when the provider
+ * is created, but the members of an object or elements of an array are located only when a key
+ * leading into that object or array is looked up for the first time, and a value is decoded only
+ * when it is read. Objects and arrays that are never accessed therefore cost no memory beyond
+ * the document text.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class JsonDataProvider implements VersionedDataProvider {
+
+	private static final byte OBJECT = 1;
+	private static final byte ARRAY = 2;
+	private static final byte STRING = 3;
+	private static final byte LITERAL = 4;
+	private static final byte NULL = 5;
+
+	private final char[] text;
+	private final Value root;
+
+	public JsonDataProvider(String json) {
+		this(json.toCharArray());
+	}
+
+	public JsonDataProvider(Reader reader) throws IOException {
+		this(readFully(reader));
+	}
+
+	private JsonDataProvider(char[] text) {
+		this.text = text;
+		final int start = new Validator(text).validateDocument();
+		final byte type = typeAt(start);
+		if ((OBJECT != type) && (ARRAY != type)) {
+			throw new ConfigurationDataException("JSON document must be an object or an array");
+		}
+		this.root = new Value(start, type);
+	}
+
+	private JsonDataProvider(char[] text, Value root) {
+		this.text = text;
+		this.root = root;
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Value value = resolve(root, key, 0);
+		return (null != value) && value.isScalar();
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Value value = resolve(root, key, 0);
+		if ((null == value) || !value.isScalar()) {
+			return null;
+		}
+		return scalar(value);
+	}
+
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	/**
+	 * Returns a view of the object or array with the given key, whose keys are relative to it.
+	 * If there is no such object or array, the view is empty.
+	 */
+	public JsonDataProvider getSubtree(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Value value = key.isEmpty() ? root : resolve(root, key, 0);
+		if ((null == value) || value.isScalar()) {
+			return new JsonDataProvider(new char[] { '{', '}' }, new Value(0, OBJECT));
+		}
+		return new JsonDataProvider(text, value);
+	}
+
+	/**
+	 * Returns names of members of the object or indexes of elements of the array with the given key
+	 * (an empty key denotes the root); the list is empty if there is no such object or array.
+	 */
+	public List<String> getChildNames(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Value value = key.isEmpty() ? root : resolve(root, key, 0);
+		if ((null == value) || value.isScalar()) {
+			return Collections.emptyList();
+		}
+		final Object children = children(value);
+		if (OBJECT == value.type) {
+			@SuppressWarnings("unchecked")
+			final Map<String, Value> members = (Map<String, Value>) children;
+			return Collections.unmodifiableList(new ArrayList<String>(members.keySet()));
+		}
+		final int size = ((Value[]) children).length;
+		final List<String> result = new ArrayList<String>(size);
+		for (int i = 0; i < size; ++i) {
+			result.add(Integer.toString(i));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Finds the value addressed by the part of the key starting at the given position.
+	 */
+	private Value resolve(Value container, String key, int from) {
+		if (container.isScalar()) {
+			return null;
+		}
+		final Object children = children(container);
+		if (ARRAY == container.type) {
+			final int dot = key.indexOf('.', from);
+			final int end = (-1 != dot) ? dot : key.length();
+			final int index = parseIndex(key, from, end);
+			final Value[] elements = (Value[]) children;
+			if ((index < 0) || (index >= elements.length)) {
+				return null;
+			}
+			return (-1 != dot) ? resolve(elements[index], key, dot + 1) : elements[index];
+		}
+		@SuppressWarnings("unchecked")
+		final Map<String, Value> members = (Map<String, Value>) children;
+		// Member names may contain dots, so try the shortest name first and extend it if necessary
+		int dot = key.indexOf('.', from);
+		while (true) {
+			final int end = (-1 != dot) ? dot : key.length();
+			final Value member = members.get(key.substring(from, end));
+			if (null != member) {
+				if (-1 == dot) {
+					return member;
+				}
+				final Value result = resolve(member, key, dot + 1);
+				if (null != result) {
+					return result;
+				}
+			}
+			if (-1 == dot) {
+				return null;
+			}
+			dot = key.indexOf('.', dot + 1);
+		}
+	}
+
+	private static int parseIndex(String key, int from, int end) {
+		if ((from == end) || (end - from > 9) || ((end - from > 1) && ('0' == key.charAt(from)))) {
+			return -1;
+		}
+		int index = 0;
+		for (int i = from; i < end; ++i) {
+			final char c = key.charAt(i);
+			if ((c < '0') || (c > '9')) {
+				return -1;
+			}
+			index = 10 * index + (c - '0');
+		}
+		return index;
+	}
+
+	/**
+	 * Returns the map of members of an object or the array of elements of an array,
+	 * locating them on the first request.
+	 */
+	private Object children(Value container) {
+		Object children = container.decoded;
+		if (null == children) {
+			children = (OBJECT == container.type) ? scanObject(container.start) : scanArray(container.start);
+			container.decoded = children;
+		}
+		return children;
+	}
+
+	private Object scalar(Value value) {
+		if (NULL == value.type) {
+			return null;
+		}
+		Object decoded = value.decoded;
+		if (null == decoded) {
+			decoded = (STRING == value.type) ? decodeString(value.start) : new String(text, value.start, skipValue(value.start) - value.start);
+			value.decoded = decoded;
+		}
+		return decoded;
+	}
+
+	private Map<String, Value> scanObject(int start) {
+		final Map<String, Value> members = new LinkedHashMap<String, Value>();
+		int position = skipWhitespace(start + 1);
+		if ('}' == text[position]) {
+			return members;
+		}
+		while (true) {
+			final String name = decodeString(position);
+			position = skipWhitespace(skipValue(position));
+			// Colon
+			position = skipWhitespace(position + 1);
+			members.put(name, new Value(position, typeAt(position)));
+			position = skipWhitespace(skipValue(position));
+			if ('}' == text[position]) {
+				return members;
+			}
+			// Comma
+			position = skipWhitespace(position + 1);
+		}
+	}
+
+	private Value[] scanArray(int start) {
+		final List<Value> elements = new ArrayList<Value>();
+		int position = skipWhitespace(start + 1);
+		if (']' == text[position]) {
+			return new Value[0];
+		}
+		while (true) {
+			elements.add(new Value(position, typeAt(position)));
+			position = skipWhitespace(skipValue(position));
+			if (']' == text[position]) {
+				return elements.toArray(new Value[elements.size()]);
+			}
+			position = skipWhitespace(position + 1);
+		}
+	}
+
+	private byte typeAt(int position) {
+		switch (text[position]) {
+			case '{':
+				return OBJECT;
+			case '[':
+				return ARRAY;
+			case '"':
+				return STRING;
+			case 'n':
+				return NULL;
+			default:
+				return LITERAL;
+		}
+	}
+
+	/**
+	 * @return position following the (valid) value starting at the given position
+	 */
+	private int skipValue(int position) {
+		final char first = text[position];
+		if ('"' == first) {
+			int i = position + 1;
+			while ('"' != text[i]) {
+				i += ('\\' == text[i]) ? 2 : 1;
+			}
+			return i + 1;
+		} else if (('{' == first) || ('[' == first)) {
+			int depth = 0;
+			int i = position;
+			do {
+				final char c = text[i];
+				if ('"' == c) {
+					i = skipValue(i);
+					continue;
+				} else if (('{' == c) || ('[' == c)) {
+					++depth;
+				} else if (('}' == c) || (']' == c)) {
+					--depth;
+				}
+				++i;
+			} while (0 != depth);
+			return i;
+		}
+		int i = position;
+		while ((i < text.length) && (",}] \t\r\n".indexOf(text[i]) < 0)) {
+			++i;
+		}
+		return i;
+	}
+
+	private int skipWhitespace(int position) {
+		int i = position;
+		while ((i < text.length) && Validator.isWhitespace(text[i])) {
+			++i;
+		}
+		return i;
+	}
+
+	private String decodeString(int position) {
+		final StringBuilder result = new StringBuilder();
+		int i = position + 1;
+		while (true) {
+			final char c = text[i++];
+			if ('"' == c) {
+				return result.toString();
+			} else if ('\\' != c) {
+				result.append(c);
+				continue;
+			}
+			final char escaped = text[i++];
+			switch (escaped) {
+				case 'b':
+					result.append('\b');
+					break;
+				case 'f':
+					result.append('\f');
+					break;
+				case 'n':
+					result.append('\n');
+					break;
+				case 'r':
+					result.append('\r');
+					break;
+				case 't':
+					result.append('\t');
+					break;
+				case 'u':
+					result.append((char) Integer.parseInt(new String(text, i, 4), 16));
+					i += 4;
+					break;
+				default:
+					result.append(escaped);
+			}
+		}
+	}
+
+	private static char[] readFully(Reader reader) throws IOException {
+		if (null == reader) {
+			throw new NullPointerException();
+		}
+		final StringBuilder result = new StringBuilder();
+		final char[] buffer = new char[8192];
+		int count;
+		while (-1 != (count = reader.read(buffer))) {
+			result.append(buffer, 0, count);
+		}
+		final char[] chars = new char[result.length()];
+		result.getChars(0, chars.length, chars, 0);
+		return chars;
+	}
+
+	static final class Value {
+		final int start;
+		final byte type;
+		// Decoded scalar, or members / elements of a container
+		volatile Object decoded;
+
+		Value(int start, byte type) {
+			this.start = start;
+			this.type = type;
+		}
+
+		boolean isScalar() {
+			return (OBJECT != type) && (ARRAY != type);
+		}
+	}
+
+	/**
+	 * Checks the syntax of a whole document in a single pass, without creating objects for the values.
+	 */
+	static final class Validator {
+		private final char[] text;
+		private int position;
+
+		Validator(char[] text) {
+			this.text = text;
+		}
+
+		/**
+		 * @return position of the top-level value
+		 */
+		int validateDocument() {
+			skipWhitespace();
+			final int start = position;
+			validateValue();
+			skipWhitespace();
+			if (position != text.length) {
+				throw error("unexpected content");
+			}
+			return start;
+		}
+
+		/**
+		 * Validates a value including all nested values. Enclosing containers are tracked on an explicit
+		 * stack rather than by recursion, so that deeply nested documents cannot overflow the thread stack.
+		 */
+		private void validateValue() {
+			// Kinds of open containers, true for objects
+			boolean[] openObjects = new boolean[16];
+			int depth = 0;
+			while (true) {
+				if (position == text.length) {
+					throw error("unexpected end of document");
+				}
+				final char c = text[position];
+				if (('{' == c) || ('[' == c)) {
+					final boolean object = ('{' == c);
+					++position;
+					skipWhitespace();
+					if ((position == text.length) || ((object ? '}' : ']') != text[position])) {
+						if (depth == openObjects.length) {
+							openObjects = Arrays.copyOf(openObjects, 2 * depth);
+						}
+						openObjects[depth++] = object;
+						if (object) {
+							validateMemberName();
+						}
+						continue;
+					}
+					++position;
+				} else if ('"' == c) {
+					validateString();
+				} else if ('t' == c) {
+					expect("true");
+				} else if ('f' == c) {
+					expect("false");
+				} else if ('n' == c) {
+					expect("null");
+				} else {
+					validateNumber();
+				}
+				// Value is complete; close finished containers and move to the next member or element
+				while (true) {
+					if (0 == depth) {
+						return;
+					}
+					skipWhitespace();
+					if (position == text.length) {
+						throw error("unexpected end of document");
+					}
+					final boolean object = openObjects[depth - 1];
+					if ((object ? '}' : ']') == text[position]) {
+						++position;
+						--depth;
+						continue;
+					}
+					expect(",");
+					skipWhitespace();
+					if (object) {
+						validateMemberName();
+					}
+					break;
+				}
+			}
+		}
+
+		private void validateMemberName() {
+			if ((position == text.length) || ('"' != text[position])) {
+				throw error("member name expected");
+			}
+			validateString();
+			skipWhitespace();
+			expect(":");
+			skipWhitespace();
+		}
+
+		private void validateString() {
+			++position;
+			while (position < text.length) {
+				final char c = text[position++];
+				if ('"' == c) {
+					return;
+				} else if (c < ' ') {
+					throw error("control character in string");
+				} else if ('\\' == c) {
+					if (position == text.length) {
+						break;
+					}
+					final char escaped = text[position++];
+					if ('u' == escaped) {
+						for (int i = 0; i < 4; ++i) {
+							if ((position == text.length) || (Character.digit(text[position++], 16) < 0)) {
+								throw error("invalid unicode escape");
+							}
+						}
+					} else if ("\"\\/bfnrt".indexOf(escaped) < 0) {
+						throw error("invalid escape sequence");
+					}
+				}
+			}
+			throw error("unterminated string");
+		}
+
+		private void validateNumber() {
+			final int start = position;
+			if ((position < text.length) && ('-' == text[position])) {
+				++position;
+			}
+			if ((position < text.length) && ('0' == text[position])) {
+				++position;
+			} else if (0 == skipDigits()) {
+				position = start;
+				throw error("value expected");
+			}
+			if ((position < text.length) && ('.' == text[position])) {
+				++position;
+				if (0 == skipDigits()) {
+					throw error("digits expected");
+				}
+			}
+			if ((position < text.length) && (('e' == text[position]) || ('E' == text[position]))) {
+				++position;
+				if ((position < text.length) && (('+' == text[position]) || ('-' == text[position]))) {
+					++position;
+				}
+				if (0 == skipDigits()) {
+					throw error("digits expected");
+				}
+			}
+		}
+
+		private int skipDigits() {
+			final int start = position;
+			while ((position < text.length) && (text[position] >= '0') && (text[position] <= '9')) {
+				++position;
+			}
+			return position - start;
+		}
+
+		private void expect(String token) {
+			for (int i = 0; i < token.length(); ++i) {
+				if ((position == text.length) || (token.charAt(i) != text[position])) {
+					throw error("'" + token + "' expected");
+				}
+				++position;
+			}
+		}
+
+		private void skipWhitespace() {
+			while ((position < text.length) && isWhitespace(text[position])) {
+				++position;
+			}
+		}
+
+		private ConfigurationDataException error(String message) {
+			return new ConfigurationDataException("invalid JSON at offset " + position + ": " + message);
+		}
+
+		static boolean isWhitespace(char c) {
+			return (' ' == c) || ('\t' == c) || ('\n' == c) || ('\r' == c);
+		}
+	}
+
+}
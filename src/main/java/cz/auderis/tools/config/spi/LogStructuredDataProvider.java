@@ -0,0 +1,551 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * {@code LogStructuredDataProvider} is a mutable provider persisted in a directory. Every update
+ * is appended to a log file as a single record, so that updates of individual entries never rewrite
+ * the stored data. The current contents are kept in memory. When the log grows larger than
+ * the number of entries, it is compacted: a checkpoint with all entries is written and the log
+ * is started anew. On opening, the checkpoint is loaded and the log records written after it
+ * are replayed; a record damaged by an interrupted write at the end of the log is discarded.
+ * Each record states how many records of the same update follow it, so the records of an update
+ * of several entries are replayed either all or none.
+ *
+ * <p>Every update is assigned a version number that is stored with it, so the
+ * {@link #getVersion() version} of the provider keeps increasing across restarts. Records are
+ * flushed to the operating system immediately, which protects them against a failure of the process,
+ * but not of the whole system; checkpoints are synchronized to the storage device.
+ *
+ * <p>Compaction runs in the thread that performed the update, unless an executor is provided;
+ * a failed compaction does not affect the update, it is attempted again after further updates.
+ * If a record cannot be appended and the log cannot be restored to its previous length, no further
+ * updates are accepted. Values must be strings or {@code null}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class LogStructuredDataProvider implements EnumerableDataProvider, ObservableDataProvider, VersionedDataProvider, Closeable {
+
+	public static final int MIN_RECORDS_FOR_COMPACTION = 1024;
+
+	static final String CHECKPOINT_FILE_NAME = "checkpoint";
+	static final String LOG_FILE_NAME = "log";
+	static final String OLD_LOG_FILE_NAME = "log.old";
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final int CHECKPOINT_MAGIC = 0x4C534350;
+	private static final byte PUT = 1;
+	private static final byte REMOVE = 2;
+	private static final int RECORD_HEADER_SIZE = 13;
+	private static final Object NULL_VALUE = new Object();
+
+	private final File directory;
+	private final Executor compactionExecutor;
+	private final ConcurrentMap<String, Object> entries;
+	private final Set<String> keys;
+	private final ChangeListenerSupport changeSupport;
+	private final AtomicBoolean compactionPending;
+	private final Object compactionLock;
+	private volatile long version;
+	private FileOutputStream logOutput;
+	private int logRecordCount;
+	private boolean closed;
+	private IOException logFailure;
+
+	public LogStructuredDataProvider(File directory) throws IOException {
+		this(directory, null);
+	}
+
+	public LogStructuredDataProvider(File directory, Executor compactionExecutor) throws IOException {
+		if (null == directory) {
+			throw new NullPointerException();
+		} else if (!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("cannot create directory " + directory);
+		}
+		this.directory = directory;
+		this.compactionExecutor = compactionExecutor;
+		this.entries = new ConcurrentHashMap<String, Object>();
+		this.keys = Collections.unmodifiableSet(entries.keySet());
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.compactionPending = new AtomicBoolean();
+		this.compactionLock = new Object();
+		final long checkpointVersion = loadCheckpoint();
+		this.version = checkpointVersion;
+		replayLog(new File(directory, OLD_LOG_FILE_NAME), checkpointVersion);
+		replayLog(new File(directory, LOG_FILE_NAME), checkpointVersion);
+		this.logOutput = new FileOutputStream(new File(directory, LOG_FILE_NAME), true);
+		if (new File(directory, OLD_LOG_FILE_NAME).exists()) {
+			// Previous compaction has not finished
+			compact();
+		}
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Object value = entries.get(key);
+		return (NULL_VALUE != value) ? value : null;
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return keys;
+	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	public void put(String key, String value) throws IOException {
+		putAll(Collections.singletonMap(key, value));
+	}
+
+	/**
+	 * Stores all entries of the map; the records are written to the log together.
+	 */
+	public void putAll(Map<String, String> values) throws IOException {
+		if (null == values) {
+			throw new NullPointerException();
+		} else if (values.isEmpty()) {
+			return;
+		}
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		synchronized (this) {
+			ensureWritable();
+			long nextVersion = version;
+			int remainingRecords = values.size();
+			for (Map.Entry<String, String> entry : values.entrySet()) {
+				if (null == entry.getKey()) {
+					throw new NullPointerException("null key");
+				}
+				writeRecord(buffer, PUT, ++nextVersion, --remainingRecords, entry.getKey(), entry.getValue());
+			}
+			appendToLog(buffer, values.size());
+			for (Map.Entry<String, String> entry : values.entrySet()) {
+				final String value = entry.getValue();
+				entries.put(entry.getKey(), (null != value) ? value : NULL_VALUE);
+			}
+			version = nextVersion;
+		}
+		changeSupport.fireKeysChanged(values.keySet());
+		compactIfNeeded();
+	}
+
+	public void remove(String key) throws IOException {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		synchronized (this) {
+			ensureWritable();
+			if (!entries.containsKey(key)) {
+				return;
+			}
+			final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+			writeRecord(buffer, REMOVE, version + 1, 0, key, null);
+			appendToLog(buffer, 1);
+			entries.remove(key);
+			++version;
+		}
+		changeSupport.fireKeysChanged(Collections.singleton(key));
+		compactIfNeeded();
+	}
+
+	/**
+	 * Writes a checkpoint of the current contents and discards the log records that it covers.
+	 */
+	public void compact() throws IOException {
+		synchronized (compactionLock) {
+			final Map<String, Object> snapshot;
+			final long snapshotVersion;
+			final File oldLog = new File(directory, OLD_LOG_FILE_NAME);
+			synchronized (this) {
+				ensureOpen();
+				if (!oldLog.exists()) {
+					// Let the updates continue in a new log while the checkpoint is being written
+					logOutput.close();
+					if (!new File(directory, LOG_FILE_NAME).renameTo(oldLog)) {
+						logOutput = new FileOutputStream(new File(directory, LOG_FILE_NAME), true);
+						throw new IOException("cannot rotate log in " + directory);
+					}
+					logOutput = new FileOutputStream(new File(directory, LOG_FILE_NAME), true);
+					logRecordCount = 0;
+				}
+				snapshot = new HashMap<String, Object>(entries);
+				snapshotVersion = version;
+			}
+			writeCheckpoint(snapshot, snapshotVersion);
+			if (!oldLog.delete()) {
+				throw new IOException("cannot delete " + oldLog);
+			}
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		synchronized (this) {
+			if (!closed) {
+				closed = true;
+				logOutput.close();
+			}
+		}
+	}
+
+	private void ensureOpen() {
+		if (closed) {
+			throw new IllegalStateException("provider is closed");
+		}
+	}
+
+	private void ensureWritable() throws IOException {
+		ensureOpen();
+		if (null != logFailure) {
+			throw new IOException("log in " + directory + " could not be repaired after a failed write", logFailure);
+		}
+	}
+
+	private void appendToLog(ByteArrayOutputStream buffer, int recordCount) throws IOException {
+		final long logLength = logOutput.getChannel().size();
+		try {
+			buffer.writeTo(logOutput);
+			logOutput.flush();
+		} catch (IOException e) {
+			// A partially written record must not remain in front of the following ones,
+			// replay would stop at it and discard them
+			try {
+				logOutput.getChannel().truncate(logLength);
+			} catch (IOException truncateFailure) {
+				logFailure = e;
+			}
+			throw e;
+		}
+		logRecordCount += recordCount;
+	}
+
+	private void compactIfNeeded() {
+		synchronized (this) {
+			if ((logRecordCount < Math.max(MIN_RECORDS_FOR_COMPACTION, entries.size())) || closed) {
+				return;
+			}
+		}
+		if (!compactionPending.compareAndSet(false, true)) {
+			return;
+		}
+		if (null == compactionExecutor) {
+			try {
+				compact();
+			} catch (IOException e) {
+				// The update has been committed already, compaction will be attempted again after further updates
+			} finally {
+				compactionPending.set(false);
+			}
+			return;
+		}
+		compactionExecutor.execute(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					compact();
+				} catch (IOException e) {
+					// Log is kept, compaction will be attempted again after further updates
+				} catch (IllegalStateException e) {
+					// Closed in the meantime
+				} finally {
+					compactionPending.set(false);
+				}
+			}
+		});
+	}
+
+	private long loadCheckpoint() throws IOException {
+		final File checkpointFile = new File(directory, CHECKPOINT_FILE_NAME);
+		final File tempFile = new File(directory, CHECKPOINT_FILE_NAME + TEMP_FILE_SUFFIX);
+		if (!checkpointFile.exists()) {
+			if (!tempFile.exists()) {
+				return 0L;
+			}
+			// Replacement of the checkpoint was interrupted. The new checkpoint is complete if the old one
+			// has been deleted already; otherwise this is the first checkpoint and the log still has all records
+			final Map<String, Object> tempEntries = new HashMap<String, Object>();
+			final long tempVersion;
+			try {
+				tempVersion = readCheckpoint(tempFile, tempEntries);
+			} catch (IOException e) {
+				if (!tempFile.delete()) {
+					throw new IOException("cannot delete incomplete checkpoint " + tempFile, e);
+				}
+				return 0L;
+			}
+			if (!tempFile.renameTo(checkpointFile)) {
+				throw new IOException("cannot restore checkpoint file " + checkpointFile);
+			}
+			entries.putAll(tempEntries);
+			return tempVersion;
+		}
+		return readCheckpoint(checkpointFile, entries);
+	}
+
+	private static long readCheckpoint(File checkpointFile, Map<String, Object> target) throws IOException {
+		final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(checkpointFile)));
+		try {
+			if (CHECKPOINT_MAGIC != input.readInt()) {
+				throw new IOException("invalid checkpoint file " + checkpointFile);
+			}
+			final CRC32 checksum = new CRC32();
+			final long checkpointVersion = input.readLong();
+			final int count = input.readInt();
+			updateChecksum(checksum, checkpointVersion);
+			updateChecksum(checksum, count);
+			for (int i = 0; i < count; ++i) {
+				final String key = readText(input, checksum);
+				final String value = readText(input, checksum);
+				target.put(key, (null != value) ? value : NULL_VALUE);
+			}
+			if (checksum.getValue() != input.readLong()) {
+				throw new IOException("checkpoint file " + checkpointFile + " is damaged");
+			}
+			return checkpointVersion;
+		} finally {
+			input.close();
+		}
+	}
+
+	private void writeCheckpoint(Map<String, Object> snapshot, long snapshotVersion) throws IOException {
+		final File tempFile = new File(directory, CHECKPOINT_FILE_NAME + TEMP_FILE_SUFFIX);
+		final FileOutputStream fileOutput = new FileOutputStream(tempFile);
+		try {
+			final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+			final CRC32 checksum = new CRC32();
+			output.writeInt(CHECKPOINT_MAGIC);
+			output.writeLong(snapshotVersion);
+			output.writeInt(snapshot.size());
+			updateChecksum(checksum, snapshotVersion);
+			updateChecksum(checksum, snapshot.size());
+			for (Map.Entry<String, Object> entry : snapshot.entrySet()) {
+				final Object value = entry.getValue();
+				writeText(output, checksum, entry.getKey());
+				writeText(output, checksum, (NULL_VALUE != value) ? (String) value : null);
+			}
+			output.writeLong(checksum.getValue());
+			output.flush();
+			fileOutput.getFD().sync();
+		} finally {
+			fileOutput.close();
+		}
+		final File checkpointFile = new File(directory, CHECKPOINT_FILE_NAME);
+		// Renaming over an existing file is not atomic on all platforms; if the old checkpoint
+		// has to be deleted first, the complete temporary file is used when the directory is opened
+		if (!tempFile.renameTo(checkpointFile) && !(checkpointFile.delete() && tempFile.renameTo(checkpointFile))) {
+			throw new IOException("cannot replace checkpoint file " + checkpointFile);
+		}
+	}
+
+	/**
+	 * Applies log records with versions newer than the checkpoint. The log is truncated after
+	 * the last complete update; records of an update that was not written completely are discarded.
+	 */
+	private void replayLog(File logFile, long checkpointVersion) throws IOException {
+		if (!logFile.exists()) {
+			return;
+		}
+		final RandomAccessFile log = new RandomAccessFile(logFile, "rw");
+		try {
+			final DataInputStream input = new DataInputStream(new BufferedInputStream(new FileInputStream(log.getFD())));
+			long validLength = 0L;
+			long readLength = 0L;
+			final List<byte[]> update = new ArrayList<byte[]>();
+			int expectedRemainingRecords = -1;
+			try {
+				while (true) {
+					final int length = input.readInt();
+					final long expectedChecksum = input.readLong();
+					if ((length < RECORD_HEADER_SIZE) || (length > log.length() - readLength)) {
+						break;
+					}
+					final byte[] payload = new byte[length];
+					input.readFully(payload);
+					final CRC32 checksum = new CRC32();
+					checksum.update(payload);
+					if (checksum.getValue() != expectedChecksum) {
+						break;
+					}
+					final int remainingRecords = remainingRecords(payload);
+					if ((remainingRecords < 0) || (!update.isEmpty() && (remainingRecords != expectedRemainingRecords))) {
+						break;
+					}
+					update.add(payload);
+					readLength += 12 + length;
+					expectedRemainingRecords = remainingRecords - 1;
+					if (0 == remainingRecords) {
+						for (byte[] record : update) {
+							applyRecord(record, checkpointVersion);
+						}
+						update.clear();
+						validLength = readLength;
+					}
+				}
+			} catch (EOFException e) {
+				// Incomplete record at the end of the log
+			}
+			if (validLength < log.length()) {
+				log.setLength(validLength);
+			}
+		} finally {
+			log.close();
+		}
+	}
+
+	private void applyRecord(byte[] payload, long checkpointVersion) throws IOException {
+		final DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+		final byte operation = record.readByte();
+		final long recordVersion = record.readLong();
+		record.readInt();
+		final String key = readText(record, null);
+		final String value = readText(record, null);
+		if (recordVersion <= checkpointVersion) {
+			return;
+		}
+		if (PUT == operation) {
+			entries.put(key, (null != value) ? value : NULL_VALUE);
+		} else if (REMOVE == operation) {
+			entries.remove(key);
+		} else {
+			throw new ConfigurationDataException("unknown log record type " + operation);
+		}
+		version = Math.max(version, recordVersion);
+		++logRecordCount;
+	}
+
+	private static int remainingRecords(byte[] payload) {
+		// Follows the operation and the version
+		return ByteBuffer.wrap(payload).getInt(9);
+	}
+
+	private static void writeRecord(ByteArrayOutputStream buffer, byte operation, long recordVersion, int remainingRecords,
+									String key, String value) throws IOException {
+		final ByteArrayOutputStream payloadBuffer = new ByteArrayOutputStream();
+		final DataOutputStream payload = new DataOutputStream(payloadBuffer);
+		payload.writeByte(operation);
+		payload.writeLong(recordVersion);
+		// Number of records of the same update that follow this one
+		payload.writeInt(remainingRecords);
+		writeText(payload, null, key);
+		writeText(payload, null, value);
+		payload.flush();
+		final byte[] payloadBytes = payloadBuffer.toByteArray();
+		final CRC32 checksum = new CRC32();
+		checksum.update(payloadBytes);
+		final DataOutputStream output = new DataOutputStream(buffer);
+		output.writeInt(payloadBytes.length);
+		output.writeLong(checksum.getValue());
+		output.write(payloadBytes);
+		output.flush();
+	}
+
+	private static void updateChecksum(CRC32 checksum, long value) {
+		for (int shift = 56; shift >= 0; shift -= 8) {
+			checksum.update((int) (value >>> shift));
+		}
+	}
+
+	private static void writeText(DataOutputStream output, CRC32 checksum, String text) throws IOException {
+		if (null == text) {
+			output.writeInt(-1);
+			if (null != checksum) {
+				checksum.update(0xFF);
+			}
+			return;
+		}
+		final byte[] bytes = text.getBytes("UTF-8");
+		output.writeInt(bytes.length);
+		output.write(bytes);
+		if (null != checksum) {
+			checksum.update(bytes);
+			checksum.update(0);
+		}
+	}
+
+	private static String readText(DataInputStream input, CRC32 checksum) throws IOException {
+		final int length = input.readInt();
+		if (-1 == length) {
+			if (null != checksum) {
+				checksum.update(0xFF);
+			}
+			return null;
+		}
+		final byte[] bytes = new byte[length];
+		input.readFully(bytes);
+		if (null != checksum) {
+			checksum.update(bytes);
+			checksum.update(0);
+		}
+		return new String(bytes, "UTF-8");
+	}
+
+}
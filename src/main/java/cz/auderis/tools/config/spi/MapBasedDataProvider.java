@@ -16,10 +16,13 @@
 
 package cz.auderis.tools.config.spi;
 
-import cz.auderis.tools.config.ConfigurationDataProvider;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
 
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * {@code MapBasedDataProvider}
@@ -27,7 +30,7 @@ import java.util.Map;
  * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
  * @version 1.0
  */
-public class MapBasedDataProvider implements ConfigurationDataProvider {
+public class MapBasedDataProvider implements EnumerableDataProvider, VersionedDataProvider {
 
 	private final Map<String, ?> dataSource;
 
@@ -54,4 +57,15 @@ public class MapBasedDataProvider implements ConfigurationDataProvider {
 		return dataSource.get(key);
 	}
 
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(dataSource.keySet());
+	}
+
 }
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code MapDiff} contains helper methods that compare two snapshots of provider entries, so that
+ * providers can report which keys have changed.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class MapDiff {
+
+	/**
+	 * Determines keys of entries that were added, removed or modified between two maps.
+	 */
+	static Set<String> changedKeys(Map<String, ?> oldMap, Map<String, ?> newMap) {
+		final Set<String> result = new HashSet<String>();
+		for (Map.Entry<String, ?> oldEntry : oldMap.entrySet()) {
+			final String key = oldEntry.getKey();
+			final Object newValue = newMap.get(key);
+			if ((null == newValue) && !newMap.containsKey(key)) {
+				result.add(key);
+			} else if (!equal(oldEntry.getValue(), newValue)) {
+				result.add(key);
+			}
+		}
+		for (String newKey : newMap.keySet()) {
+			if (!oldMap.containsKey(newKey)) {
+				result.add(newKey);
+			}
+		}
+		return result;
+	}
+
+	/**
+	 * Determines keys of entries that were added, removed or modified between two persistent maps.
+	 */
+	static Set<String> changedKeys(PersistentStringMap oldMap, PersistentStringMap newMap) {
+		final Set<String> result = new HashSet<String>();
+		for (String key : oldMap.keySet()) {
+			if (!equal(oldMap.get(key), newMap.get(key))) {
+				result.add(key);
+			}
+		}
+		for (String key : newMap.keySet()) {
+			if (null == oldMap.get(key)) {
+				result.add(key);
+			}
+		}
+		return result;
+	}
+
+	static boolean equal(Object a, Object b) {
+		return (a == b) || ((null != a) && a.equals(b));
+	}
+
+	private MapDiff() {
+		throw new AssertionError();
+	}
+
+}
@@ -0,0 +1,441 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code MappedPropertiesDataProvider} reads entries of a file in the {@code .properties} format
+ * (as defined by {@link java.util.Properties#load(java.io.InputStream)}, i.e. in ISO 8859-1 encoding)
+ * that is mapped into memory. When the provider is created, the file is scanned once and only
+ * an index of entry positions is built; neither keys nor values are copied to the heap. A value
+ * is decoded (including escape sequences and line continuations) when it is read for the first
+ * time and then remembered.
+ *
+ * <p>As with {@code Properties}, the last occurrence of a duplicate key wins. The file must not be
+ * modified while the provider is in use. The provider does not list its keys, so that compound
+ * providers do not force all entries to be decoded.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class MappedPropertiesDataProvider implements VersionedDataProvider {
+
+	private static final int INITIAL_ENTRY_CAPACITY = 256;
+
+	private final ByteBuffer data;
+	private final int[] keyStarts;
+	private final int[] keyEnds;
+	private final int[] valueStarts;
+	private final int[] valueEnds;
+	private final int[] hashes;
+	private final int[] table;
+	private final int tableMask;
+	private final ConcurrentMap<String, String> decodedValues;
+
+	public MappedPropertiesDataProvider(File file) throws IOException {
+		if (null == file) {
+			throw new NullPointerException();
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			final long size = channel.size();
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("file too large to be mapped: " + file);
+			}
+			// The mapping remains valid after the channel is closed
+			this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0L, size);
+		} finally {
+			raf.close();
+		}
+		final EntryScanner scanner = new EntryScanner(data);
+		scanner.scan();
+		final int entryCount = scanner.entryCount;
+		this.keyStarts = Arrays.copyOf(scanner.keyStarts, entryCount);
+		this.keyEnds = Arrays.copyOf(scanner.keyEnds, entryCount);
+		this.valueStarts = Arrays.copyOf(scanner.valueStarts, entryCount);
+		this.valueEnds = Arrays.copyOf(scanner.valueEnds, entryCount);
+		this.hashes = new int[entryCount];
+		int capacity = 16;
+		while (capacity < 2 * entryCount) {
+			capacity <<= 1;
+		}
+		this.table = new int[capacity];
+		this.tableMask = capacity - 1;
+		for (int i = 0; i < entryCount; ++i) {
+			hashes[i] = keyHash(i);
+			insert(i);
+		}
+		this.decodedValues = new ConcurrentHashMap<String, String>();
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return decodedValues.containsKey(key) || (-1 != find(key));
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		String value = decodedValues.get(key);
+		if (null == value) {
+			final int entry = find(key);
+			if (-1 == entry) {
+				return null;
+			}
+			value = decode(valueStarts[entry], valueEnds[entry]);
+			decodedValues.putIfAbsent(key, value);
+		}
+		return value;
+	}
+
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	/**
+	 * @return number of entries in the file, not counting overridden duplicate keys
+	 */
+	public int size() {
+		int count = 0;
+		for (int slot : table) {
+			if (0 != slot) {
+				++count;
+			}
+		}
+		return count;
+	}
+
+	private int find(String key) {
+		final int hash = key.hashCode();
+		int slot = mix(hash) & tableMask;
+		while (true) {
+			final int entry = table[slot] - 1;
+			if (-1 == entry) {
+				return -1;
+			} else if ((hashes[entry] == hash) && keyEquals(entry, key)) {
+				return entry;
+			}
+			slot = (slot + 1) & tableMask;
+		}
+	}
+
+	private void insert(int entry) {
+		final int hash = hashes[entry];
+		int slot = mix(hash) & tableMask;
+		while (true) {
+			final int existing = table[slot] - 1;
+			if ((-1 == existing) || ((hashes[existing] == hash) && keysEqual(existing, entry))) {
+				// Later occurrence of a key replaces the earlier one
+				table[slot] = entry + 1;
+				return;
+			}
+			slot = (slot + 1) & tableMask;
+		}
+	}
+
+	private int keyHash(int entry) {
+		// Same as String.hashCode() of the decoded key
+		final Decoder decoder = new Decoder(keyStarts[entry], keyEnds[entry]);
+		int hash = 0;
+		int c;
+		while (-1 != (c = decoder.next())) {
+			hash = 31 * hash + c;
+		}
+		return hash;
+	}
+
+	private boolean keyEquals(int entry, String key) {
+		final Decoder decoder = new Decoder(keyStarts[entry], keyEnds[entry]);
+		final int length = key.length();
+		for (int i = 0; i < length; ++i) {
+			if (key.charAt(i) != decoder.next()) {
+				return false;
+			}
+		}
+		return -1 == decoder.next();
+	}
+
+	private boolean keysEqual(int entry1, int entry2) {
+		final Decoder decoder1 = new Decoder(keyStarts[entry1], keyEnds[entry1]);
+		final Decoder decoder2 = new Decoder(keyStarts[entry2], keyEnds[entry2]);
+		int c;
+		do {
+			c = decoder1.next();
+			if (c != decoder2.next()) {
+				return false;
+			}
+		} while (-1 != c);
+		return true;
+	}
+
+	private String decode(int start, int end) {
+		final StringBuilder result = new StringBuilder(end - start);
+		final Decoder decoder = new Decoder(start, end);
+		int c;
+		while (-1 != (c = decoder.next())) {
+			result.append((char) c);
+		}
+		return result.toString();
+	}
+
+	private static int mix(int hash) {
+		final int h = hash * 0x9E3779B9;
+		return h ^ (h >>> 16);
+	}
+
+	static boolean isLineEnd(int c) {
+		return ('\n' == c) || ('\r' == c);
+	}
+
+	static boolean isWhitespace(int c) {
+		return (' ' == c) || ('\t' == c) || ('\f' == c);
+	}
+
+	/**
+	 * Produces characters of a key or value stored in the file, resolving escape sequences
+	 * and line continuations.
+	 */
+	final class Decoder {
+		private int position;
+		private final int end;
+
+		Decoder(int start, int end) {
+			this.position = start;
+			this.end = end;
+		}
+
+		/**
+		 * @return next decoded character, -1 at the end
+		 */
+		int next() {
+			while (position < end) {
+				final int c = byteAt(position++);
+				if ('\\' != c) {
+					return c;
+				}
+				if (position == end) {
+					// Dangling backslash is dropped
+					return -1;
+				}
+				final int escaped = byteAt(position++);
+				if (isLineEnd(escaped)) {
+					// Line continuation, skip the line terminator and leading whitespace of the next line
+					if (('\r' == escaped) && (position < end) && ('\n' == byteAt(position))) {
+						++position;
+					}
+					while ((position < end) && isWhitespace(byteAt(position))) {
+						++position;
+					}
+					continue;
+				}
+				switch (escaped) {
+					case 't':
+						return '\t';
+					case 'n':
+						return '\n';
+					case 'r':
+						return '\r';
+					case 'f':
+						return '\f';
+					case 'u':
+						return decodeUnicode();
+					default:
+						return escaped;
+				}
+			}
+			return -1;
+		}
+
+		private int decodeUnicode() {
+			if (end - position < 4) {
+				throw new ConfigurationDataException("malformed \\uxxxx encoding at offset " + position);
+			}
+			int value = 0;
+			for (int i = 0; i < 4; ++i) {
+				final int digit = Character.digit(byteAt(position++), 16);
+				if (digit < 0) {
+					throw new ConfigurationDataException("malformed \\uxxxx encoding at offset " + (position - 1));
+				}
+				value = (value << 4) | digit;
+			}
+			return value;
+		}
+
+		private int byteAt(int index) {
+			return data.get(index) & 0xFF;
+		}
+	}
+
+	/**
+	 * Finds positions of keys and values in the file, following the rules
+	 * of {@code Properties.load()}.
+	 */
+	static final class EntryScanner {
+		private final ByteBuffer data;
+		private final int limit;
+		private int position;
+		int entryCount;
+		int[] keyStarts = new int[INITIAL_ENTRY_CAPACITY];
+		int[] keyEnds = new int[INITIAL_ENTRY_CAPACITY];
+		int[] valueStarts = new int[INITIAL_ENTRY_CAPACITY];
+		int[] valueEnds = new int[INITIAL_ENTRY_CAPACITY];
+
+		EntryScanner(ByteBuffer data) {
+			this.data = data;
+			this.limit = data.limit();
+		}
+
+		void scan() {
+			while (position < limit) {
+				scanLogicalLine();
+			}
+		}
+
+		/**
+		 * Scans a logical line the way {@code Properties} reads it: leading whitespace and empty lines
+		 * are skipped, a comment is recognized wherever a logical line would start (also after a continued
+		 * line that turned out empty), and a natural line ending with an odd number of backslashes
+		 * continues on the next one without its leading whitespace. The line is split into key and value
+		 * while it is read, following {@code Properties.load()}.
+		 */
+		private void scanLogicalLine() {
+			boolean skipWhitespace = true;
+			boolean appendedLineBegin = false;
+			boolean precedingBackslash = false;
+			int length = 0;
+			int keyStart = -1;
+			int keyEnd = -1;
+			int valueStart = -1;
+			boolean separatorSeen = false;
+			boolean keyBackslash = false;
+			while (position < limit) {
+				final int c = byteAt(position);
+				if (skipWhitespace) {
+					if (isWhitespace(c) || (!appendedLineBegin && isLineEnd(c))) {
+						++position;
+						continue;
+					}
+					skipWhitespace = false;
+					appendedLineBegin = false;
+				}
+				if ((0 == length) && (('#' == c) || ('!' == c))) {
+					while ((position < limit) && !isLineEnd(byteAt(position))) {
+						++position;
+					}
+					skipWhitespace = true;
+					continue;
+				}
+				if (!isLineEnd(c)) {
+					if (0 == length) {
+						keyStart = position;
+						keyEnd = -1;
+						valueStart = -1;
+						separatorSeen = false;
+						keyBackslash = false;
+					}
+					++length;
+					if (-1 == keyEnd) {
+						if ((('=' == c) || (':' == c)) && !keyBackslash) {
+							keyEnd = position;
+							separatorSeen = true;
+						} else if (isWhitespace(c) && !keyBackslash) {
+							keyEnd = position;
+						} else {
+							keyBackslash = ('\\' == c) && !keyBackslash;
+						}
+					} else if ((-1 == valueStart) && !isWhitespace(c)) {
+						if (!separatorSeen && (('=' == c) || (':' == c))) {
+							separatorSeen = true;
+						} else {
+							valueStart = position;
+						}
+					}
+					precedingBackslash = ('\\' == c) && !precedingBackslash;
+					++position;
+					continue;
+				}
+				if (0 == length) {
+					// Empty line, possibly left by a continuation
+					++position;
+					skipWhitespace = true;
+					continue;
+				}
+				if (!precedingBackslash) {
+					addEntry(keyStart, (-1 != keyEnd) ? keyEnd : position, (-1 != valueStart) ? valueStart : position, position);
+					++position;
+					return;
+				}
+				// Line continuation; the backslash does not belong to the logical line, so its effect is undone
+				--length;
+				if (-1 == keyEnd) {
+					keyBackslash = !keyBackslash;
+				} else if (position - 1 == valueStart) {
+					valueStart = -1;
+				}
+				precedingBackslash = false;
+				skipWhitespace = true;
+				appendedLineBegin = true;
+				++position;
+				if (('\r' == c) && (position < limit) && ('\n' == byteAt(position))) {
+					++position;
+				}
+			}
+			if (0 != length) {
+				addEntry(keyStart, (-1 != keyEnd) ? keyEnd : limit, (-1 != valueStart) ? valueStart : limit, limit);
+			}
+		}
+
+		private void addEntry(int keyStart, int keyEnd, int valueStart, int valueEnd) {
+			if (entryCount == keyStarts.length) {
+				final int newCapacity = 2 * entryCount;
+				keyStarts = Arrays.copyOf(keyStarts, newCapacity);
+				keyEnds = Arrays.copyOf(keyEnds, newCapacity);
+				valueStarts = Arrays.copyOf(valueStarts, newCapacity);
+				valueEnds = Arrays.copyOf(valueEnds, newCapacity);
+			}
+			keyStarts[entryCount] = keyStart;
+			keyEnds[entryCount] = keyEnd;
+			valueStarts[entryCount] = valueStart;
+			valueEnds[entryCount] = valueEnd;
+			++entryCount;
+		}
+
+		private int byteAt(int index) {
+			return data.get(index) & 0xFF;
+		}
+	}
+
+}
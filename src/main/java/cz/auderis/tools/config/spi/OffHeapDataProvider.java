@@ -0,0 +1,85 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+
+/**
+ * {@code OffHeapDataProvider} is an immutable provider that keeps its keys and string values
+ * in direct (off-heap) memory, so that large configuration sets do not increase the amount
+ * of memory that must be scanned by the garbage collector. Entries are stored in a compact form:
+ * texts consisting of ISO 8859-1 characters take a single byte per character, other texts
+ * two bytes per character. An open-addressing table of entry positions, also off-heap, is used
+ * for lookups, which compare the stored key with the requested one without decoding it.
+ *
+ * <p>A value is decoded to a string every time it is read; repeated reads through configuration
+ * objects are served by their own cache of translated values. The provider does not list its
+ * keys, so that compound providers do not force all entries onto the heap.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class OffHeapDataProvider implements VersionedDataProvider {
+
+	private final ByteBuffer data;
+
+	public OffHeapDataProvider(Map<String, ?> dataSource) {
+		if (null == dataSource) {
+			throw new NullPointerException();
+		}
+		final long dataSize = CompactEntryTable.requiredSize(dataSource);
+		if (dataSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("data too large: " + dataSize + " bytes");
+		}
+		this.data = ByteBuffer.allocateDirect((int) dataSize);
+		CompactEntryTable.write(data, 0, dataSource);
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return -1 != CompactEntryTable.find(data, 0, key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int position = CompactEntryTable.find(data, 0, key);
+		return (-1 != position) ? CompactEntryTable.readValue(data, position) : null;
+	}
+
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	/**
+	 * @return number of entries
+	 */
+	public int size() {
+		return CompactEntryTable.size(data, 0);
+	}
+
+}
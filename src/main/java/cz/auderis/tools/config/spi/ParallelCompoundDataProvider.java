@@ -0,0 +1,184 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigKey;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.ConfigurationDataProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * {@code ParallelCompoundDataProvider} is a variant of {@link CompoundDataProvider} intended
+ * for slow delegates (such as file or database backed ones). Instead of querying the delegates one
+ * after another, all of them are queried concurrently. The result of the delegate with the highest
+ * precedence that contains the key is returned as soon as it is known (i.e. when all delegates of
+ * higher precedence have reported that they do not contain the key); lookups in the remaining
+ * delegates that have not started yet are cancelled, running ones are not interrupted. The precedence
+ * of delegates is therefore unchanged, but the latency of a lookup is given by the slowest relevant
+ * delegate rather than by the sum of all latencies.
+ *
+ * <p>The delegate with the highest precedence is queried in the calling thread, the others using
+ * the provided executor. If no executor is provided, a shared pool of daemon threads is used.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class ParallelCompoundDataProvider extends CompoundDataProvider {
+
+	private static final Object ABSENT = new Object();
+
+	private final ConfigurationDataProvider[] delegates;
+	private final ExecutorService executor;
+
+	public ParallelCompoundDataProvider(ConfigurationDataProvider... providers) {
+		this(DefaultExecutorHolder.EXECUTOR, providers);
+	}
+
+	public ParallelCompoundDataProvider(ExecutorService executor, ConfigurationDataProvider... providers) {
+		super(providers);
+		if (null == executor) {
+			throw new NullPointerException();
+		}
+		final List<ConfigurationDataProvider> delegateList = getDelegates();
+		this.delegates = delegateList.toArray(new ConfigurationDataProvider[delegateList.size()]);
+		this.executor = executor;
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return ABSENT != lookup(key, false);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Object result = lookup(key, true);
+		return (ABSENT != result) ? result : null;
+	}
+
+	@Override
+	public boolean containsKey(ConfigKey key) {
+		// Lookup strategy of this class is based on textual keys
+		return containsKey(key.getName());
+	}
+
+	@Override
+	public Object getRawObject(ConfigKey key) {
+		return getRawObject(key.getName());
+	}
+
+	private Object lookup(String key, boolean fetchValue) {
+		final int delegateCount = delegates.length;
+		if (1 == delegateCount) {
+			return new DelegateLookup(delegates[0], key, fetchValue).call();
+		}
+		// Tasks for delegates of lower precedence, the first delegate is queried directly
+		final List<FutureTask<Object>> tasks = new ArrayList<FutureTask<Object>>(delegateCount - 1);
+		try {
+			for (int i = 1; i < delegateCount; ++i) {
+				final FutureTask<Object> task = new FutureTask<Object>(new DelegateLookup(delegates[i], key, fetchValue));
+				tasks.add(task);
+				try {
+					executor.execute(task);
+				} catch (RejectedExecutionException e) {
+					// Executor is saturated or shut down, the task will be run in the calling thread
+				}
+			}
+			final Object firstResult = new DelegateLookup(delegates[0], key, fetchValue).call();
+			if (ABSENT != firstResult) {
+				return firstResult;
+			}
+			for (FutureTask<Object> task : tasks) {
+				// Run the task locally if the executor hasn't started it yet (no-op otherwise)
+				task.run();
+				final Object result = task.get();
+				if (ABSENT != result) {
+					return result;
+				}
+			}
+			return ABSENT;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new ConfigurationDataException("interrupted while looking up key '" + key + "'", e);
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ConfigurationDataException("lookup of key '" + key + "' failed", cause);
+		} finally {
+			// Skip lookups that have not started yet; running ones are left to finish, as interrupting
+			// a pool thread could break I/O of a delegate that is shared with other lookups
+			for (FutureTask<Object> task : tasks) {
+				task.cancel(false);
+			}
+		}
+	}
+
+	static final class DelegateLookup implements Callable<Object> {
+		private final ConfigurationDataProvider delegate;
+		private final String key;
+		private final boolean fetchValue;
+
+		DelegateLookup(ConfigurationDataProvider delegate, String key, boolean fetchValue) {
+			this.delegate = delegate;
+			this.key = key;
+			this.fetchValue = fetchValue;
+		}
+
+		@Override
+		public Object call() {
+			if (!delegate.containsKey(key)) {
+				return ABSENT;
+			} else if (fetchValue) {
+				return delegate.getRawObject(key);
+			}
+			return null;
+		}
+	}
+
+	static final class DefaultExecutorHolder {
+		static final ExecutorService EXECUTOR = Executors.newCachedThreadPool(new ThreadFactory() {
+			private final AtomicInteger threadCounter = new AtomicInteger();
+
+			@Override
+			public Thread newThread(Runnable task) {
+				final Thread thread = new Thread(task, "config-lookup-" + threadCounter.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+
+}
@@ -0,0 +1,207 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+/**
+ * {@code PatchableDataProvider} holds its entries in a persistent hash trie and is updated
+ * by {@link DataPatch}es. Applying a patch copies only the trie nodes leading to the patched keys,
+ * so its cost depends on the size of the patch rather than on the number of entries, and the
+ * lookups see either none or all of its changes. Only the keys whose values have actually changed
+ * are reported to the listeners. A {@link ContentDigest} of the entries is maintained along the way,
+ * together with an index of keys in each of its buckets, so that the keys of buckets that differ
+ * from another digest can be listed without scanning all entries.
+ *
+ * <p>The version of the provider is the version of the last applied patch (0 initially). Patches
+ * with a version not higher than the current one are ignored, so a patch can be safely applied
+ * more than once.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class PatchableDataProvider implements EnumerableDataProvider, ObservableDataProvider, VersionedDataProvider {
+
+	private static final Object NULL_VALUE = new Object();
+
+	private final ChangeListenerSupport changeSupport;
+	private final ContentDigest digest;
+	private final List<Set<String>> bucketKeys;
+	private volatile PersistentStringMap entries;
+	private volatile long version;
+
+	public PatchableDataProvider(Map<String, ?> initialData) {
+		if (null == initialData) {
+			throw new NullPointerException();
+		}
+		PersistentStringMap initialEntries = PersistentStringMap.EMPTY;
+		this.digest = new ContentDigest();
+		this.bucketKeys = new ArrayList<Set<String>>(Collections.<Set<String>>nCopies(digest.getBucketCount(), null));
+		for (Map.Entry<String, ?> entry : initialData.entrySet()) {
+			initialEntries = initialEntries.with(entry.getKey(), wrap(entry.getValue()));
+			digest.add(entry.getKey(), entry.getValue());
+			indexKey(entry.getKey());
+		}
+		this.entries = initialEntries;
+		this.changeSupport = new ChangeListenerSupport(this);
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return null != entries.get(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return unwrap(entries.get(key));
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return entries.keySet();
+	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	/**
+	 * Returns a copy of the digest of current entries.
+	 */
+	public synchronized ContentDigest getContentDigest() {
+		return digest.copy();
+	}
+
+	/**
+	 * Returns the keys of entries that fall into the bucket of the {@linkplain #getContentDigest() digest}.
+	 *
+	 * @return sorted copy of the keys
+	 */
+	public synchronized SortedSet<String> getBucketKeys(int bucket) {
+		final Set<String> keys = bucketKeys.get(bucket);
+		return (null != keys) ? new TreeSet<String>(keys) : new TreeSet<String>();
+	}
+
+	/**
+	 * Applies the patch unless a patch of the same or higher version has already been applied.
+	 *
+	 * @return {@code true} if any entry has changed
+	 */
+	public boolean apply(DataPatch patch) {
+		if (null == patch) {
+			throw new NullPointerException();
+		}
+		final List<String> changedKeys = new ArrayList<String>(patch.getPuts().size() + patch.getRemovals().size());
+		synchronized (this) {
+			if (patch.getVersion() <= version) {
+				return false;
+			}
+			PersistentStringMap newEntries = entries;
+			for (Map.Entry<String, Object> put : patch.getPuts().entrySet()) {
+				final String key = put.getKey();
+				final Object newValue = wrap(put.getValue());
+				final Object oldValue = newEntries.get(key);
+				if (!MapDiff.equal(oldValue, newValue)) {
+					if (null != oldValue) {
+						digest.remove(key, unwrap(oldValue));
+					} else {
+						indexKey(key);
+					}
+					digest.add(key, put.getValue());
+					newEntries = newEntries.with(key, newValue);
+					changedKeys.add(key);
+				}
+			}
+			for (String key : patch.getRemovals()) {
+				final Object oldValue = newEntries.get(key);
+				if (null != oldValue) {
+					digest.remove(key, unwrap(oldValue));
+					unindexKey(key);
+					newEntries = newEntries.without(key);
+					changedKeys.add(key);
+				}
+			}
+			entries = newEntries;
+			version = patch.getVersion();
+		}
+		changeSupport.fireKeysChanged(changedKeys);
+		return !changedKeys.isEmpty();
+	}
+
+	public boolean apply(File patchFile) throws IOException {
+		return apply(DataPatch.read(patchFile));
+	}
+
+	private void indexKey(String key) {
+		final int bucket = digest.getBucket(key);
+		Set<String> keys = bucketKeys.get(bucket);
+		if (null == keys) {
+			keys = new HashSet<String>(4);
+			bucketKeys.set(bucket, keys);
+		}
+		keys.add(key);
+	}
+
+	private void unindexKey(String key) {
+		final int bucket = digest.getBucket(key);
+		final Set<String> keys = bucketKeys.get(bucket);
+		keys.remove(key);
+		if (keys.isEmpty()) {
+			bucketKeys.set(bucket, null);
+		}
+	}
+
+	private static Object wrap(Object value) {
+		return (null != value) ? value : NULL_VALUE;
+	}
+
+	private static Object unwrap(Object value) {
+		return (NULL_VALUE != value) ? value : null;
+	}
+
+}
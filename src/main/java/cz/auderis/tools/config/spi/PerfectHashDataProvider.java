@@ -0,0 +1,266 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * {@code PerfectHashDataProvider} is an immutable provider intended for large configuration sets
+ * that never change after they are loaded. At construction, a minimal perfect hash function is built
+ * over the keys (using the hash-and-displace method), so that every key maps to a distinct slot
+ * of flat key and value arrays. A lookup computes one hash and verifies the key stored in the slot;
+ * no per-entry objects are kept.
+ *
+ * <p>Construction takes time roughly proportional to the number of keys. The source map is
+ * not retained.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class PerfectHashDataProvider implements EnumerableDataProvider, VersionedDataProvider {
+
+	private static final int AVERAGE_BUCKET_SIZE = 4;
+	private static final int MAX_BUILD_ROUNDS = 32;
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+	private final String[] keys;
+	private final Object[] values;
+	private final int[] displacements;
+	private final long seed;
+	private final Set<String> keySet;
+
+	public PerfectHashDataProvider(Map<String, ?> dataSource) {
+		if (null == dataSource) {
+			throw new NullPointerException();
+		}
+		final int size = dataSource.size();
+		final String[] sourceKeys = new String[size];
+		final Object[] sourceValues = new Object[size];
+		int i = 0;
+		for (Map.Entry<String, ?> entry : dataSource.entrySet()) {
+			final String key = entry.getKey();
+			if (null == key) {
+				throw new NullPointerException("null key in data source");
+			}
+			sourceKeys[i] = key;
+			sourceValues[i] = entry.getValue();
+			++i;
+		}
+		this.keys = new String[size];
+		this.values = new Object[size];
+		this.displacements = new int[Math.max(1, size / AVERAGE_BUCKET_SIZE)];
+		long buildSeed = 0L;
+		int round = 0;
+		while (!build(sourceKeys, sourceValues, buildSeed)) {
+			if (++round == MAX_BUILD_ROUNDS) {
+				throw new IllegalArgumentException("unable to build perfect hash over " + size + " keys");
+			}
+			buildSeed += GOLDEN_GAMMA;
+		}
+		this.seed = buildSeed;
+		this.keySet = new KeySet();
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return -1 != slotOf(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int slot = slotOf(key);
+		return (-1 != slot) ? values[slot] : null;
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return keySet;
+	}
+
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	private int slotOf(String key) {
+		final int size = keys.length;
+		if (0 == size) {
+			return -1;
+		}
+		final long hash = hash(key, seed);
+		final int slot = slot(hash, displacements[bucket(hash)], size);
+		return key.equals(keys[slot]) ? slot : -1;
+	}
+
+	/**
+	 * Distributes keys into buckets and finds, for every bucket starting with the largest ones,
+	 * a displacement that maps all keys of the bucket to free slots.
+	 *
+	 * @return {@code false} if the hash function with the given seed is not usable for the keys
+	 */
+	private boolean build(String[] sourceKeys, Object[] sourceValues, long buildSeed) {
+		final int size = sourceKeys.length;
+		final int bucketCount = displacements.length;
+		final long[] hashes = new long[size];
+		final int[] bucketStart = new int[bucketCount + 1];
+		for (int i = 0; i < size; ++i) {
+			hashes[i] = hash(sourceKeys[i], buildSeed);
+			++bucketStart[bucket(hashes[i]) + 1];
+		}
+		int maxBucketSize = 0;
+		for (int b = 0; b < bucketCount; ++b) {
+			maxBucketSize = Math.max(maxBucketSize, bucketStart[b + 1]);
+			bucketStart[b + 1] += bucketStart[b];
+		}
+		// Group key indexes by bucket
+		final int[] members = new int[size];
+		final int[] fill = new int[bucketCount];
+		for (int i = 0; i < size; ++i) {
+			final int b = bucket(hashes[i]);
+			members[bucketStart[b] + fill[b]++] = i;
+		}
+		// Order buckets by decreasing size
+		final int[] sizeStart = new int[maxBucketSize + 2];
+		for (int b = 0; b < bucketCount; ++b) {
+			++sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b]) + 1];
+		}
+		for (int s = 0; s <= maxBucketSize; ++s) {
+			sizeStart[s + 1] += sizeStart[s];
+		}
+		final int[] bucketOrder = new int[bucketCount];
+		for (int b = 0; b < bucketCount; ++b) {
+			bucketOrder[sizeStart[maxBucketSize - (bucketStart[b + 1] - bucketStart[b])]++] = b;
+		}
+		final boolean[] occupied = new boolean[size];
+		final int[] bucketSlots = new int[maxBucketSize];
+		final int maxDisplacement = Math.max(1 << 16, 16 * size);
+		for (int b : bucketOrder) {
+			final int first = bucketStart[b];
+			final int count = bucketStart[b + 1] - first;
+			if (0 == count) {
+				break;
+			}
+			int displacement = 0;
+			while (!tryPlace(hashes, members, first, count, displacement, occupied, bucketSlots)) {
+				if (++displacement == maxDisplacement) {
+					return false;
+				}
+			}
+			displacements[b] = displacement;
+			for (int j = 0; j < count; ++j) {
+				final int slot = bucketSlots[j];
+				occupied[slot] = true;
+				keys[slot] = sourceKeys[members[first + j]];
+				values[slot] = sourceValues[members[first + j]];
+			}
+		}
+		return true;
+	}
+
+	private static boolean tryPlace(long[] hashes, int[] members, int first, int count, int displacement,
+									boolean[] occupied, int[] bucketSlots) {
+		final int size = occupied.length;
+		for (int j = 0; j < count; ++j) {
+			final int slot = slot(hashes[members[first + j]], displacement, size);
+			if (occupied[slot]) {
+				return false;
+			}
+			for (int k = 0; k < j; ++k) {
+				if (bucketSlots[k] == slot) {
+					return false;
+				}
+			}
+			bucketSlots[j] = slot;
+		}
+		return true;
+	}
+
+	private int bucket(long hash) {
+		return (int) ((hash >>> 1) % displacements.length);
+	}
+
+	private static int slot(long hash, int displacement, int size) {
+		return (int) ((mix(hash + displacement * GOLDEN_GAMMA) >>> 1) % size);
+	}
+
+	private static long hash(String key, long seed) {
+		long h = seed ^ 0xCBF29CE484222325L;
+		final int length = key.length();
+		for (int i = 0; i < length; ++i) {
+			h = (h ^ key.charAt(i)) * 0x100000001B3L;
+		}
+		return mix(h);
+	}
+
+	private static long mix(long h) {
+		h = (h ^ (h >>> 33)) * 0xFF51AFD7ED558CCDL;
+		h = (h ^ (h >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		return h ^ (h >>> 33);
+	}
+
+	final class KeySet extends AbstractSet<String> {
+		@Override
+		public int size() {
+			return keys.length;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return (o instanceof String) && (-1 != slotOf((String) o));
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			return new Iterator<String>() {
+				private int position;
+
+				@Override
+				public boolean hasNext() {
+					return position < keys.length;
+				}
+
+				@Override
+				public String next() {
+					if (position >= keys.length) {
+						throw new NoSuchElementException();
+					}
+					return keys[position++];
+				}
+
+				@Override
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+
+}
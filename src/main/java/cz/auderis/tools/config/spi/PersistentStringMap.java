@@ -0,0 +1,335 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * Immutable hash array mapped trie with textual keys. Adding or removing an entry copies only
+ * the nodes on the path to the entry (at most 7 of them), all other nodes are shared with the original
+ * map. Values must not be {@code null}.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class PersistentStringMap {
+
+	static final PersistentStringMap EMPTY = new PersistentStringMap(BitmapNode.EMPTY, 0);
+
+	private static final int BITS_PER_LEVEL = 5;
+
+	private final Node root;
+	private final int size;
+
+	private PersistentStringMap(Node root, int size) {
+		this.root = root;
+		this.size = size;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the value of the entry, {@code null} if there is no entry for the key.
+	 */
+	Object get(String key) {
+		return root.find(key, hash(key), 0);
+	}
+
+	PersistentStringMap with(String key, Object value) {
+		if ((null == key) || (null == value)) {
+			throw new NullPointerException();
+		}
+		final int hash = hash(key);
+		final Object oldValue = root.find(key, hash, 0);
+		if (value == oldValue) {
+			return this;
+		}
+		final Node newRoot = root.assoc(key, hash, 0, value);
+		return new PersistentStringMap(newRoot, (null == oldValue) ? (size + 1) : size);
+	}
+
+	PersistentStringMap without(String key) {
+		final int hash = hash(key);
+		if (null == root.find(key, hash, 0)) {
+			return this;
+		}
+		final Node newRoot = root.dissoc(key, hash, 0);
+		return new PersistentStringMap((null != newRoot) ? newRoot : BitmapNode.EMPTY, size - 1);
+	}
+
+	Set<String> keySet() {
+		return new AbstractSet<String>() {
+			@Override
+			public Iterator<String> iterator() {
+				return new KeyIterator(root);
+			}
+
+			@Override
+			public int size() {
+				return size;
+			}
+
+			@Override
+			public boolean contains(Object key) {
+				return (key instanceof String) && (null != get((String) key));
+			}
+		};
+	}
+
+	private static int hash(String key) {
+		// Spread the bits of String hash, its upper bits are weak for short keys
+		final int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
+	abstract static class Node {
+		/**
+		 * Pairs of key and value; a {@code null} key denotes that the value is a child node.
+		 */
+		final Object[] array;
+
+		Node(Object[] array) {
+			this.array = array;
+		}
+
+		abstract Object find(String key, int hash, int shift);
+
+		abstract Node assoc(String key, int hash, int shift, Object value);
+
+		/**
+		 * Returns the node without the key, {@code null} if the node became empty.
+		 */
+		abstract Node dissoc(String key, int hash, int shift);
+	}
+
+	static final class BitmapNode extends Node {
+		static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+		private final int bitmap;
+
+		BitmapNode(int bitmap, Object[] array) {
+			super(array);
+			this.bitmap = bitmap;
+		}
+
+		@Override
+		Object find(String key, int hash, int shift) {
+			final int bit = bitFor(hash, shift);
+			if (0 == (bitmap & bit)) {
+				return null;
+			}
+			final int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			final Object entryKey = array[index];
+			if (null == entryKey) {
+				return ((Node) array[index + 1]).find(key, hash, shift + BITS_PER_LEVEL);
+			}
+			return key.equals(entryKey) ? array[index + 1] : null;
+		}
+
+		@Override
+		Node assoc(String key, int hash, int shift, Object value) {
+			final int bit = bitFor(hash, shift);
+			final int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			if (0 == (bitmap & bit)) {
+				final Object[] newArray = new Object[array.length + 2];
+				System.arraycopy(array, 0, newArray, 0, index);
+				newArray[index] = key;
+				newArray[index + 1] = value;
+				System.arraycopy(array, index, newArray, index + 2, array.length - index);
+				return new BitmapNode(bitmap | bit, newArray);
+			}
+			final Object entryKey = array[index];
+			final Object entryValue = array[index + 1];
+			final Object[] newArray = array.clone();
+			if (null == entryKey) {
+				newArray[index + 1] = ((Node) entryValue).assoc(key, hash, shift + BITS_PER_LEVEL, value);
+			} else if (key.equals(entryKey)) {
+				newArray[index + 1] = value;
+			} else {
+				newArray[index] = null;
+				newArray[index + 1] = createNode((String) entryKey, entryValue, key, hash, value, shift + BITS_PER_LEVEL);
+			}
+			return new BitmapNode(bitmap, newArray);
+		}
+
+		@Override
+		Node dissoc(String key, int hash, int shift) {
+			final int bit = bitFor(hash, shift);
+			if (0 == (bitmap & bit)) {
+				return this;
+			}
+			final int index = 2 * Integer.bitCount(bitmap & (bit - 1));
+			final Object entryKey = array[index];
+			if (null == entryKey) {
+				final Node child = (Node) array[index + 1];
+				final Node newChild = child.dissoc(key, hash, shift + BITS_PER_LEVEL);
+				if (newChild == child) {
+					return this;
+				} else if (null != newChild) {
+					final Object[] newArray = array.clone();
+					newArray[index + 1] = newChild;
+					return new BitmapNode(bitmap, newArray);
+				}
+			} else if (!key.equals(entryKey)) {
+				return this;
+			}
+			if (bitmap == bit) {
+				return null;
+			}
+			final Object[] newArray = new Object[array.length - 2];
+			System.arraycopy(array, 0, newArray, 0, index);
+			System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+			return new BitmapNode(bitmap & ~bit, newArray);
+		}
+
+		private static int bitFor(int hash, int shift) {
+			return 1 << ((hash >>> shift) & 0x1F);
+		}
+
+		private static Node createNode(String key1, Object value1, String key2, int hash2, Object value2, int shift) {
+			final int hash1 = hash(key1);
+			if (hash1 == hash2) {
+				return new CollisionNode(hash1, new Object[] { key1, value1, key2, value2 });
+			}
+			return EMPTY.assoc(key1, hash1, shift, value1).assoc(key2, hash2, shift, value2);
+		}
+	}
+
+	static final class CollisionNode extends Node {
+		private final int hash;
+
+		CollisionNode(int hash, Object[] array) {
+			super(array);
+			this.hash = hash;
+		}
+
+		@Override
+		Object find(String key, int hash, int shift) {
+			final int index = indexOf(key);
+			return (index >= 0) ? array[index + 1] : null;
+		}
+
+		@Override
+		Node assoc(String key, int hash, int shift, Object value) {
+			if (hash != this.hash) {
+				// Push this node one level down, next to the new entry
+				final Node parent = new BitmapNode(BitmapNode.bitFor(this.hash, shift), new Object[] { null, this });
+				return parent.assoc(key, hash, shift, value);
+			}
+			final int index = indexOf(key);
+			final Object[] newArray;
+			if (index >= 0) {
+				newArray = array.clone();
+				newArray[index + 1] = value;
+			} else {
+				newArray = new Object[array.length + 2];
+				System.arraycopy(array, 0, newArray, 0, array.length);
+				newArray[array.length] = key;
+				newArray[array.length + 1] = value;
+			}
+			return new CollisionNode(hash, newArray);
+		}
+
+		@Override
+		Node dissoc(String key, int hash, int shift) {
+			final int index = indexOf(key);
+			if (index < 0) {
+				return this;
+			} else if (2 == array.length) {
+				return null;
+			}
+			final Object[] newArray = new Object[array.length - 2];
+			System.arraycopy(array, 0, newArray, 0, index);
+			System.arraycopy(array, index + 2, newArray, index, newArray.length - index);
+			return new CollisionNode(hash, newArray);
+		}
+
+		private int indexOf(String key) {
+			for (int i = 0; i < array.length; i += 2) {
+				if (key.equals(array[i])) {
+					return i;
+				}
+			}
+			return -1;
+		}
+	}
+
+	static final class KeyIterator implements Iterator<String> {
+		// Seven bitmap levels cover the 32-bit hash, a collision node may follow
+		private static final int MAX_DEPTH = 8;
+
+		private final Object[][] arrays;
+		private final int[] positions;
+		private int depth;
+		private String nextKey;
+
+		KeyIterator(Node root) {
+			this.arrays = new Object[MAX_DEPTH][];
+			this.positions = new int[MAX_DEPTH];
+			arrays[0] = root.array;
+			depth = 1;
+			advance();
+		}
+
+		@Override
+		public boolean hasNext() {
+			return null != nextKey;
+		}
+
+		@Override
+		public String next() {
+			if (null == nextKey) {
+				throw new NoSuchElementException();
+			}
+			final String result = nextKey;
+			advance();
+			return result;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+
+		private void advance() {
+			while (depth > 0) {
+				final Object[] array = arrays[depth - 1];
+				final int position = positions[depth - 1];
+				if (position >= array.length) {
+					arrays[--depth] = null;
+					continue;
+				}
+				positions[depth - 1] = position + 2;
+				if (null == array[position]) {
+					arrays[depth] = ((Node) array[position + 1]).array;
+					positions[depth] = 0;
+					++depth;
+				} else {
+					nextKey = (String) array[position];
+					return;
+				}
+			}
+			nextKey = null;
+		}
+	}
+
+}
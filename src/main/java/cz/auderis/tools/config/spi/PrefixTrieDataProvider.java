@@ -0,0 +1,315 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code PrefixTrieDataProvider} is an immutable provider that stores its keys in a compressed
+ * prefix tree (radix tree), so that prefixes shared by many keys are stored only once. Besides
+ * exact lookups, it can enumerate all keys starting with a prefix and provide a view of the sub-tree
+ * under a prefix. The view resolves keys relative to the prefix by continuing the descent from
+ * the position of the prefix in the tree, so no key concatenation takes place.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class PrefixTrieDataProvider implements EnumerableDataProvider, VersionedDataProvider {
+
+	private static final Node EMPTY_TREE = new Node("", 0);
+
+	private final Node root;
+	private final int rootOffset;
+	private final Set<String> keys;
+
+	public PrefixTrieDataProvider(Map<String, ?> dataSource) {
+		if (null == dataSource) {
+			throw new NullPointerException();
+		}
+		final String[] sortedKeys = dataSource.keySet().toArray(new String[dataSource.size()]);
+		for (String key : sortedKeys) {
+			if (null == key) {
+				throw new NullPointerException("null key in data source");
+			}
+		}
+		Arrays.sort(sortedKeys);
+		final Object[] values = new Object[sortedKeys.length];
+		for (int i = 0; i < sortedKeys.length; ++i) {
+			values[i] = dataSource.get(sortedKeys[i]);
+		}
+		this.root = (0 != sortedKeys.length) ? build(sortedKeys, values, 0, sortedKeys.length, 0) : EMPTY_TREE;
+		this.rootOffset = 0;
+		this.keys = new KeySet("");
+	}
+
+	private PrefixTrieDataProvider(Node root, int rootOffset) {
+		this.root = root;
+		this.rootOffset = rootOffset;
+		this.keys = new KeySet("");
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Node node = findEntry(key);
+		return (null != node) && node.terminal;
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Node node = findEntry(key);
+		return ((null != node) && node.terminal) ? node.value : null;
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return keys;
+	}
+
+	/**
+	 * Returns all keys starting with the given prefix. The returned keys include the prefix.
+	 */
+	public Set<String> getKeys(String prefix) {
+		if (null == prefix) {
+			throw new NullPointerException();
+		}
+		return new KeySet(prefix);
+	}
+
+	/**
+	 * Returns a view of entries whose keys start with the given prefix. Keys of the view
+	 * are relative to the prefix, i.e. the prefix is stripped from them.
+	 */
+	public PrefixTrieDataProvider getSubtree(String prefix) {
+		if (null == prefix) {
+			throw new NullPointerException();
+		}
+		final Position position = locate(prefix);
+		if (null == position) {
+			return new PrefixTrieDataProvider(EMPTY_TREE, 0);
+		}
+		return new PrefixTrieDataProvider(position.node, position.offset);
+	}
+
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	/**
+	 * Finds the node where the key ends exactly.
+	 */
+	private Node findEntry(String key) {
+		final int keyLength = key.length();
+		Node node = root;
+		int offset = rootOffset;
+		int i = 0;
+		while (true) {
+			final String label = node.label;
+			final int labelLength = label.length();
+			if (keyLength - i < labelLength - offset) {
+				return null;
+			}
+			while (offset < labelLength) {
+				if (key.charAt(i++) != label.charAt(offset++)) {
+					return null;
+				}
+			}
+			if (i == keyLength) {
+				return node;
+			}
+			node = node.child(key.charAt(i));
+			if (null == node) {
+				return null;
+			}
+			offset = 0;
+		}
+	}
+
+	/**
+	 * Finds the position where the prefix ends; the position may be in the middle of an edge.
+	 */
+	private Position locate(String prefix) {
+		final int prefixLength = prefix.length();
+		Node node = root;
+		int offset = rootOffset;
+		int i = 0;
+		while (true) {
+			final String label = node.label;
+			while (offset < label.length()) {
+				if (i == prefixLength) {
+					return new Position(node, offset);
+				} else if (prefix.charAt(i++) != label.charAt(offset++)) {
+					return null;
+				}
+			}
+			if (i == prefixLength) {
+				return new Position(node, offset);
+			}
+			node = node.child(prefix.charAt(i));
+			if (null == node) {
+				return null;
+			}
+			offset = 0;
+		}
+	}
+
+	private static Node build(String[] keys, Object[] values, int from, int to, int depth) {
+		final String first = keys[from];
+		final int end;
+		if (1 == to - from) {
+			end = first.length();
+		} else {
+			end = depth + commonPrefixLength(first, keys[to - 1], depth);
+		}
+		final Node node = new Node(first.substring(depth, end), to - from);
+		int i = from;
+		if (first.length() == end) {
+			// Sorted order guarantees that the key equal to the common prefix is the first one
+			node.terminal = true;
+			node.value = values[from];
+			++i;
+		}
+		final List<Node> children = new ArrayList<Node>();
+		while (i < to) {
+			final char c = keys[i].charAt(end);
+			int j = i + 1;
+			while ((j < to) && (c == keys[j].charAt(end))) {
+				++j;
+			}
+			children.add(build(keys, values, i, j, end));
+			i = j;
+		}
+		node.setChildren(children);
+		return node;
+	}
+
+	private static int commonPrefixLength(String a, String b, int start) {
+		final int limit = Math.min(a.length(), b.length());
+		int i = start;
+		while ((i < limit) && (a.charAt(i) == b.charAt(i))) {
+			++i;
+		}
+		return i - start;
+	}
+
+	private static void collectKeys(Node node, StringBuilder path, List<String> result) {
+		final int pathLength = path.length();
+		if (node.terminal) {
+			result.add(path.toString());
+		}
+		for (Node child : node.children) {
+			path.append(child.label);
+			collectKeys(child, path, result);
+			path.setLength(pathLength);
+		}
+	}
+
+	static final class Node {
+		private static final char[] NO_CHARS = new char[0];
+		private static final Node[] NO_NODES = new Node[0];
+
+		final String label;
+		final int entryCount;
+		boolean terminal;
+		Object value;
+		char[] childChars;
+		Node[] children;
+
+		Node(String label, int entryCount) {
+			this.label = label;
+			this.entryCount = entryCount;
+			this.childChars = NO_CHARS;
+			this.children = NO_NODES;
+		}
+
+		void setChildren(List<Node> childList) {
+			if (childList.isEmpty()) {
+				return;
+			}
+			children = childList.toArray(new Node[childList.size()]);
+			childChars = new char[children.length];
+			for (int i = 0; i < children.length; ++i) {
+				childChars[i] = children[i].label.charAt(0);
+			}
+		}
+
+		Node child(char c) {
+			final int index = Arrays.binarySearch(childChars, c);
+			return (index >= 0) ? children[index] : null;
+		}
+	}
+
+	static final class Position {
+		final Node node;
+		final int offset;
+
+		Position(Node node, int offset) {
+			this.node = node;
+			this.offset = offset;
+		}
+	}
+
+	final class KeySet extends AbstractSet<String> {
+		private final String prefix;
+
+		KeySet(String prefix) {
+			this.prefix = prefix;
+		}
+
+		@Override
+		public int size() {
+			final Position position = locate(prefix);
+			return (null != position) ? position.node.entryCount : 0;
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return (o instanceof String) && ((String) o).startsWith(prefix) && containsKey((String) o);
+		}
+
+		@Override
+		public Iterator<String> iterator() {
+			final Position position = locate(prefix);
+			if (null == position) {
+				return Collections.<String>emptySet().iterator();
+			}
+			final List<String> result = new ArrayList<String>(position.node.entryCount);
+			final StringBuilder path = new StringBuilder(prefix);
+			path.append(position.node.label, position.offset, position.node.label.length());
+			collectKeys(position.node, path, result);
+			return Collections.unmodifiableList(result).iterator();
+		}
+	}
+
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.ConfigurationDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@code ReadThroughCachingDataProvider} is a decorator for slow providers that remembers the result
+ * of every lookup. Concurrent lookups of a key that is not cached are collapsed into a single query
+ * of the delegate; the other threads wait for its result.
+ *
+ * <p>When a cached entry becomes older than the soft time-to-live, it is still returned, but a query
+ * of the delegate is started in the background to refresh it. Only entries older than the hard
+ * time-to-live are considered unusable and cause the caller to wait for the delegate. If the background
+ * refresh fails, the stale entry is kept and the refresh is attempted again on the next lookup.
+ * Refreshes run in the provided executor; if none is provided, a shared bounded pool of daemon
+ * threads is used.
+ * The number of delegate queries running at the same time is limited. Lookups are not affected
+ * by interrupts, the interrupt status of the calling thread is preserved.
+ *
+ * <p>When the cache is full, adding an entry evicts the least recently loaded of a small sample
+ * of other entries. Each sample continues where the previous one has stopped, so that all entries
+ * are eventually sampled.
+ *
+ * <p>If the delegate is {@link ObservableDataProvider observable}, the reported changes invalidate
+ * the affected entries and are propagated to listeners of this provider.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class ReadThroughCachingDataProvider implements ConfigurationDataProvider, ObservableDataProvider {
+
+	public static final int DEFAULT_CACHE_CAPACITY = 4096;
+	public static final int DEFAULT_MAX_CONCURRENT_LOADS = 4;
+
+	private static final Object ABSENT = new Object();
+	private static final int EVICTION_SAMPLE_SIZE = 16;
+
+	private final ConfigurationDataProvider delegate;
+	private final long softTtlNanos;
+	private final long hardTtlNanos;
+	private final int cacheCapacity;
+	private final Semaphore loadPermits;
+	private final Executor refreshExecutor;
+	private final ConcurrentMap<String, Entry> entries;
+	private final ConcurrentMap<String, LoadTask> pendingLoads;
+	private final AtomicLong invalidationCount;
+	private final ChangeListenerSupport changeSupport;
+	private final Object evictionLock;
+	private Iterator<Map.Entry<String, Entry>> evictionCursor;
+
+	public ReadThroughCachingDataProvider(ConfigurationDataProvider delegate, long softTtl, TimeUnit unit) {
+		this(delegate, softTtl, Long.MAX_VALUE, unit, DEFAULT_CACHE_CAPACITY, DEFAULT_MAX_CONCURRENT_LOADS,
+				BackgroundExecutor.INSTANCE);
+	}
+
+	public ReadThroughCachingDataProvider(ConfigurationDataProvider delegate, long softTtl, long hardTtl, TimeUnit unit,
+										  int cacheCapacity, int maxConcurrentLoads, Executor refreshExecutor) {
+		if ((null == delegate) || (null == unit) || (null == refreshExecutor)) {
+			throw new NullPointerException();
+		} else if ((softTtl < 0L) || (hardTtl < softTtl)) {
+			throw new IllegalArgumentException("invalid time-to-live: soft=" + softTtl + ", hard=" + hardTtl);
+		} else if (cacheCapacity <= 0) {
+			throw new IllegalArgumentException("invalid cache capacity: " + cacheCapacity);
+		} else if (maxConcurrentLoads <= 0) {
+			throw new IllegalArgumentException("invalid number of concurrent loads: " + maxConcurrentLoads);
+		}
+		this.delegate = delegate;
+		this.softTtlNanos = unit.toNanos(softTtl);
+		this.hardTtlNanos = unit.toNanos(hardTtl);
+		this.cacheCapacity = cacheCapacity;
+		this.loadPermits = new Semaphore(maxConcurrentLoads);
+		this.refreshExecutor = refreshExecutor;
+		this.entries = new ConcurrentHashMap<String, Entry>(Math.min(cacheCapacity, 256));
+		this.pendingLoads = new ConcurrentHashMap<String, LoadTask>();
+		this.invalidationCount = new AtomicLong();
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.evictionLock = new Object();
+		if (delegate instanceof ObservableDataProvider) {
+			((ObservableDataProvider) delegate).addChangeListener(new ConfigurationDataChangeListener() {
+				@Override
+				public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+					if (event.isFullReload()) {
+						invalidateAll();
+					} else {
+						for (String key : event.getChangedKeys()) {
+							invalidate(key);
+						}
+					}
+					changeSupport.fire(ConfigurationDataChangeEvent.derive(ReadThroughCachingDataProvider.this, event));
+				}
+			});
+		}
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return ABSENT != lookup(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Object value = lookup(key);
+		return (ABSENT != value) ? value : null;
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	/**
+	 * Discards the cached entry, so that the next lookup of the key queries the delegate.
+	 */
+	public void invalidate(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		invalidationCount.incrementAndGet();
+		entries.remove(key);
+	}
+
+	public void invalidateAll() {
+		invalidationCount.incrementAndGet();
+		entries.clear();
+	}
+
+	long currentTimeNanos() {
+		return System.nanoTime();
+	}
+
+	private Object lookup(String key) {
+		final Entry entry = entries.get(key);
+		if (null != entry) {
+			final long age = currentTimeNanos() - entry.loadTime;
+			if (age < softTtlNanos) {
+				return entry.value;
+			} else if (age < hardTtlNanos) {
+				startRefresh(key);
+				return entry.value;
+			}
+		}
+		final LoadTask task = getLoadTask(key);
+		// Run the load in the calling thread unless another thread is already running it (no-op then)
+		task.run();
+		try {
+			return awaitUninterruptibly(task).value;
+		} catch (ExecutionException e) {
+			final Throwable cause = e.getCause();
+			if (cause instanceof RuntimeException) {
+				throw (RuntimeException) cause;
+			} else if (cause instanceof Error) {
+				throw (Error) cause;
+			}
+			throw new ConfigurationDataException("lookup of key '" + key + "' failed", cause);
+		}
+	}
+
+	/**
+	 * Waits for the result of the load, keeping the interrupt status of the thread for its caller.
+	 */
+	private static Entry awaitUninterruptibly(LoadTask task) throws ExecutionException {
+		boolean interrupted = false;
+		try {
+			while (true) {
+				try {
+					return task.get();
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+		} finally {
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	private LoadTask getLoadTask(String key) {
+		final LoadTask pendingTask = pendingLoads.get(key);
+		if (null != pendingTask) {
+			return pendingTask;
+		}
+		final LoadTask newTask = new LoadTask(key);
+		final LoadTask concurrentTask = pendingLoads.putIfAbsent(key, newTask);
+		return (null != concurrentTask) ? concurrentTask : newTask;
+	}
+
+	private void startRefresh(String key) {
+		if (pendingLoads.containsKey(key)) {
+			return;
+		}
+		final LoadTask task = new LoadTask(key);
+		if (null != pendingLoads.putIfAbsent(key, task)) {
+			return;
+		}
+		try {
+			refreshExecutor.execute(task);
+		} catch (RejectedExecutionException e) {
+			// Keep serving the stale entry, the refresh will be attempted on the next lookup
+			pendingLoads.remove(key, task);
+		}
+	}
+
+	private Entry load(String key) {
+		final long invalidationMark = invalidationCount.get();
+		final Object value;
+		// The load is shared by all threads looking up the key, so an interrupt of one of them
+		// must not fail it; the interrupt status is preserved
+		loadPermits.acquireUninterruptibly();
+		try {
+			final long loadTime = currentTimeNanos();
+			if (delegate.containsKey(key)) {
+				value = delegate.getRawObject(key);
+			} else {
+				value = ABSENT;
+			}
+			final Entry entry = new Entry(value, loadTime);
+			// Do not cache a value that may predate a concurrent invalidation
+			if (invalidationMark == invalidationCount.get()) {
+				if ((null == entries.put(key, entry)) && (entries.size() > cacheCapacity)) {
+					evictEntry(key);
+				}
+			}
+			return entry;
+		} finally {
+			loadPermits.release();
+		}
+	}
+
+	/**
+	 * Removes the least recently loaded of a few sampled entries, other than the one just added.
+	 */
+	private void evictEntry(String addedKey) {
+		String victimKey = null;
+		Entry victim = null;
+		synchronized (evictionLock) {
+			int sampled = 0;
+			boolean restarted = false;
+			while (sampled < EVICTION_SAMPLE_SIZE) {
+				if ((null == evictionCursor) || !evictionCursor.hasNext()) {
+					// Wrap around, but at most once if the cache has been emptied meanwhile
+					if (restarted) {
+						break;
+					}
+					evictionCursor = entries.entrySet().iterator();
+					restarted = true;
+					continue;
+				}
+				final Map.Entry<String, Entry> candidate = evictionCursor.next();
+				final Entry candidateEntry = candidate.getValue();
+				if (addedKey.equals(candidate.getKey())) {
+					continue;
+				} else if ((null == victim) || (candidateEntry.loadTime - victim.loadTime < 0L)) {
+					victimKey = candidate.getKey();
+					victim = candidateEntry;
+				}
+				++sampled;
+			}
+		}
+		if (null != victim) {
+			entries.remove(victimKey, victim);
+		}
+	}
+
+	final class LoadTask extends FutureTask<Entry> {
+		private final String key;
+
+		LoadTask(final String key) {
+			super(new Callable<Entry>() {
+				@Override
+				public Entry call() {
+					return load(key);
+				}
+			});
+			this.key = key;
+		}
+
+		@Override
+		protected void done() {
+			pendingLoads.remove(key, this);
+		}
+	}
+
+	static final class Entry {
+		final Object value;
+		final long loadTime;
+
+		Entry(Object value, long loadTime) {
+			this.value = value;
+			this.loadTime = loadTime;
+		}
+	}
+
+}
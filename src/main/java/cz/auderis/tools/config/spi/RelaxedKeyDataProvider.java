@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+
+import java.util.Set;
+
+/**
+ * {@code RelaxedKeyDataProvider} is a decorator that binds keys to entries of the decorated provider
+ * regardless of letter case and word separators. For example {@code maxPoolSize}, {@code max-pool-size},
+ * {@code max_pool_size} and {@code MAX_POOL_SIZE} all refer to the same entry. Dots separate hierarchy
+ * levels and therefore are significant, i.e. {@code db.maxPoolSize} matches {@code DB.MAX_POOL_SIZE},
+ * but not {@code DB_MAX_POOL_SIZE}.
+ *
+ * <p>The index of canonical keys is built once from the keys of the decorated provider. A lookup
+ * computes a case-insensitive hash directly over the characters of the requested key, without creating
+ * a normalized copy. If several entries of the decorated provider are equivalent, an exact match
+ * takes precedence; otherwise the entry with the lexicographically lowest key is used.
+ *
+ * <p>If the decorated provider is {@link ObservableDataProvider observable}, the index is rebuilt after
+ * each reported change and the change is propagated as a full reload, as the spellings used by clients
+ * are not known.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class RelaxedKeyDataProvider implements EnumerableDataProvider, ObservableDataProvider {
+
+	private final EnumerableDataProvider delegate;
+	private final ChangeListenerSupport changeSupport;
+	private volatile RelaxedKeyIndex index;
+
+	public RelaxedKeyDataProvider(EnumerableDataProvider delegate) {
+		if (null == delegate) {
+			throw new NullPointerException();
+		}
+		this.delegate = delegate;
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.index = new RelaxedKeyIndex(delegate.getKeys());
+		if (delegate instanceof ObservableDataProvider) {
+			((ObservableDataProvider) delegate).addChangeListener(new ConfigurationDataChangeListener() {
+				@Override
+				public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+					synchronized (RelaxedKeyDataProvider.this) {
+						index = new RelaxedKeyIndex(RelaxedKeyDataProvider.this.delegate.getKeys());
+					}
+					changeSupport.fireFullReload();
+				}
+			});
+		}
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return -1 != index.find(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final RelaxedKeyIndex currentIndex = index;
+		final int slot = currentIndex.find(key);
+		if (-1 == slot) {
+			return null;
+		} else if (currentIndex.isAmbiguous(slot) && delegate.containsKey(key)) {
+			return delegate.getRawObject(key);
+		}
+		return delegate.getRawObject(currentIndex.keyAt(slot));
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return delegate.getKeys();
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+}
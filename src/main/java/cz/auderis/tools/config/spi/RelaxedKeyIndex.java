@@ -0,0 +1,152 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import java.util.Collection;
+
+/**
+ * Immutable open-addressing index that maps keys to their relaxed equivalents. Two keys are
+ * considered equivalent if they are equal when ignoring case and the separator characters
+ * {@code '-'} and {@code '_'}; dots are significant. The hash and the comparison are computed
+ * directly on the characters of the keys, so that lookups don't allocate.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+final class RelaxedKeyIndex {
+
+	private final String[] keys;
+	private final int[] hashes;
+	private final boolean[] ambiguous;
+	private final int mask;
+
+	RelaxedKeyIndex(Collection<String> sourceKeys) {
+		int capacity = 16;
+		while (capacity < 2 * sourceKeys.size()) {
+			capacity <<= 1;
+		}
+		this.keys = new String[capacity];
+		this.hashes = new int[capacity];
+		this.ambiguous = new boolean[capacity];
+		this.mask = capacity - 1;
+		for (String key : sourceKeys) {
+			insert(key);
+		}
+	}
+
+	/**
+	 * Finds the slot of a key equivalent to the argument.
+	 *
+	 * @return slot index, or -1 if there is no equivalent key
+	 */
+	int find(String key) {
+		final int hash = relaxedHash(key);
+		int slot = spread(hash) & mask;
+		while (true) {
+			final String candidate = keys[slot];
+			if (null == candidate) {
+				return -1;
+			} else if ((hash == hashes[slot]) && relaxedEquals(candidate, key)) {
+				return slot;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	String keyAt(int slot) {
+		return keys[slot];
+	}
+
+	/**
+	 * Determines whether multiple source keys are equivalent to the key in the slot.
+	 */
+	boolean isAmbiguous(int slot) {
+		return ambiguous[slot];
+	}
+
+	private void insert(String key) {
+		final int hash = relaxedHash(key);
+		int slot = spread(hash) & mask;
+		while (true) {
+			final String candidate = keys[slot];
+			if (null == candidate) {
+				keys[slot] = key;
+				hashes[slot] = hash;
+				return;
+			} else if ((hash == hashes[slot]) && relaxedEquals(candidate, key)) {
+				ambiguous[slot] = true;
+				// Keep the lowest key, so that the choice does not depend on iteration order
+				if (key.compareTo(candidate) < 0) {
+					keys[slot] = key;
+				}
+				return;
+			}
+			slot = (slot + 1) & mask;
+		}
+	}
+
+	static int relaxedHash(String key) {
+		int hash = 0;
+		final int length = key.length();
+		for (int i = 0; i < length; ++i) {
+			final char c = key.charAt(i);
+			if (!isIgnored(c)) {
+				hash = 31 * hash + foldCase(c);
+			}
+		}
+		return hash;
+	}
+
+	static boolean relaxedEquals(String a, String b) {
+		final int lengthA = a.length();
+		final int lengthB = b.length();
+		int i = 0;
+		int j = 0;
+		while (true) {
+			while ((i < lengthA) && isIgnored(a.charAt(i))) {
+				++i;
+			}
+			while ((j < lengthB) && isIgnored(b.charAt(j))) {
+				++j;
+			}
+			if ((i == lengthA) || (j == lengthB)) {
+				return (i == lengthA) && (j == lengthB);
+			} else if (foldCase(a.charAt(i)) != foldCase(b.charAt(j))) {
+				return false;
+			}
+			++i;
+			++j;
+		}
+	}
+
+	private static boolean isIgnored(char c) {
+		return ('-' == c) || ('_' == c);
+	}
+
+	private static char foldCase(char c) {
+		if (c < 128) {
+			return ((c >= 'A') && (c <= 'Z')) ? (char) (c + ('a' - 'A')) : c;
+		}
+		// Same folding as used by String.equalsIgnoreCase()
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+
+	private static int spread(int hash) {
+		return hash ^ (hash >>> 16);
+	}
+
+}
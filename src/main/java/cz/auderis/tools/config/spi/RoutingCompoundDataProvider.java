@@ -0,0 +1,193 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigKey;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@code RoutingCompoundDataProvider} is a variant of {@link CompoundDataProvider} intended
+ * for delegates that cannot list their contents. For every looked up key it remembers which delegate
+ * answered (or that no delegate did), so that repeated lookups, including the negative ones caused
+ * by alias probing, skip the delegates that are known not to contain the key.
+ *
+ * <p>Only {@link VersionedDataProvider versioned} delegates are ever skipped. Every remembered route
+ * carries the sum of versions of the delegates it passed; when any of them changes, the route is
+ * discarded and the key is resolved again. Delegates without versioning are always queried, as there
+ * is no way to tell whether their contents have changed.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class RoutingCompoundDataProvider extends CompoundDataProvider implements ObservableDataProvider {
+
+	public static final int DEFAULT_ROUTE_CACHE_CAPACITY = 4096;
+
+	private final ConfigurationDataProvider[] delegates;
+	private final VersionedDataProvider[] versionedDelegates;
+	private final ConcurrentMap<String, Route> routes;
+	private final int routeCacheCapacity;
+	private final ChangeListenerSupport changeSupport;
+
+	public RoutingCompoundDataProvider(ConfigurationDataProvider... providers) {
+		this(DEFAULT_ROUTE_CACHE_CAPACITY, providers);
+	}
+
+	public RoutingCompoundDataProvider(int routeCacheCapacity, ConfigurationDataProvider... providers) {
+		super(providers);
+		if (routeCacheCapacity <= 0) {
+			throw new IllegalArgumentException("invalid route cache capacity: " + routeCacheCapacity);
+		}
+		final List<ConfigurationDataProvider> delegateList = getDelegates();
+		this.delegates = delegateList.toArray(new ConfigurationDataProvider[delegateList.size()]);
+		this.versionedDelegates = new VersionedDataProvider[delegates.length];
+		for (int i = 0; i < delegates.length; ++i) {
+			if (delegates[i] instanceof VersionedDataProvider) {
+				versionedDelegates[i] = (VersionedDataProvider) delegates[i];
+			}
+		}
+		this.routes = new ConcurrentHashMap<String, Route>(Math.min(routeCacheCapacity, 256));
+		this.routeCacheCapacity = routeCacheCapacity;
+		this.changeSupport = new ChangeListenerSupport(this);
+		final ConfigurationDataChangeListener propagator = new ConfigurationDataChangeListener() {
+			@Override
+			public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+				changeSupport.fire(ConfigurationDataChangeEvent.derive(RoutingCompoundDataProvider.this, event));
+			}
+		};
+		for (ConfigurationDataProvider delegate : delegates) {
+			if (delegate instanceof ObservableDataProvider) {
+				((ObservableDataProvider) delegate).addChangeListener(propagator);
+			}
+		}
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return resolve(key) < delegates.length;
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final int index = resolve(key);
+		if (index < delegates.length) {
+			return delegates[index].getRawObject(key);
+		}
+		return null;
+	}
+
+	@Override
+	public boolean containsKey(ConfigKey key) {
+		// Lookup strategy of this class is based on textual keys
+		return containsKey(key.getName());
+	}
+
+	@Override
+	public Object getRawObject(ConfigKey key) {
+		return getRawObject(key.getName());
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	/**
+	 * Finds the delegate with the highest precedence that contains the key.
+	 *
+	 * @return index of the delegate; number of delegates if the key was not found
+	 */
+	private int resolve(String key) {
+		final Route route = routes.get(key);
+		if ((null != route) && (route.versionStamp == computeVersionStamp(route.delegateIndex))) {
+			// Versioned delegates preceding the route target are known not to contain the key,
+			// the others must be checked
+			for (int i = 0; i < route.delegateIndex; ++i) {
+				if ((null == versionedDelegates[i]) && delegates[i].containsKey(key)) {
+					return i;
+				}
+			}
+			final int target = route.delegateIndex;
+			if ((target == delegates.length) || (null != versionedDelegates[target])) {
+				return target;
+			} else if (delegates[target].containsKey(key)) {
+				return target;
+			}
+			// Unversioned target has lost the key, resolve the route again
+		}
+		// Version of each delegate must be read before the delegate is queried, so that
+		// a concurrent change can only make the stamp outdated, never too recent
+		long versionStamp = 0L;
+		int index = 0;
+		while (index < delegates.length) {
+			if (null != versionedDelegates[index]) {
+				versionStamp += versionedDelegates[index].getVersion();
+			}
+			if (delegates[index].containsKey(key)) {
+				break;
+			}
+			++index;
+		}
+		if (routes.size() >= routeCacheCapacity) {
+			// Crude but cheap eviction; the routes are easily recomputed
+			routes.clear();
+		}
+		routes.put(key, new Route(index, versionStamp));
+		return index;
+	}
+
+	private long computeVersionStamp(int lastDelegateIndex) {
+		final int limit = Math.min(lastDelegateIndex, delegates.length - 1);
+		long versionStamp = 0L;
+		for (int i = 0; i <= limit; ++i) {
+			if (null != versionedDelegates[i]) {
+				versionStamp += versionedDelegates[i].getVersion();
+			}
+		}
+		return versionStamp;
+	}
+
+	static final class Route {
+		final int delegateIndex;
+		final long versionStamp;
+
+		Route(int delegateIndex, long versionStamp) {
+			this.delegateIndex = delegateIndex;
+			this.versionStamp = versionStamp;
+		}
+	}
+
+}
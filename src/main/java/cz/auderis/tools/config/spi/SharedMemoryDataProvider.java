@@ -0,0 +1,225 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.zip.CRC32;
+
+/**
+ * {@code SharedMemoryDataProvider} reads configuration snapshots that another process publishes
+ * into a memory-mapped file using {@link SharedMemoryDataPublisher}. All processes on the host share
+ * the same physical pages, and lookups read the entries directly from the mapped file, so that
+ * a published snapshot becomes visible immediately without being copied into each process.
+ *
+ * <p>The file holds two regions; the publisher always writes into the one not being read and
+ * then switches them by updating a sequence number in the file header. Readers do not lock:
+ * a lookup is repeated if the sequence number shows that the region was overwritten
+ * in the meantime. Each snapshot carries its sequence number and a checksum of its payload;
+ * the first lookup after a switch verifies them, reading only the bytes of the new snapshot.
+ *
+ * <p>The Java memory model does not order accesses to a mapped buffer, nor does it cover other processes.
+ * Both the readers and the publisher therefore separate the accesses to the sequence number from
+ * the accesses to the data by an access to a volatile field: a volatile read after the sequence number
+ * is read, and a volatile write before it is read again (or written by the publisher). HotSpot compiles
+ * them into the memory fences that order the surrounding accesses on all supported platforms; without
+ * them, only a processor with total store order (such as x86) would keep the reads in order.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class SharedMemoryDataProvider implements VersionedDataProvider {
+
+	static final int MAGIC = 0x53484D43;
+	static final int FORMAT_VERSION = 2;
+	static final int SEQUENCE_OFFSET = 8;
+	static final int CAPACITY_OFFSET = 16;
+	static final int HEADER_SIZE = 64;
+	static final int REGION_HEADER_SIZE = 20;
+	private static final int MAX_READ_ATTEMPTS = 1000;
+	private static final Object ABSENT = new Object();
+
+	private final ByteBuffer data;
+	private final int regionCapacity;
+	private volatile long validatedBase;
+	private volatile int fence;
+
+	public SharedMemoryDataProvider(File file) throws IOException {
+		if (null == file) {
+			throw new NullPointerException();
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			final FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("not a shared configuration file: " + file);
+			}
+			this.data = channel.map(FileChannel.MapMode.READ_ONLY, 0L, channel.size());
+		} finally {
+			raf.close();
+		}
+		if ((MAGIC != data.getInt(0)) || (FORMAT_VERSION != data.getInt(4))) {
+			throw new IOException("not a shared configuration file: " + file);
+		}
+		this.regionCapacity = (int) data.getLong(CAPACITY_OFFSET);
+		if (data.capacity() < fileSize(regionCapacity)) {
+			throw new IOException("shared configuration file is truncated: " + file);
+		}
+		this.validatedBase = -1L;
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return ABSENT != lookup(key, false);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Object result = lookup(key, true);
+		return (ABSENT != result) ? result : null;
+	}
+
+	/**
+	 * Returns the number of snapshots published so far.
+	 */
+	@Override
+	public long getVersion() {
+		return data.getLong(SEQUENCE_OFFSET) >>> 1;
+	}
+
+	private Object lookup(String key, boolean fetchValue) {
+		for (int attempt = 0; attempt < MAX_READ_ATTEMPTS; ++attempt) {
+			// Even sequence number denotes a published snapshot; odd one means that the next snapshot
+			// is being written into the other region
+			final long base = readSequenceBeforeData() & ~1L;
+			if (0L == base) {
+				return ABSENT;
+			}
+			final int regionStart = regionStart(regionCapacity, base);
+			boolean completed = false;
+			Object result = ABSENT;
+			try {
+				if (isValid(base, regionStart)) {
+					final int position = CompactEntryTable.find(data, regionStart + REGION_HEADER_SIZE, key);
+					if (-1 != position) {
+						result = fetchValue ? CompactEntryTable.readValue(data, position) : null;
+					}
+					completed = true;
+				}
+			} catch (RuntimeException e) {
+				// Data has been overwritten during the lookup, unless the sequence number says otherwise
+				if (isStable(base)) {
+					throw e;
+				}
+			}
+			if (completed && isStable(base)) {
+				return result;
+			}
+			Thread.yield();
+		}
+		throw new ConfigurationDataException("unable to read consistent snapshot for key '" + key + "'");
+	}
+
+	/**
+	 * Checks that the region read since the sequence number was equal to the given base
+	 * has not been overwritten. The publisher starts to overwrite it only after it has published
+	 * the other region and started the next snapshot.
+	 */
+	private boolean isStable(long base) {
+		return readSequenceAfterData() - base < 3L;
+	}
+
+	/**
+	 * Reads the sequence number, so that the following reads of the data are not performed before it.
+	 */
+	private long readSequenceBeforeData() {
+		final long sequence = data.getLong(SEQUENCE_OFFSET);
+		// Volatile read prevents subsequent reads from moving before it
+		return sequence + fence;
+	}
+
+	/**
+	 * Reads the sequence number, so that the preceding reads of the data are not performed after it.
+	 */
+	private long readSequenceAfterData() {
+		// Volatile write is followed by a full fence
+		fence = 0;
+		return data.getLong(SEQUENCE_OFFSET);
+	}
+
+	private boolean isValid(long base, int regionStart) {
+		if (validatedBase == base) {
+			return true;
+		}
+		final int payloadLength = data.getInt(regionStart);
+		if ((payloadLength < 0) || (payloadLength > regionCapacity - REGION_HEADER_SIZE)) {
+			return false;
+		}
+		// Header left by an older snapshot in the same region is rejected without reading the payload
+		if (base != data.getLong(regionStart + 4)) {
+			return false;
+		}
+		final long expectedChecksum = data.getLong(regionStart + 12);
+		if ((checksum(data, base, regionStart + REGION_HEADER_SIZE, payloadLength) == expectedChecksum) && isStable(base)) {
+			validatedBase = base;
+			return true;
+		}
+		return false;
+	}
+
+	static int regionStart(int regionCapacity, long base) {
+		return HEADER_SIZE + (int) ((base >>> 1) & 1L) * regionCapacity;
+	}
+
+	static long fileSize(int regionCapacity) {
+		return HEADER_SIZE + 2L * regionCapacity;
+	}
+
+	/**
+	 * Computes the checksum of a snapshot, covering its sequence number and payload.
+	 */
+	static long checksum(ByteBuffer buffer, long base, int start, int length) {
+		final ByteBuffer view = buffer.duplicate();
+		view.limit(start + length);
+		view.position(start);
+		final byte[] chunk = new byte[Math.max(8, Math.min(length, 8192))];
+		final CRC32 crc = new CRC32();
+		for (int i = 0; i < 8; ++i) {
+			chunk[i] = (byte) (base >>> (56 - 8 * i));
+		}
+		crc.update(chunk, 0, 8);
+		while (view.hasRemaining()) {
+			final int count = Math.min(chunk.length, view.remaining());
+			view.get(chunk, 0, count);
+			crc.update(chunk, 0, count);
+		}
+		return crc.getValue();
+	}
+
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Map;
+
+/**
+ * {@code SharedMemoryDataPublisher} writes configuration snapshots into a memory-mapped file,
+ * from which they are read by {@link SharedMemoryDataProvider}s in the same or other processes.
+ * The size of a snapshot is limited by the region capacity given when the file is created.
+ * Only a single publisher may write into a file at a time.
+ *
+ * <p>An existing file is never resized, as other processes may have it mapped: a file with a different
+ * region capacity is refused, and a file that is not a shared configuration file is replaced
+ * by a new one.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class SharedMemoryDataPublisher {
+
+	private final ByteBuffer data;
+	private final int regionCapacity;
+	private volatile int fence;
+
+	public SharedMemoryDataPublisher(File file, int regionCapacity) throws IOException {
+		if (null == file) {
+			throw new NullPointerException();
+		} else if (regionCapacity <= SharedMemoryDataProvider.REGION_HEADER_SIZE) {
+			throw new IllegalArgumentException("invalid region capacity: " + regionCapacity);
+		}
+		final long fileSize = SharedMemoryDataProvider.fileSize(regionCapacity);
+		if (fileSize > Integer.MAX_VALUE) {
+			throw new IllegalArgumentException("region capacity too large: " + regionCapacity);
+		}
+		if (!isReusable(file, regionCapacity)) {
+			createFile(file, regionCapacity);
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			this.data = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0L, fileSize);
+		} finally {
+			raf.close();
+		}
+		this.regionCapacity = regionCapacity;
+	}
+
+	/**
+	 * Publishes a new snapshot. Values must be strings or {@code null}.
+	 *
+	 * @throws IllegalArgumentException if the snapshot does not fit into a region
+	 */
+	public synchronized void publish(Map<String, ?> entries) {
+		if (null == entries) {
+			throw new NullPointerException();
+		}
+		final long payloadLength = CompactEntryTable.requiredSize(entries);
+		if (payloadLength > regionCapacity - SharedMemoryDataProvider.REGION_HEADER_SIZE) {
+			throw new IllegalArgumentException("snapshot of " + payloadLength + " bytes exceeds region capacity");
+		}
+		// Odd number may be left by a publisher that has failed, the region is written again
+		final long base = data.getLong(SharedMemoryDataProvider.SEQUENCE_OFFSET) & ~1L;
+		final long nextBase = base + 2L;
+		final int regionStart = SharedMemoryDataProvider.regionStart(regionCapacity, nextBase);
+		data.putLong(SharedMemoryDataProvider.SEQUENCE_OFFSET, base + 1L);
+		// Volatile write orders the sequence number before the data (see SharedMemoryDataProvider)
+		fence = 0;
+		final int tableStart = regionStart + SharedMemoryDataProvider.REGION_HEADER_SIZE;
+		CompactEntryTable.write(data, tableStart, entries);
+		data.putInt(regionStart, (int) payloadLength);
+		data.putLong(regionStart + 4, nextBase);
+		data.putLong(regionStart + 12, SharedMemoryDataProvider.checksum(data, nextBase, tableStart, (int) payloadLength));
+		fence = 0;
+		data.putLong(SharedMemoryDataProvider.SEQUENCE_OFFSET, nextBase);
+	}
+
+	/**
+	 * Returns the number of snapshots published so far.
+	 */
+	public synchronized long getVersion() {
+		return data.getLong(SharedMemoryDataProvider.SEQUENCE_OFFSET) >>> 1;
+	}
+
+	/**
+	 * Checks whether the file is a shared configuration file that can be published into.
+	 *
+	 * @throws IOException if the file has a different region capacity
+	 */
+	private static boolean isReusable(File file, int regionCapacity) throws IOException {
+		if (!file.exists()) {
+			return false;
+		}
+		final RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			if ((raf.length() < SharedMemoryDataProvider.HEADER_SIZE)
+					|| (SharedMemoryDataProvider.MAGIC != raf.readInt())
+					|| (SharedMemoryDataProvider.FORMAT_VERSION != raf.readInt())) {
+				return false;
+			}
+			raf.seek(SharedMemoryDataProvider.CAPACITY_OFFSET);
+			final long existingCapacity = raf.readLong();
+			if ((existingCapacity != regionCapacity)
+					|| (raf.length() != SharedMemoryDataProvider.fileSize(regionCapacity))) {
+				throw new IOException("shared configuration file " + file + " has region capacity "
+						+ existingCapacity + ", requested " + regionCapacity);
+			}
+			return true;
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Creates an empty shared configuration file. It is prepared under a temporary name and renamed
+	 * into place, so that processes which have mapped the previous file keep their mapping intact.
+	 */
+	private static void createFile(File file, int regionCapacity) throws IOException {
+		final File tempFile = new File(file.getPath() + ".tmp");
+		final RandomAccessFile raf = new RandomAccessFile(tempFile, "rw");
+		try {
+			raf.setLength(0L);
+			raf.setLength(SharedMemoryDataProvider.fileSize(regionCapacity));
+			raf.writeInt(SharedMemoryDataProvider.MAGIC);
+			raf.writeInt(SharedMemoryDataProvider.FORMAT_VERSION);
+			raf.writeLong(0L);
+			raf.writeLong(regionCapacity);
+		} finally {
+			raf.close();
+		}
+		if (!tempFile.renameTo(file)) {
+			tempFile.delete();
+			throw new IOException("unable to create shared configuration file " + file);
+		}
+	}
+
+}
@@ -0,0 +1,397 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * {@code SnapshotBackedDataProvider} keeps the last known good contents of a slow provider in a local
+ * snapshot file. Whenever the delegate has been loaded or has reported a change, its entries are
+ * copied and written to the snapshot. If a valid snapshot exists when this provider is created, lookups
+ * are answered from it immediately and the delegate is loaded in the background; the differences
+ * are then reported to the listeners. Without a snapshot the delegate is loaded in the calling thread.
+ *
+ * <p>The snapshot holds values as text, so they are served as strings until the delegate is loaded;
+ * from then on lookups are answered by the delegate itself. Changes reported by the delegate update
+ * only the affected entries, and the snapshot is rewritten in the background. Background work runs
+ * in the provided executor; if none is provided, a shared bounded pool of daemon threads is used.
+ *
+ * <p>If the background load fails, the snapshot contents remain in use; the failure is available
+ * from {@link #getDelegateLoadFailure()}. Failures to write the snapshot do not affect lookups.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class SnapshotBackedDataProvider implements EnumerableDataProvider, ObservableDataProvider, VersionedDataProvider {
+
+	private static final int SNAPSHOT_MAGIC = 0x4346534E;
+	private static final String TEMP_FILE_SUFFIX = ".tmp";
+	private static final Object NULL_VALUE = new Object();
+
+	private final File snapshotFile;
+	private final Callable<? extends EnumerableDataProvider> delegateLoader;
+	private final Executor executor;
+	private final ChangeListenerSupport changeSupport;
+	private final AtomicBoolean snapshotWritePending;
+	private final Object snapshotLock;
+	private volatile PersistentStringMap entries;
+	private volatile EnumerableDataProvider delegate;
+	private volatile Throwable delegateLoadFailure;
+
+	public SnapshotBackedDataProvider(File snapshotFile, Callable<? extends EnumerableDataProvider> delegateLoader) {
+		this(snapshotFile, delegateLoader, BackgroundExecutor.INSTANCE);
+	}
+
+	public SnapshotBackedDataProvider(File snapshotFile, Callable<? extends EnumerableDataProvider> delegateLoader,
+									  Executor executor) {
+		if ((null == snapshotFile) || (null == delegateLoader) || (null == executor)) {
+			throw new NullPointerException();
+		}
+		this.snapshotFile = snapshotFile;
+		this.delegateLoader = delegateLoader;
+		this.executor = executor;
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.snapshotWritePending = new AtomicBoolean();
+		this.snapshotLock = new Object();
+		this.entries = readSnapshot();
+		if (null == entries) {
+			this.entries = PersistentStringMap.EMPTY;
+			loadDelegate();
+			if (null != delegateLoadFailure) {
+				throw new ConfigurationDataException("cannot load configuration data", delegateLoadFailure);
+			}
+			return;
+		}
+		try {
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					loadDelegate();
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			// Snapshot contents are served until the delegate can be loaded
+			delegateLoadFailure = e;
+		}
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final EnumerableDataProvider currentDelegate = delegate;
+		return (null != currentDelegate) ? currentDelegate.containsKey(key) : (null != entries.get(key));
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final EnumerableDataProvider currentDelegate = delegate;
+		return (null != currentDelegate) ? currentDelegate.getRawObject(key) : unwrap(entries.get(key));
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		final EnumerableDataProvider currentDelegate = delegate;
+		return (null != currentDelegate) ? currentDelegate.getKeys() : entries.keySet();
+	}
+
+	@Override
+	public long getVersion() {
+		return changeSupport.getVersion();
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	/**
+	 * Returns {@code true} when the entries come from the delegate rather than from the snapshot.
+	 */
+	public boolean isDelegateLoaded() {
+		return null != delegate;
+	}
+
+	public Throwable getDelegateLoadFailure() {
+		return delegateLoadFailure;
+	}
+
+	private void loadDelegate() {
+		final EnumerableDataProvider loadedDelegate;
+		try {
+			loadedDelegate = delegateLoader.call();
+			if (null == loadedDelegate) {
+				throw new NullPointerException("delegate loader returned null");
+			}
+		} catch (Exception e) {
+			delegateLoadFailure = e;
+			return;
+		}
+		if (loadedDelegate instanceof ObservableDataProvider) {
+			((ObservableDataProvider) loadedDelegate).addChangeListener(new ConfigurationDataChangeListener() {
+				@Override
+				public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+					delegateChanged(loadedDelegate, event);
+				}
+			});
+		}
+		final Set<String> changedKeys;
+		synchronized (this) {
+			final PersistentStringMap oldEntries = entries;
+			PersistentStringMap newEntries = PersistentStringMap.EMPTY;
+			for (String key : loadedDelegate.getKeys()) {
+				newEntries = newEntries.with(key, textOf(loadedDelegate.getRawObject(key)));
+			}
+			changedKeys = MapDiff.changedKeys(oldEntries, newEntries);
+			entries = newEntries;
+			delegate = loadedDelegate;
+		}
+		delegateLoadFailure = null;
+		if (!changedKeys.isEmpty() || !snapshotFile.exists()) {
+			// Loading runs either in the constructor or in the background already
+			writeSnapshotQuietly();
+		}
+		changeSupport.fireKeysChanged(changedKeys);
+	}
+
+	private void delegateChanged(EnumerableDataProvider source, ConfigurationDataChangeEvent event) {
+		boolean entriesChanged = false;
+		synchronized (this) {
+			PersistentStringMap newEntries = entries;
+			final Collection<String> affectedKeys = event.isFullReload() ? allKeys(source, newEntries) : event.getChangedKeys();
+			for (String key : affectedKeys) {
+				final Object oldText = newEntries.get(key);
+				if (!source.containsKey(key)) {
+					newEntries = newEntries.without(key);
+				} else {
+					final Object newText = textOf(source.getRawObject(key));
+					if (!MapDiff.equal(oldText, newText)) {
+						newEntries = newEntries.with(key, newText);
+					}
+				}
+			}
+			if (newEntries != entries) {
+				entries = newEntries;
+				entriesChanged = true;
+			}
+		}
+		if (entriesChanged) {
+			scheduleSnapshotWrite();
+		}
+		// Lookups are answered by the delegate, so its change is passed on even if the text is the same
+		changeSupport.fire(ConfigurationDataChangeEvent.derive(this, event));
+	}
+
+	private void scheduleSnapshotWrite() {
+		if (!snapshotWritePending.compareAndSet(false, true)) {
+			// Pending write will store the current entries
+			return;
+		}
+		final Runnable write = new Runnable() {
+			@Override
+			public void run() {
+				snapshotWritePending.set(false);
+				writeSnapshotQuietly();
+			}
+		};
+		try {
+			executor.execute(write);
+		} catch (RejectedExecutionException e) {
+			write.run();
+		}
+	}
+
+	private void writeSnapshotQuietly() {
+		synchronized (snapshotLock) {
+			try {
+				writeSnapshot(entries);
+			} catch (IOException e) {
+				// Lookups are not affected, the snapshot will be written after the next change
+			}
+		}
+	}
+
+	/**
+	 * Reads the snapshot file; returns {@code null} if it does not exist or is not valid.
+	 */
+	private PersistentStringMap readSnapshot() {
+		if (!snapshotFile.isFile()) {
+			return null;
+		}
+		try {
+			final SnapshotReader reader = new SnapshotReader(snapshotFile);
+			try {
+				return reader.read();
+			} finally {
+				reader.close();
+			}
+		} catch (IOException e) {
+			// Damaged or truncated snapshot is treated as missing
+			return null;
+		}
+	}
+
+	private void writeSnapshot(PersistentStringMap snapshot) throws IOException {
+		final File tempFile = new File(snapshotFile.getPath() + TEMP_FILE_SUFFIX);
+		final FileOutputStream fileOutput = new FileOutputStream(tempFile);
+		try {
+			final DataOutputStream output = new DataOutputStream(new BufferedOutputStream(fileOutput));
+			final CRC32 checksum = new CRC32();
+			output.writeInt(SNAPSHOT_MAGIC);
+			output.writeInt(snapshot.size());
+			for (String key : snapshot.keySet()) {
+				writeText(output, checksum, key);
+				writeText(output, checksum, (String) unwrap(snapshot.get(key)));
+			}
+			output.writeLong(checksum.getValue());
+			output.flush();
+			fileOutput.getFD().sync();
+		} finally {
+			fileOutput.close();
+		}
+		// Renaming over an existing file is not atomic on all platforms
+		if (!tempFile.renameTo(snapshotFile) && !(snapshotFile.delete() && tempFile.renameTo(snapshotFile))) {
+			throw new IOException("cannot replace snapshot file " + snapshotFile);
+		}
+	}
+
+	private static Collection<String> allKeys(EnumerableDataProvider source, PersistentStringMap currentEntries) {
+		final Set<String> result = new HashSet<String>(source.getKeys());
+		result.addAll(currentEntries.keySet());
+		return result;
+	}
+
+	private static Object textOf(Object value) {
+		return (null != value) ? value.toString() : NULL_VALUE;
+	}
+
+	private static Object unwrap(Object value) {
+		return (NULL_VALUE != value) ? value : null;
+	}
+
+	private static void writeText(DataOutputStream output, CRC32 checksum, String text) throws IOException {
+		if (null == text) {
+			output.writeInt(-1);
+			checksum.update(0xFF);
+			return;
+		}
+		final byte[] bytes = text.getBytes("UTF-8");
+		output.writeInt(bytes.length);
+		output.write(bytes);
+		checksum.update(bytes);
+		checksum.update(0);
+	}
+
+	/**
+	 * Reads the snapshot and checks that no declared length exceeds the rest of the file,
+	 * so that a damaged snapshot cannot cause a large allocation.
+	 */
+	private static final class SnapshotReader {
+		private final DataInputStream input;
+		private final CRC32 checksum;
+		private long remaining;
+
+		SnapshotReader(File file) throws IOException {
+			this.remaining = file.length();
+			this.input = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+			this.checksum = new CRC32();
+		}
+
+		PersistentStringMap read() throws IOException {
+			if (SNAPSHOT_MAGIC != readInt()) {
+				return null;
+			}
+			final int count = readInt();
+			// Every entry takes at least two length fields
+			if ((count < 0) || (count > remaining / 8L)) {
+				return null;
+			}
+			PersistentStringMap result = PersistentStringMap.EMPTY;
+			for (int i = 0; i < count; ++i) {
+				final String key = readText();
+				if (null == key) {
+					return null;
+				}
+				result = result.with(key, textOf(readText()));
+			}
+			if ((8L != remaining) || (checksum.getValue() != input.readLong())) {
+				return null;
+			}
+			return result;
+		}
+
+		void close() throws IOException {
+			input.close();
+		}
+
+		private int readInt() throws IOException {
+			if (remaining < 4L) {
+				throw new IOException("truncated snapshot");
+			}
+			remaining -= 4L;
+			return input.readInt();
+		}
+
+		private String readText() throws IOException {
+			final int length = readInt();
+			if (-1 == length) {
+				checksum.update(0xFF);
+				return null;
+			} else if ((length < 0) || (length > remaining)) {
+				throw new IOException("invalid text length " + length);
+			}
+			remaining -= length;
+			final byte[] bytes = new byte[length];
+			input.readFully(bytes);
+			checksum.update(bytes);
+			checksum.update(0);
+			return new String(bytes, "UTF-8");
+		}
+	}
+
+}
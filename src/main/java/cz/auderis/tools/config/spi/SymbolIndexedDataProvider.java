@@ -0,0 +1,120 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigKey;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.KeyedDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code SymbolIndexedDataProvider} is an immutable provider that stores values in an array indexed
+ * by identifiers of interned {@link ConfigKey}s. Lookups by {@link ConfigKey} are answered by a single
+ * array access; lookups by textual key additionally perform a probe into the symbol table.
+ *
+ * <p>The array spans the identifiers of the keys in the source map, so the provider is most compact
+ * when its keys are interned together, e.g. when it is created before the keys are used elsewhere.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class SymbolIndexedDataProvider implements KeyedDataProvider, EnumerableDataProvider, VersionedDataProvider {
+
+	private static final Object NULL_VALUE = new Object();
+
+	private final Object[] values;
+	private final int firstId;
+	private final Set<String> keys;
+
+	public SymbolIndexedDataProvider(Map<String, ?> dataSource) {
+		if (null == dataSource) {
+			throw new NullPointerException();
+		}
+		final int size = dataSource.size();
+		final ConfigKey[] symbols = new ConfigKey[size];
+		int minId = Integer.MAX_VALUE;
+		int maxId = -1;
+		int i = 0;
+		for (String key : dataSource.keySet()) {
+			final ConfigKey symbol = ConfigKey.of(key);
+			symbols[i++] = symbol;
+			minId = Math.min(minId, symbol.getId());
+			maxId = Math.max(maxId, symbol.getId());
+		}
+		this.firstId = (0 == size) ? 0 : minId;
+		this.values = new Object[(0 == size) ? 0 : (maxId - minId + 1)];
+		for (ConfigKey symbol : symbols) {
+			final Object value = dataSource.get(symbol.getName());
+			values[symbol.getId() - firstId] = (null != value) ? value : NULL_VALUE;
+		}
+		this.keys = Collections.unmodifiableSet(new HashSet<String>(dataSource.keySet()));
+	}
+
+	@Override
+	public boolean containsKey(ConfigKey key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return null != valueAt(key.getId());
+	}
+
+	@Override
+	public Object getRawObject(ConfigKey key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		final Object value = valueAt(key.getId());
+		return (NULL_VALUE != value) ? value : null;
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		final ConfigKey symbol = ConfigKey.lookup(key);
+		return (null != symbol) && containsKey(symbol);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		final ConfigKey symbol = ConfigKey.lookup(key);
+		return (null != symbol) ? getRawObject(symbol) : null;
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return keys;
+	}
+
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	private Object valueAt(int id) {
+		final int index = id - firstId;
+		if ((index < 0) || (index >= values.length)) {
+			return null;
+		}
+		return values[index];
+	}
+
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.RefreshableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * {@code SystemPropertySnapshotDataProvider} serves a copy of system properties taken at construction
+ * time or by the last {@link #refresh()}. Unlike {@link SystemPropertyDataProvider}, lookups don't touch
+ * the synchronized {@link Properties} table, so concurrent readers never contend for its lock.
+ *
+ * <p>Only properties with textual keys and values are copied, including the defaults of system
+ * properties. Changes made to system properties after the snapshot was taken become visible after
+ * the next refresh, which reports the changed keys to the registered listeners.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class SystemPropertySnapshotDataProvider implements EnumerableDataProvider, ObservableDataProvider,
+		VersionedDataProvider, RefreshableDataProvider {
+
+	private final ChangeListenerSupport changeSupport;
+	private volatile Map<String, String> snapshot;
+
+	public SystemPropertySnapshotDataProvider() {
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.snapshot = takeSnapshot();
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return snapshot.containsKey(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return snapshot.get(key);
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return snapshot.keySet();
+	}
+
+	@Override
+	public boolean refresh() {
+		final Set<String> changedKeys;
+		synchronized (this) {
+			final Map<String, String> newSnapshot = takeSnapshot();
+			changedKeys = MapDiff.changedKeys(snapshot, newSnapshot);
+			if (changedKeys.isEmpty()) {
+				return false;
+			}
+			snapshot = newSnapshot;
+		}
+		changeSupport.fireKeysChanged(changedKeys);
+		return true;
+	}
+
+	@Override
+	public long getVersion() {
+		return changeSupport.getVersion();
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	private static Map<String, String> takeSnapshot() {
+		// Cloning is performed atomically under the lock of system properties
+		final Properties properties = (Properties) System.getProperties().clone();
+		final Set<String> names = properties.stringPropertyNames();
+		final Map<String, String> result = new HashMap<String, String>(2 * names.size());
+		for (String name : names) {
+			final String value = properties.getProperty(name);
+			if (null != value) {
+				result.put(name, value);
+			}
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+}
@@ -0,0 +1,186 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.RefreshableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * {@code XmlPropertiesDataProvider} reads a file in the XML format of {@link java.util.Properties#loadFromXML}.
+ * The file is read by a streaming parser directly into an immutable map, without building a document
+ * tree; the document type declaration is not processed and no external entities are resolved.
+ *
+ * <p>{@link #refresh()} reads the file again if its size or modification time has changed
+ * and reports the changed keys to the listeners.
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class XmlPropertiesDataProvider implements EnumerableDataProvider, ObservableDataProvider,
+		VersionedDataProvider, RefreshableDataProvider {
+
+	private static final String ROOT_ELEMENT = "properties";
+	private static final String COMMENT_ELEMENT = "comment";
+	private static final String ENTRY_ELEMENT = "entry";
+	private static final String KEY_ATTRIBUTE = "key";
+
+	private final File file;
+	private final ChangeListenerSupport changeSupport;
+	private volatile Map<String, String> entries;
+	private long lastModified;
+	private long length;
+
+	public XmlPropertiesDataProvider(File file) {
+		if (null == file) {
+			throw new NullPointerException();
+		}
+		this.file = file;
+		this.changeSupport = new ChangeListenerSupport(this);
+		this.lastModified = file.lastModified();
+		this.length = file.length();
+		this.entries = load(file);
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return entries.containsKey(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		if (null == key) {
+			throw new NullPointerException();
+		}
+		return entries.get(key);
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return entries.keySet();
+	}
+
+	@Override
+	public boolean refresh() {
+		final Set<String> changedKeys;
+		synchronized (this) {
+			final long newLastModified = file.lastModified();
+			final long newLength = file.length();
+			if ((newLastModified == lastModified) && (newLength == length)) {
+				return false;
+			}
+			final Map<String, String> newEntries = load(file);
+			lastModified = newLastModified;
+			length = newLength;
+			changedKeys = MapDiff.changedKeys(entries, newEntries);
+			if (changedKeys.isEmpty()) {
+				return false;
+			}
+			entries = newEntries;
+		}
+		changeSupport.fireKeysChanged(changedKeys);
+		return true;
+	}
+
+	@Override
+	public long getVersion() {
+		return changeSupport.getVersion();
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+	static Map<String, String> load(File file) {
+		try {
+			final InputStream input = new BufferedInputStream(new FileInputStream(file));
+			try {
+				return parse(input);
+			} finally {
+				input.close();
+			}
+		} catch (IOException e) {
+			throw new ConfigurationDataException("cannot read " + file, e);
+		} catch (XMLStreamException e) {
+			throw new ConfigurationDataException("cannot parse " + file, e);
+		}
+	}
+
+	static Map<String, String> parse(InputStream input) throws XMLStreamException {
+		final XMLInputFactory factory = XMLInputFactory.newInstance();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, Boolean.FALSE);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, Boolean.TRUE);
+		final XMLStreamReader reader = factory.createXMLStreamReader(input);
+		try {
+			final Map<String, String> result = new HashMap<String, String>();
+			// Skip prolog, including the document type declaration
+			while (XMLStreamConstants.START_ELEMENT != reader.next()) {
+				if (XMLStreamConstants.END_DOCUMENT == reader.getEventType()) {
+					throw new XMLStreamException("root element missing", reader.getLocation());
+				}
+			}
+			if (!ROOT_ELEMENT.equals(reader.getLocalName())) {
+				throw new XMLStreamException("root element must be <" + ROOT_ELEMENT + ">", reader.getLocation());
+			}
+			while (XMLStreamConstants.START_ELEMENT == reader.nextTag()) {
+				final String elementName = reader.getLocalName();
+				if (ENTRY_ELEMENT.equals(elementName)) {
+					final String key = reader.getAttributeValue(null, KEY_ATTRIBUTE);
+					if (null == key) {
+						throw new XMLStreamException("entry without key", reader.getLocation());
+					}
+					result.put(key, reader.getElementText());
+				} else if (COMMENT_ELEMENT.equals(elementName)) {
+					reader.getElementText();
+				} else {
+					throw new XMLStreamException("unexpected element <" + elementName + ">", reader.getLocation());
+				}
+			}
+			return Collections.unmodifiableMap(result);
+		} finally {
+			reader.close();
+		}
+	}
+
+}
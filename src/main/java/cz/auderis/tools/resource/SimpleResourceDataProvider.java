@@ -16,9 +16,12 @@
 
 package cz.auderis.tools.resource;
 
-import cz.auderis.tools.config.ConfigurationDataProvider;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
 
+import java.util.Collections;
 import java.util.ResourceBundle;
+import java.util.Set;
 
 /**
  * {@code ResourceDataProvider}
@@ -26,7 +29,7 @@ import java.util.ResourceBundle;
  * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
  * @version 1.0
  */
-final class SimpleResourceDataProvider implements ConfigurationDataProvider {
+final class SimpleResourceDataProvider implements EnumerableDataProvider, VersionedDataProvider {
 
 	private final ResourceBundle resources;
 
@@ -50,4 +53,15 @@ final class SimpleResourceDataProvider implements ConfigurationDataProvider {
 		return resources.getObject(key);
 	}
 
+	@Override
+	public long getVersion() {
+		// Contents never change
+		return 0L;
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(resources.keySet());
+	}
+
 }
@@ -0,0 +1,135 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+/**
+ * {@code ConcurrentResolutionTest}
+ *
+ * @author Boleslav Bobcik &lt;bbobcik@gmail.com&gt;
+ * @version 1.0
+ */
+public class ConcurrentResolutionTest {
+
+	public interface TestDataObject {
+		StringBuilder getBuffer();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldResolveEntryOnceForConcurrentFirstReads() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final BlockingProvider data = new BlockingProvider(release);
+		final TestDataObject testObject = ConfigurationData.createConfigurationObject(data, TestDataObject.class);
+		final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; ++i) {
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					results.add(testObject.getBuffer());
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		data.started.await(5L, TimeUnit.SECONDS);
+		Thread.sleep(50L);
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000L);
+		}
+		assertThat(results.size(), is(8));
+		for (Object result : results) {
+			assertThat(result, sameInstance(results.get(0)));
+		}
+		assertThat(data.fetchCount.get(), is(1));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldKeepWaitingForResolutionWhenInterrupted() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final BlockingProvider data = new BlockingProvider(release);
+		final TestDataObject testObject = ConfigurationData.createConfigurationObject(data, TestDataObject.class);
+		final Thread resolver = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				testObject.getBuffer();
+			}
+		});
+		resolver.start();
+		data.started.await(5L, TimeUnit.SECONDS);
+		final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+		final Thread waiter = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				results.add(testObject.getBuffer());
+				results.add(Thread.currentThread().isInterrupted());
+			}
+		});
+		waiter.start();
+		Thread.sleep(50L);
+		waiter.interrupt();
+		Thread.sleep(50L);
+		release.countDown();
+		resolver.join(5000L);
+		waiter.join(5000L);
+		assertThat(results.size(), is(2));
+		assertThat(results.get(0).toString(), is("text"));
+		assertThat(results.get(1), is((Object) Boolean.TRUE));
+		assertThat(data.fetchCount.get(), is(1));
+	}
+
+	static final class BlockingProvider extends SingleItemDataProvider {
+		final AtomicInteger fetchCount = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release;
+
+		BlockingProvider(CountDownLatch release) {
+			super("buffer", "text");
+			this.release = release;
+		}
+
+		@Override
+		public Object getRawObject(String key) {
+			fetchCount.incrementAndGet();
+			started.countDown();
+			try {
+				release.await(5L, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			return super.getRawObject(key);
+		}
+	}
+
+}
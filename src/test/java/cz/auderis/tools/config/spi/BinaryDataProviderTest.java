@@ -0,0 +1,174 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationData;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.util.Currency;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.UUID;
+import java.util.regex.Pattern;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class BinaryDataProviderTest {
+
+	public interface TestDataObject {
+		int getPort();
+		long getLimit();
+		boolean isEnabled();
+		String getName();
+		String getCode();
+	}
+
+	public interface TranslatedDataObject {
+		byte getSmall();
+		short getMedium();
+		int getNumber();
+		Integer getBoxed();
+		boolean isFlag();
+		boolean isOtherFlag();
+		String getText();
+		Pattern getPattern();
+		UUID getUuid();
+		Currency getCurrency();
+		Class<?> getType();
+	}
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldStoreTypedValues() throws Exception {
+		final Map<String, Object> entries = new HashMap<String, Object>();
+		entries.put("port", "8080");
+		entries.put("limit", "-9000000000");
+		entries.put("enabled", "true");
+		entries.put("name", "server");
+		entries.put("code", "007");
+		entries.put("ratio", Double.valueOf(0.5));
+		entries.put("missing", null);
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BinaryConfigurationCompiler.compile(entries, output, true);
+		final BinaryDataProvider provider = new BinaryDataProvider(output.toByteArray());
+		assertThat(provider.size(), is(7));
+		assertThat(provider.getRawObject("port"), is((Object) Integer.valueOf(8080)));
+		assertThat(provider.getRawObject("limit"), is((Object) Long.valueOf(-9000000000L)));
+		assertThat(provider.getRawObject("enabled"), is((Object) Boolean.TRUE));
+		assertThat(provider.getRawObject("name"), is((Object) "server"));
+		assertThat(provider.getRawObject("code"), is((Object) "007"));
+		assertThat(provider.getRawObject("ratio"), is((Object) Double.valueOf(0.5)));
+		assertThat(provider.containsKey("missing"), is(true));
+		assertThat(provider.getRawObject("missing"), nullValue());
+		assertThat(provider.containsKey("other"), is(false));
+		final TestDataObject dataObject = ConfigurationData.createConfigurationObject(provider, TestDataObject.class);
+		assertThat(dataObject.getPort(), is(8080));
+		assertThat(dataObject.getLimit(), is(-9000000000L));
+		assertThat(dataObject.isEnabled(), is(true));
+		assertThat(dataObject.getName(), is("server"));
+		assertThat(dataObject.getCode(), is("007"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldTranslateLikeMapProvider() throws Exception {
+		final Map<String, Object> entries = new HashMap<String, Object>();
+		entries.put("small", "300");
+		entries.put("medium", "70000");
+		entries.put("number", "42");
+		entries.put("boxed", "-7");
+		entries.put("flag", "1");
+		entries.put("otherFlag", "true");
+		entries.put("text", "123");
+		entries.put("pattern", "123");
+		entries.put("uuid", "1");
+		entries.put("currency", "978");
+		entries.put("type", "0");
+		final File file = folder.newFile();
+		BinaryConfigurationCompiler.compile(entries, file);
+		final MapBasedDataProvider mapProvider = new MapBasedDataProvider(entries);
+		final BinaryDataProvider binaryProvider = new BinaryDataProvider(file);
+		for (boolean strict : new boolean[] { false, true }) {
+			final TranslatedDataObject expected = ConfigurationData.createConfigurationObject(mapProvider,
+					TranslatedDataObject.class, strict);
+			final TranslatedDataObject actual = ConfigurationData.createConfigurationObject(binaryProvider,
+					TranslatedDataObject.class, strict);
+			for (Method method : TranslatedDataObject.class.getMethods()) {
+				assertThat(method.getName() + (strict ? " (strict)" : ""), invoke(method, actual), is(invoke(method, expected)));
+			}
+		}
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldKeepTextWhenDetectionIsDisabled() throws Exception {
+		final Map<String, Object> entries = new HashMap<String, Object>();
+		entries.put("port", "8080");
+		entries.put("alias", "8080");
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BinaryConfigurationCompiler.compile(entries, output, false);
+		final BinaryDataProvider provider = new BinaryDataProvider(output.toByteArray());
+		assertThat(provider.getRawObject("port"), is((Object) "8080"));
+		assertThat(provider.getRawObject("alias"), is((Object) "8080"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldCompileProperties() throws Exception {
+		final Properties properties = new Properties();
+		properties.setProperty("a.b", "x");
+		properties.setProperty("a.c", "9223372036854775808");
+		final ByteArrayOutputStream output = new ByteArrayOutputStream();
+		BinaryConfigurationCompiler.compile(properties, output);
+		final BinaryDataProvider provider = new BinaryDataProvider(output.toByteArray());
+		assertThat(provider.getRawObject("a.b"), is((Object) "x"));
+		assertThat(provider.getRawObject("a.c"), is((Object) "9223372036854775808"));
+		properties.setProperty("a.d", "42");
+		final ByteArrayOutputStream typedOutput = new ByteArrayOutputStream();
+		BinaryConfigurationCompiler.compile(properties, typedOutput, true);
+		final BinaryDataProvider typedProvider = new BinaryDataProvider(typedOutput.toByteArray());
+		assertThat(typedProvider.getRawObject("a.d"), is((Object) Integer.valueOf(42)));
+		assertThat(typedProvider.getRawObject("a.c"), is((Object) "9223372036854775808"));
+	}
+
+	/**
+	 * Returns a comparable description of the result of the call: its value or the type of the failure.
+	 */
+	private static Object invoke(Method method, Object target) throws IllegalAccessException {
+		try {
+			final Object result = method.invoke(target);
+			return (result instanceof Pattern) ? ("pattern " + result) : result;
+		} catch (InvocationTargetException e) {
+			return "failure " + e.getCause().getClass().getName();
+		}
+	}
+
+}
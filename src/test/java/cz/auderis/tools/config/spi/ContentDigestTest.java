@@ -0,0 +1,123 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.junit.Assert.assertThat;
+
+public class ContentDigestTest {
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldNotDependOnEntryOrder() throws Exception {
+		final ContentDigest first = new ContentDigest();
+		final ContentDigest second = new ContentDigest();
+		for (int i = 0; i < 1000; ++i) {
+			first.add("key." + i, i);
+			second.add("key." + (999 - i), Integer.toString(999 - i));
+		}
+		assertThat(first, is(second));
+		assertThat(first.getRootDigest(), is(second.getRootDigest()));
+		assertThat(first.getDifferingBuckets(second).length, is(0));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldLocateDifferences() throws Exception {
+		final Map<String, Object> data = createData(5000);
+		final ContentDigest original = ContentDigest.of(new PatchableDataProvider(data));
+		data.put("key.42", "changed");
+		data.remove("key.4000");
+		final ContentDigest modified = ContentDigest.of(new PatchableDataProvider(data));
+		assertThat(modified.getRootDigest(), not(original.getRootDigest()));
+		final int[] expected = { modified.getBucket("key.42"), modified.getBucket("key.4000") };
+		Arrays.sort(expected);
+		assertThat(modified.getDifferingBuckets(original), is(expected));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldMaintainDigestOfPatchedProvider() throws Exception {
+		final Map<String, Object> data = createData(2000);
+		data.put("empty", null);
+		final PatchableDataProvider provider = new PatchableDataProvider(data);
+		final ContentDigest before = provider.getContentDigest();
+		assertThat(before, is(ContentDigest.of(provider)));
+		final Map<String, Object> puts = new HashMap<String, Object>();
+		puts.put("key.1", "one");
+		puts.put("empty", "filled");
+		puts.put("new", "value");
+		provider.apply(new DataPatch(1L, puts, Arrays.asList("key.2")));
+		final ContentDigest after = provider.getContentDigest();
+		assertThat(after, is(ContentDigest.of(provider)));
+		final int[] differingBuckets = after.getDifferingBuckets(before);
+		assertThat(differingBuckets.length <= 4, is(true));
+		// Changed keys are found among the keys of the differing buckets only
+		final Set<String> candidateKeys = new HashSet<String>();
+		for (int bucket : differingBuckets) {
+			candidateKeys.addAll(provider.getBucketKeys(bucket));
+		}
+		assertThat(candidateKeys.containsAll(Arrays.asList("key.1", "empty", "new")), is(true));
+		assertThat(candidateKeys.contains("key.2"), is(false));
+		assertThat(candidateKeys.size() < 10, is(true));
+		assertThat(provider.getBucketKeys(after.getBucket("key.2")).contains("key.2"), is(false));
+		assertThat(provider.getBucketKeys(after.getBucket("key.3")).contains("key.3"), is(true));
+		// Reverting the changes restores the original digest
+		final Map<String, Object> reverts = new HashMap<String, Object>();
+		reverts.put("key.1", "1");
+		reverts.put("key.2", "2");
+		reverts.put("empty", null);
+		provider.apply(new DataPatch(2L, reverts, Collections.singleton("new")));
+		assertThat(provider.getContentDigest(), is(before));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldSurviveSerialization() throws Exception {
+		final ContentDigest digest = ContentDigest.of(new PatchableDataProvider(createData(300)));
+		final ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+		digest.writeTo(new DataOutputStream(buffer));
+		final ContentDigest restored = ContentDigest.readFrom(new DataInputStream(new ByteArrayInputStream(buffer.toByteArray())));
+		assertThat(restored, is(digest));
+		assertThat(restored.getRootDigest(), is(digest.getRootDigest()));
+	}
+
+	private static Map<String, Object> createData(int size) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		for (int i = 0; i < size; ++i) {
+			result.put("key." + i, Integer.toString(i));
+		}
+		return result;
+	}
+
+}
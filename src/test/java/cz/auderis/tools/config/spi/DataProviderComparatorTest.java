@@ -0,0 +1,144 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationData;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataDiff;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.TreeSet;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class DataProviderComparatorTest {
+
+	public interface TestDataObject {
+		int getPort();
+		String getHost();
+		Integer getTimeout();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldFindDifferences() throws Exception {
+		final PatchableDataProvider oldProvider = new PatchableDataProvider(data("a", "1", "b", "2", "c", null, "d", null));
+		final PatchableDataProvider newProvider = new PatchableDataProvider(data("a", "1", "b", "20", "c", "3", "e", "5"));
+		final ConfigurationDataDiff diff = ConfigurationData.diff(oldProvider, newProvider);
+		assertThat(diff.getAddedKeys(), is(set("e")));
+		assertThat(diff.getRemovedKeys(), is(set("d")));
+		assertThat(diff.getChangedKeys(), is(set("b", "c")));
+		assertThat(diff.isEmpty(), is(false));
+		final ConfigurationDataChangeEvent event = diff.toChangeEvent(newProvider);
+		assertThat(event.getChangedKeys(), is((Object) new HashSet<String>(set("b", "c", "d", "e"))));
+		assertThat(ConfigurationData.diff(newProvider, newProvider).isEmpty(), is(true));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldCompareLargeProvidersInParallel() throws Exception {
+		final Map<String, Object> oldData = new HashMap<String, Object>();
+		for (int i = 0; i < 100000; ++i) {
+			oldData.put("key." + i, Integer.toString(i));
+		}
+		final Map<String, Object> newData = new HashMap<String, Object>(oldData);
+		newData.put("key.5", "five");
+		newData.put("key.99999", "last");
+		newData.remove("key.70000");
+		newData.put("extra", "x");
+		final ConfigurationDataDiff diff = DataProviderComparator.compare(new PatchableDataProvider(oldData),
+				new PatchableDataProvider(newData));
+		assertThat(diff.getAddedKeys(), is(set("extra")));
+		assertThat(diff.getRemovedKeys(), is(set("key.70000")));
+		assertThat(diff.getChangedKeys(), is(set("key.5", "key.99999")));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldLimitChunksHandedToExecutor() throws Exception {
+		final Map<String, Object> data = new HashMap<String, Object>();
+		for (int i = 0; i < 200000; ++i) {
+			data.put("key." + i, Integer.toString(i));
+		}
+		final List<Future<?>> submitted = new ArrayList<Future<?>>();
+		final int[] maxPending = { 0 };
+		final ExecutorService pool = Executors.newCachedThreadPool();
+		try {
+			final Executor executor = new Executor() {
+				@Override
+				public synchronized void execute(Runnable command) {
+					submitted.add((Future<?>) command);
+					int pending = 0;
+					for (Future<?> task : submitted) {
+						if (!task.isDone()) {
+							++pending;
+						}
+					}
+					maxPending[0] = Math.max(maxPending[0], pending);
+					pool.execute(command);
+				}
+			};
+			final ConfigurationDataDiff diff = DataProviderComparator.compare(new PatchableDataProvider(data),
+					new PatchableDataProvider(data), executor);
+			assertThat(diff.isEmpty(), is(true));
+		} finally {
+			pool.shutdown();
+		}
+		assertThat(maxPending[0] <= Math.max(0, Runtime.getRuntime().availableProcessors() - 1), is(true));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldCompareConfigurationObjects() throws Exception {
+		final TestDataObject oldObject = ConfigurationData.createConfigurationObject(
+				new PatchableDataProvider(data("port", "80", "host", "a.example", "timeout", "5")), TestDataObject.class);
+		final TestDataObject newObject = ConfigurationData.createConfigurationObject(
+				new PatchableDataProvider(data("port", "0080", "host", "b.example")), TestDataObject.class);
+		final ConfigurationDataDiff diff = ConfigurationData.diff(TestDataObject.class, oldObject, newObject);
+		// Port differs in text only, the translated values are equal
+		assertThat(diff.getChangedKeys(), is(set("getHost")));
+		assertThat(diff.getRemovedKeys(), is(set("getTimeout")));
+		assertThat(diff.getAddedKeys().isEmpty(), is(true));
+	}
+
+	private static Map<String, Object> data(Object... keysAndValues) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			result.put((String) keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return result;
+	}
+
+	private static SortedSet<String> set(String... items) {
+		return new TreeSet<String>(Arrays.asList(items));
+	}
+
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class DirectoryDataProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File directory;
+
+	@Before
+	public void initDirectory() throws Exception {
+		directory = folder.newFolder();
+		write("db.url", "jdbc:h2:mem");
+		write("password", "secret\n");
+		write("nested/timeout", "30");
+		write("..ignored", "x");
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldMapFilesToKeys() throws Exception {
+		final DirectoryDataProvider provider = new DirectoryDataProvider(directory);
+		assertThat(provider.getKeys(), is((Object) new HashSet<String>(Arrays.asList("db.url", "password", "nested.timeout"))));
+		assertThat(provider.getRawObject("password"), is((Object) "secret\n"));
+		assertThat(provider.getRawObject("nested.timeout"), is((Object) "30"));
+		assertThat(provider.containsKey("..ignored"), is(false));
+		assertThat(provider.getRawObject("missing"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldReportChangesOfReadEntries() throws Exception {
+		final DirectoryDataProvider provider = new DirectoryDataProvider(directory);
+		final List<ConfigurationDataChangeEvent> events = new ArrayList<ConfigurationDataChangeEvent>();
+		provider.addChangeListener(new ConfigurationDataChangeListener() {
+			@Override
+			public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+				events.add(event);
+			}
+		});
+		assertThat(provider.getRawObject("db.url"), is((Object) "jdbc:h2:mem"));
+		assertThat(provider.refresh(), is(false));
+		write("db.url", "jdbc:h2:file");
+		write("password", "changed, but never read");
+		write("added", "1");
+		assertThat(new File(directory, "nested/timeout").delete(), is(true));
+		final long version = provider.getVersion();
+		assertThat(provider.refresh(), is(true));
+		assertThat(provider.getRawObject("db.url"), is((Object) "jdbc:h2:file"));
+		assertThat(provider.getRawObject("added"), is((Object) "1"));
+		assertThat(provider.containsKey("nested.timeout"), is(false));
+		assertThat(events.size(), is(1));
+		assertThat(new HashSet<String>(events.get(0).getChangedKeys()), is(new HashSet<String>(Arrays.asList("db.url", "added", "nested.timeout"))));
+		assertThat(provider.getVersion() > version, is(true));
+	}
+
+	private void write(String path, String content) throws Exception {
+		final File file = new File(directory, path);
+		file.getParentFile().mkdirs();
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import com.google.common.collect.ImmutableMap;
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationData;
+import cz.auderis.tools.config.annotation.ConfigurationEntries;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Locale;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class EnvironmentDataProviderTest {
+
+	@ConfigurationEntries(prefix = "db")
+	public interface DatabaseConfig {
+		int maxPoolSize();
+		String url();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldMapVariablesToDottedAndCamelCaseKeys() throws Exception {
+		final EnvironmentDataProvider provider = new EnvironmentDataProvider(ImmutableMap.of("FOO_BAR_BAZ", "x"), null);
+		assertThat(provider.getRawObject("FOO_BAR_BAZ"), is((Object) "x"));
+		assertThat(provider.getRawObject("foo.bar.baz"), is((Object) "x"));
+		assertThat(provider.getRawObject("fooBarBaz"), is((Object) "x"));
+		assertThat(provider.getRawObject("foo.barBaz"), is((Object) "x"));
+		assertThat(provider.getRawObject("fooBar.baz"), is((Object) "x"));
+		assertThat(provider.containsKey("foo.bar"), is(false));
+		assertThat(provider.getKeys().size(), is(5));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldDeriveKeysIndependentlyOfDefaultLocale() throws Exception {
+		final Locale defaultLocale = Locale.getDefault();
+		Locale.setDefault(new Locale("tr", "TR"));
+		try {
+			final EnvironmentDataProvider provider = new EnvironmentDataProvider(ImmutableMap.of("FILE_ID", "x"), null);
+			assertThat(provider.getRawObject("file.id"), is((Object) "x"));
+			assertThat(provider.getRawObject("fileId"), is((Object) "x"));
+		} finally {
+			Locale.setDefault(defaultLocale);
+		}
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldLimitCombinationsBySegmentCount() throws Exception {
+		final EnvironmentDataProvider combined = new EnvironmentDataProvider(ImmutableMap.of("A_B_C_D_E_F_G", "x"), null);
+		assertThat(combined.getKeys().size(), is(1 + 64));
+		final EnvironmentDataProvider limited = new EnvironmentDataProvider(ImmutableMap.of("A_B_C_D_E_F_G_H", "x"), null);
+		assertThat(limited.getKeys().size(), is(1 + 2));
+		assertThat(limited.getRawObject("a.b.c.d.e.f.g.h"), is((Object) "x"));
+		assertThat(limited.getRawObject("aBCDEFGH"), is((Object) "x"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldPreferOriginalVariableNames() throws Exception {
+		final EnvironmentDataProvider provider = new EnvironmentDataProvider(
+				ImmutableMap.of("foo.bar", "original", "FOO_BAR", "derived"), null);
+		assertThat(provider.getRawObject("foo.bar"), is((Object) "original"));
+		assertThat(provider.getRawObject("fooBar"), is((Object) "derived"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldStripVariablePrefix() throws Exception {
+		final EnvironmentDataProvider provider = new EnvironmentDataProvider(
+				ImmutableMap.of("MYAPP_DB_MAX_POOL_SIZE", "25", "MYAPP_DB_URL", "jdbc:x", "OTHER_DB_URL", "jdbc:y"), "MYAPP_");
+		assertThat(provider.getRawObject("MYAPP_DB_URL"), nullValue());
+		final DatabaseConfig config = ConfigurationData.createConfigurationObject(provider, DatabaseConfig.class);
+		assertThat(config.maxPoolSize(), is(25));
+		assertThat(config.url(), is("jdbc:x"));
+	}
+
+}
@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class HttpPollingDataProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private HttpServer server;
+	private URL url;
+	private volatile String document;
+	private volatile String documentTag;
+	private volatile int fullResponses;
+	private volatile int notModifiedResponses;
+
+	@Before
+	public void startServer() throws Exception {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/config", new HttpHandler() {
+			@Override
+			public void handle(HttpExchange exchange) throws IOException {
+				if (documentTag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+					++notModifiedResponses;
+					exchange.sendResponseHeaders(304, -1);
+				} else {
+					++fullResponses;
+					final byte[] body = document.getBytes("ISO-8859-1");
+					exchange.getResponseHeaders().set("ETag", documentTag);
+					exchange.sendResponseHeaders(200, body.length);
+					final OutputStream output = exchange.getResponseBody();
+					output.write(body);
+					output.close();
+				}
+				exchange.close();
+			}
+		});
+		server.start();
+		url = new URL("http://127.0.0.1:" + server.getAddress().getPort() + "/config");
+		document = "a=1\nb=2\n";
+		documentTag = "\"v1\"";
+	}
+
+	@After
+	public void stopServer() throws Exception {
+		if (null != server) {
+			server.stop(0);
+		}
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRevalidateDocument() throws Exception {
+		final HttpPollingDataProvider provider = new HttpPollingDataProvider(url, null);
+		assertThat(provider.containsKey("a"), is(false));
+		assertThat(provider.refresh(), is(true));
+		assertThat(provider.getRawObject("a"), is((Object) "1"));
+		assertThat(provider.refresh(), is(false));
+		assertThat(fullResponses, is(1));
+		assertThat(notModifiedResponses, is(1));
+		document = "a=3\n";
+		documentTag = "\"v2\"";
+		final long version = provider.getVersion();
+		assertThat(provider.refresh(), is(true));
+		assertThat(provider.getRawObject("a"), is((Object) "3"));
+		assertThat(provider.containsKey("b"), is(false));
+		assertThat(provider.getVersion() > version, is(true));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldStartWithLastKnownGoodDocument() throws Exception {
+		final File cacheFile = new File(folder.getRoot(), "config.properties");
+		new HttpPollingDataProvider(url, cacheFile).refresh();
+		server.stop(0);
+		server = null;
+		final HttpPollingDataProvider provider = new HttpPollingDataProvider(url, cacheFile, 500, 500);
+		assertThat(provider.getRawObject("b"), is((Object) "2"));
+		try {
+			provider.refresh();
+			throw new AssertionError("refresh should fail");
+		} catch (ConfigurationDataException e) {
+			// Expected
+		}
+		assertThat(provider.getRawObject("b"), is((Object) "2"));
+		assertThat(provider.getRawObject("c"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRevalidateCachedDocument() throws Exception {
+		final File cacheFile = new File(folder.getRoot(), "config.properties");
+		new HttpPollingDataProvider(url, cacheFile).refresh();
+		final HttpPollingDataProvider provider = new HttpPollingDataProvider(url, cacheFile);
+		assertThat(provider.refresh(), is(false));
+		assertThat(fullResponses, is(1));
+		assertThat(notModifiedResponses, is(1));
+	}
+
+}
@@ -0,0 +1,141 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * In-process stand-in for a database holding a single configuration table. It does not parse SQL;
+ * a statement with a parameter is treated as the version query, the others as the full query.
+ * Executed statements are recorded, so that tests can check the exact SQL text.
+ */
+public class InMemoryConfigTable {
+
+	private final List<Object[]> rows = new ArrayList<Object[]>();
+	private final List<String> executedQueries = new ArrayList<String>();
+
+	public synchronized void insert(String key, String value, long version) {
+		rows.add(new Object[] { key, value, Long.valueOf(version) });
+	}
+
+	public synchronized void delete(String key) {
+		for (int i = rows.size() - 1; i >= 0; --i) {
+			if (key.equals(rows.get(i)[0])) {
+				rows.remove(i);
+			}
+		}
+	}
+
+	public synchronized int getQueryCount() {
+		return executedQueries.size();
+	}
+
+	public synchronized List<String> getExecutedQueries() {
+		return new ArrayList<String>(executedQueries);
+	}
+
+	public DataSource getDataSource() {
+		return proxy(DataSource.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if ("getConnection".equals(method.getName())) {
+					return createConnection();
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private Object createConnection() {
+		return proxy(java.sql.Connection.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if ("prepareStatement".equals(method.getName())) {
+					return createStatement((String) args[0]);
+				} else if ("close".equals(method.getName())) {
+					return null;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private Object createStatement(final String sql) {
+		final Long[] minVersion = { null };
+		return proxy(java.sql.PreparedStatement.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				if ("setLong".equals(method.getName())) {
+					if (1 != ((Integer) args[0]).intValue()) {
+						throw new IllegalArgumentException("invalid parameter index " + args[0]);
+					}
+					minVersion[0] = (Long) args[1];
+					return null;
+				} else if ("executeQuery".equals(method.getName())) {
+					if (sql.contains("?") != (null != minVersion[0])) {
+						throw new IllegalStateException("parameters do not match query: " + sql);
+					}
+					return createResultSet(select(sql, (null != minVersion[0]) ? minVersion[0].longValue() : Long.MIN_VALUE));
+				} else if ("close".equals(method.getName())) {
+					return null;
+				}
+				throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private synchronized List<Object[]> select(String sql, long minVersion) {
+		executedQueries.add(sql);
+		final List<Object[]> result = new ArrayList<Object[]>();
+		for (Object[] row : rows) {
+			if (((Long) row[2]).longValue() > minVersion) {
+				result.add(row);
+			}
+		}
+		return result;
+	}
+
+	private Object createResultSet(final List<Object[]> result) {
+		final int[] position = { -1 };
+		return proxy(java.sql.ResultSet.class, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) {
+				final String name = method.getName();
+				if ("next".equals(name)) {
+					return Boolean.valueOf(++position[0] < result.size());
+				} else if ("getString".equals(name)) {
+					return result.get(position[0])[((Integer) args[0]).intValue() - 1];
+				} else if ("getLong".equals(name)) {
+					return result.get(position[0])[((Integer) args[0]).intValue() - 1];
+				} else if ("close".equals(name)) {
+					return null;
+				}
+				throw new UnsupportedOperationException(name);
+			}
+		});
+	}
+
+	private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+		return type.cast(Proxy.newProxyInstance(InMemoryConfigTable.class.getClassLoader(), new Class<?>[] { type }, handler));
+	}
+
+}
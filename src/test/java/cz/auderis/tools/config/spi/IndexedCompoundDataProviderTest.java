@@ -0,0 +1,89 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import com.google.common.collect.ImmutableMap;
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataProvider;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static cz.auderis.tools.config.SingleItemDataProvider.itemProvider;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class IndexedCompoundDataProviderTest {
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldPreserveDelegatePrecedence() throws Exception {
+		final ConfigurationDataProvider top = new MapBasedDataProvider(ImmutableMap.of("a", "top", "b", "top"));
+		final ConfigurationDataProvider middle = itemProvider("b", "middle");
+		final ConfigurationDataProvider bottom = new MapBasedDataProvider(ImmutableMap.of("a", "bottom", "b", "bottom", "c", "bottom"));
+		final IndexedCompoundDataProvider provider = new IndexedCompoundDataProvider(top, middle, bottom);
+		assertThat(provider.getRawObject("a"), is((Object) "top"));
+		assertThat(provider.getRawObject("b"), is((Object) "top"));
+		assertThat(provider.getRawObject("c"), is((Object) "bottom"));
+		assertThat(provider.containsKey("d"), is(false));
+		assertThat(provider.getRawObject("d"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldKeepNullValuesDistinctFromMissingKeys() throws Exception {
+		final MutableMapDataProvider top = new MutableMapDataProvider(Collections.<String, Object>emptyMap());
+		final ConfigurationDataProvider bottom = new MapBasedDataProvider(ImmutableMap.of("a", "bottom"));
+		final IndexedCompoundDataProvider provider = new IndexedCompoundDataProvider(top, bottom);
+		top.put("a", null);
+		assertThat(provider.containsKey("a"), is(true));
+		assertThat(provider.getRawObject("a"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldUpdateIndexIncrementally() throws Exception {
+		final MutableMapDataProvider top = new MutableMapDataProvider(ImmutableMap.of("a", "top"));
+		final MutableMapDataProvider bottom = new MutableMapDataProvider(ImmutableMap.of("a", "bottom", "b", "bottom"));
+		final IndexedCompoundDataProvider provider = new IndexedCompoundDataProvider(top, bottom);
+		final List<ConfigurationDataChangeEvent> events = new ArrayList<ConfigurationDataChangeEvent>();
+		provider.addChangeListener(new ConfigurationDataChangeListener() {
+			@Override
+			public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+				events.add(event);
+			}
+		});
+		top.remove("a");
+		assertThat(provider.getRawObject("a"), is((Object) "bottom"));
+		top.put("b", "top");
+		assertThat(provider.getRawObject("b"), is((Object) "top"));
+		bottom.replaceAll(ImmutableMap.of("c", "bottom"));
+		assertThat(provider.containsKey("a"), is(false));
+		assertThat(provider.getRawObject("c"), is((Object) "bottom"));
+		assertThat(events.size(), is(3));
+		assertThat(events.get(0).getChangedKeys(), contains("a"));
+		assertThat(events.get(2).isFullReload(), is(true));
+	}
+
+}
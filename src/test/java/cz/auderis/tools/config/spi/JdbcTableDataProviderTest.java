@@ -0,0 +1,111 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class JdbcTableDataProviderTest {
+
+	private InMemoryConfigTable table;
+
+	@Before
+	public void initTable() throws Exception {
+		table = new InMemoryConfigTable();
+		table.insert("a", "1", 1L);
+		table.insert("b", "2", 2L);
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldLoadTableInSingleQuery() throws Exception {
+		final JdbcTableDataProvider provider = new JdbcTableDataProvider(table.getDataSource(), "app.config");
+		for (int i = 0; i < 10; ++i) {
+			assertThat(provider.containsKey("a"), is(true));
+			assertThat(provider.getRawObject("b"), is((Object) "2"));
+			assertThat(provider.containsKey("c"), is(false));
+		}
+		assertThat(table.getQueryCount(), is(1));
+		assertThat(table.getExecutedQueries(), is(Arrays.asList("SELECT config_key, config_value, version FROM app.config")));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldApplyIncrementalChanges() throws Exception {
+		final JdbcTableDataProvider provider = new JdbcTableDataProvider(table.getDataSource(), "config");
+		final List<ConfigurationDataChangeEvent> events = new ArrayList<ConfigurationDataChangeEvent>();
+		provider.addChangeListener(new ConfigurationDataChangeListener() {
+			@Override
+			public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+				events.add(event);
+			}
+		});
+		assertThat(provider.refresh(), is(false));
+		table.insert("a", "10", 3L);
+		table.insert("c", "3", 4L);
+		table.insert("b", null, 5L);
+		assertThat(provider.refresh(), is(true));
+		assertThat(provider.getRawObject("a"), is((Object) "10"));
+		assertThat(provider.getRawObject("c"), is((Object) "3"));
+		assertThat(provider.containsKey("b"), is(false));
+		assertThat(events.size(), is(1));
+		assertThat(new HashSet<String>(events.get(0).getChangedKeys()), is(new HashSet<String>(Arrays.asList("a", "b", "c"))));
+		assertThat(provider.refresh(), is(false));
+		assertThat(table.getExecutedQueries().get(1), is("SELECT config_key, config_value, version FROM config WHERE version > ?"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldQueryCustomColumns() throws Exception {
+		final JdbcTableDataProvider provider = new JdbcTableDataProvider(table.getDataSource(), "settings",
+				"name", "text", "revision");
+		provider.refresh();
+		assertThat(table.getExecutedQueries(), is(Arrays.asList(
+				"SELECT name, text, revision FROM settings",
+				"SELECT name, text, revision FROM settings WHERE revision > ?")));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldDetectDeletedRowsOnReload() throws Exception {
+		final JdbcTableDataProvider provider = new JdbcTableDataProvider(table.getDataSource(), "config");
+		table.delete("a");
+		assertThat(provider.refresh(), is(false));
+		assertThat(provider.reload(), is(true));
+		assertThat(provider.containsKey("a"), is(false));
+		assertThat(provider.getRawObject("b"), is((Object) "2"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@Category(UnitTest.class)
+	public void shouldRejectInvalidIdentifiers() throws Exception {
+		new JdbcTableDataProvider(table.getDataSource(), "config; DROP TABLE config");
+	}
+
+}
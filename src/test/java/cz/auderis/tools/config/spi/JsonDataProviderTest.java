@@ -0,0 +1,124 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationData;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.annotation.ConfigurationEntries;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class JsonDataProviderTest {
+
+	private static final String DOCUMENT = "{\n"
+			+ "  \"name\": \"descriptor \\\"x\\\" \\u00e9\",\n"
+			+ "  \"version\": 3,\n"
+			+ "  \"enabled\": true,\n"
+			+ "  \"ratio\": -1.5e3,\n"
+			+ "  \"owner\": null,\n"
+			+ "  \"servers\": [ { \"host\": \"a\", \"port\": 80 }, { \"host\": \"b\", \"port\": 81 } ],\n"
+			+ "  \"matrix\": [[1, 2], [3]],\n"
+			+ "  \"dotted.name\": { \"value\": \"d\" },\n"
+			+ "  \"empty\": {}\n"
+			+ "}";
+
+	@ConfigurationEntries(prefix = "servers.1")
+	public interface ServerConfig {
+		String getHost();
+		int getPort();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldFlattenDocument() throws Exception {
+		final JsonDataProvider provider = new JsonDataProvider(DOCUMENT);
+		assertThat(provider.getRawObject("name"), is((Object) "descriptor \"x\" \u00e9"));
+		assertThat(provider.getRawObject("version"), is((Object) "3"));
+		assertThat(provider.getRawObject("enabled"), is((Object) "true"));
+		assertThat(provider.getRawObject("ratio"), is((Object) "-1.5e3"));
+		assertThat(provider.containsKey("owner"), is(true));
+		assertThat(provider.getRawObject("owner"), nullValue());
+		assertThat(provider.getRawObject("servers.0.host"), is((Object) "a"));
+		assertThat(provider.getRawObject("servers.1.port"), is((Object) "81"));
+		assertThat(provider.getRawObject("matrix.0.1"), is((Object) "2"));
+		assertThat(provider.getRawObject("dotted.name.value"), is((Object) "d"));
+		assertThat(provider.containsKey("servers"), is(false));
+		assertThat(provider.containsKey("servers.2.host"), is(false));
+		assertThat(provider.containsKey("servers.01.host"), is(false));
+		assertThat(provider.containsKey("name.x"), is(false));
+		assertThat(provider.containsKey("empty.x"), is(false));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldProvideSubtreesAndChildNames() throws Exception {
+		final JsonDataProvider provider = new JsonDataProvider(DOCUMENT);
+		assertThat(provider.getChildNames("servers"), is(Arrays.asList("0", "1")));
+		assertThat(provider.getChildNames("servers.0"), is(Arrays.asList("host", "port")));
+		assertThat(provider.getChildNames("name").isEmpty(), is(true));
+		final JsonDataProvider server = provider.getSubtree("servers.1");
+		assertThat(server.getRawObject("host"), is((Object) "b"));
+		final ServerConfig config = ConfigurationData.createConfigurationObject(provider, ServerConfig.class);
+		assertThat(config.getHost(), is("b"));
+		assertThat(config.getPort(), is(81));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRejectInvalidDocuments() throws Exception {
+		for (String invalid : new String[] { "", "{", "{\"a\" 1}", "{\"a\": 01}", "[1,]", "{\"a\": tru}", "\"text\"", "{} x",
+				"[[]", "[}", "{\"a\": [1}", "{\"a\": 1,}", "{,}" }) {
+			try {
+				new JsonDataProvider(invalid);
+				throw new AssertionError("accepted: " + invalid);
+			} catch (ConfigurationDataException e) {
+				// Expected
+			}
+		}
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldValidateDeeplyNestedDocument() throws Exception {
+		final int depth = 200000;
+		final StringBuilder json = new StringBuilder("{\"a\": ");
+		for (int i = 0; i < depth; ++i) {
+			json.append(0 == (i & 1) ? "[" : "{\"x\": ");
+		}
+		json.append('1');
+		for (int i = depth - 1; i >= 0; --i) {
+			json.append(0 == (i & 1) ? "]" : "}");
+		}
+		json.append(", \"b\": 1}");
+		final JsonDataProvider provider = new JsonDataProvider(json.toString());
+		assertThat(provider.getRawObject("b"), is((Object) "1"));
+		try {
+			new JsonDataProvider(json.substring(0, json.length() - 10));
+			throw new AssertionError("accepted unterminated document");
+		} catch (ConfigurationDataException e) {
+			// Expected
+		}
+	}
+
+}
@@ -0,0 +1,206 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.greaterThan;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThan;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class LogStructuredDataProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRestoreUpdatesAfterReopening() throws Exception {
+		final File directory = folder.newFolder();
+		final LogStructuredDataProvider provider = new LogStructuredDataProvider(directory);
+		provider.put("a", "1");
+		provider.put("b", null);
+		provider.put("a", "2");
+		provider.put("c", "3");
+		provider.remove("c");
+		final long version = provider.getVersion();
+		provider.close();
+		final LogStructuredDataProvider reopened = new LogStructuredDataProvider(directory);
+		assertThat(reopened.getRawObject("a"), is((Object) "2"));
+		assertThat(reopened.containsKey("b"), is(true));
+		assertThat(reopened.getRawObject("b"), nullValue());
+		assertThat(reopened.containsKey("c"), is(false));
+		assertThat(reopened.getVersion(), is(version));
+		reopened.put("d", "4");
+		assertThat(reopened.getVersion(), greaterThan(version));
+		reopened.close();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldCompactLog() throws Exception {
+		final File directory = folder.newFolder();
+		final LogStructuredDataProvider provider = new LogStructuredDataProvider(directory);
+		for (int i = 0; i < 3 * LogStructuredDataProvider.MIN_RECORDS_FOR_COMPACTION; ++i) {
+			provider.put("key" + (i % 10), Integer.toString(i));
+		}
+		final Map<String, String> batch = new HashMap<String, String>();
+		batch.put("x", "y");
+		batch.put("z", "w");
+		provider.putAll(batch);
+		provider.close();
+		assertThat(new File(directory, LogStructuredDataProvider.CHECKPOINT_FILE_NAME).exists(), is(true));
+		assertThat(new File(directory, LogStructuredDataProvider.LOG_FILE_NAME).length(), lessThan(64L * LogStructuredDataProvider.MIN_RECORDS_FOR_COMPACTION));
+		final LogStructuredDataProvider reopened = new LogStructuredDataProvider(directory);
+		assertThat(reopened.getKeys().size(), is(12));
+		assertThat(reopened.getRawObject("key1"), is((Object) Integer.toString(3 * LogStructuredDataProvider.MIN_RECORDS_FOR_COMPACTION - 1)));
+		assertThat(reopened.getRawObject("z"), is((Object) "w"));
+		reopened.close();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldDiscardIncompleteRecord() throws Exception {
+		final File directory = folder.newFolder();
+		final LogStructuredDataProvider provider = new LogStructuredDataProvider(directory);
+		provider.put("a", "1");
+		provider.close();
+		final File logFile = new File(directory, LogStructuredDataProvider.LOG_FILE_NAME);
+		final long validLength = logFile.length();
+		final FileOutputStream output = new FileOutputStream(logFile, true);
+		try {
+			output.write(new byte[] { 0, 0, 0, 40, 1, 2, 3 });
+		} finally {
+			output.close();
+		}
+		final LogStructuredDataProvider reopened = new LogStructuredDataProvider(directory);
+		assertThat(reopened.getRawObject("a"), is((Object) "1"));
+		assertThat(logFile.length(), is(validLength));
+		reopened.put("b", "2");
+		reopened.close();
+		final LogStructuredDataProvider reopenedAgain = new LogStructuredDataProvider(directory);
+		assertThat(reopenedAgain.getRawObject("b"), is((Object) "2"));
+		reopenedAgain.close();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldDiscardIncompleteUpdateOfSeveralEntries() throws Exception {
+		final File directory = folder.newFolder();
+		final LogStructuredDataProvider provider = new LogStructuredDataProvider(directory);
+		provider.put("a", "1");
+		final File logFile = new File(directory, LogStructuredDataProvider.LOG_FILE_NAME);
+		final long validLength = logFile.length();
+		final Map<String, String> batch = new HashMap<String, String>();
+		batch.put("x", "1");
+		batch.put("y", "2");
+		batch.put("z", "3");
+		provider.putAll(batch);
+		final long version = provider.getVersion();
+		provider.close();
+		// Last record of the update is missing
+		final RandomAccessFile log = new RandomAccessFile(logFile, "rw");
+		try {
+			log.setLength(validLength + 2 * (logFile.length() - validLength) / 3);
+		} finally {
+			log.close();
+		}
+		final LogStructuredDataProvider reopened = new LogStructuredDataProvider(directory);
+		assertThat(reopened.getRawObject("a"), is((Object) "1"));
+		assertThat(reopened.containsKey("x"), is(false));
+		assertThat(reopened.containsKey("y"), is(false));
+		assertThat(reopened.containsKey("z"), is(false));
+		assertThat(reopened.getVersion(), lessThan(version));
+		assertThat(logFile.length(), is(validLength));
+		reopened.close();
+	}
+
+	@Test(expected = IOException.class)
+	@Category(UnitTest.class)
+	public void shouldDetectDamagedCheckpointHeader() throws Exception {
+		final File directory = folder.newFolder();
+		final LogStructuredDataProvider provider = new LogStructuredDataProvider(directory);
+		provider.put("a", "1");
+		provider.compact();
+		provider.close();
+		final RandomAccessFile checkpoint = new RandomAccessFile(new File(directory, LogStructuredDataProvider.CHECKPOINT_FILE_NAME), "rw");
+		try {
+			// Low byte of the version
+			checkpoint.seek(11L);
+			final int versionByte = checkpoint.read();
+			checkpoint.seek(11L);
+			checkpoint.write(versionByte ^ 0x10);
+		} finally {
+			checkpoint.close();
+		}
+		new LogStructuredDataProvider(directory);
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRecoverInterruptedCheckpointReplacement() throws Exception {
+		final File directory = folder.newFolder();
+		final LogStructuredDataProvider provider = new LogStructuredDataProvider(directory);
+		provider.put("a", "1");
+		provider.compact();
+		provider.put("b", "2");
+		provider.compact();
+		provider.close();
+		// State after the old checkpoint was deleted, but before the new one was renamed
+		final File checkpointFile = new File(directory, LogStructuredDataProvider.CHECKPOINT_FILE_NAME);
+		assertThat(checkpointFile.renameTo(new File(directory, LogStructuredDataProvider.CHECKPOINT_FILE_NAME + ".tmp")), is(true));
+		final LogStructuredDataProvider reopened = new LogStructuredDataProvider(directory);
+		assertThat(reopened.getRawObject("a"), is((Object) "1"));
+		assertThat(reopened.getRawObject("b"), is((Object) "2"));
+		assertThat(checkpointFile.exists(), is(true));
+		reopened.close();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldIgnoreIncompleteFirstCheckpoint() throws Exception {
+		final File directory = folder.newFolder();
+		final LogStructuredDataProvider provider = new LogStructuredDataProvider(directory);
+		provider.put("a", "1");
+		provider.close();
+		final File tempFile = new File(directory, LogStructuredDataProvider.CHECKPOINT_FILE_NAME + ".tmp");
+		final FileOutputStream output = new FileOutputStream(tempFile);
+		try {
+			output.write(new byte[] { 0x4C, 0x53, 0x43, 0x50, 0, 0 });
+		} finally {
+			output.close();
+		}
+		final LogStructuredDataProvider reopened = new LogStructuredDataProvider(directory);
+		assertThat(reopened.getRawObject("a"), is((Object) "1"));
+		assertThat(tempFile.exists(), is(false));
+		reopened.close();
+	}
+
+}
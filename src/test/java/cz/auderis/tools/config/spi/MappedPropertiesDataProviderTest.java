@@ -0,0 +1,136 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class MappedPropertiesDataProviderTest {
+
+	private static final String CONTENT = ""
+			+ "# comment = ignored\n"
+			+ "! another comment \\\n"
+			+ "simple=value\n"
+			+ "  indented : spaced value  \n"
+			+ "whitespace separated\n"
+			+ "empty=\n"
+			+ "keyOnly\n"
+			+ "\n"
+			+ "escaped\\ key\\:x = a\\tb\\u0041\\\\\n"
+			+ "continued = first, \\\r\n"
+			+ "      second, \\\n"
+			+ "  third\n"
+			+ "duplicate=old\r"
+			+ "duplicate=new\n"
+			+ "unicode.\\u00e9=\\u00e9t\\u00e9\n"
+			+ "last=no line end";
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldReadSameEntriesAsProperties() throws Exception {
+		final MappedPropertiesDataProvider provider = assertSameAsProperties(CONTENT);
+		assertThat(provider.getRawObject("duplicate"), is((Object) "new"));
+		assertThat(provider.getRawObject("continued"), is((Object) "first, second, third"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldHandleContinuationEdgeCasesAsProperties() throws Exception {
+		final String[] contents = {
+				"a=1\n\\\n#c\n",
+				"\\\n\nx=1\n",
+				"\\\n  !c\ny=2",
+				"a\\\n=b\n",
+				"a\\\n  \\\n  b = c\n",
+				"k = \\\n  = v\n",
+				"k\\\n\n  = v\n",
+				"k=\\\\\n",
+				"k=\\\r\n\r\nnext=1\r",
+				"k\\\\\\\nx=1\n",
+				"  \\\n\\\n\\",
+				"trailing\\",
+		};
+		for (String content : contents) {
+			assertSameAsProperties(content);
+		}
+	}
+
+	private MappedPropertiesDataProvider assertSameAsProperties(String content) throws Exception {
+		final File file = writeFile(content);
+		final MappedPropertiesDataProvider provider = new MappedPropertiesDataProvider(file);
+		final Properties expected = new Properties();
+		final InputStream input = new FileInputStream(file);
+		try {
+			expected.load(input);
+		} finally {
+			input.close();
+		}
+		for (String key : expected.stringPropertyNames()) {
+			assertThat(content + " / " + key, provider.containsKey(key), is(true));
+			assertThat(content + " / " + key, provider.getRawObject(key), is((Object) expected.getProperty(key)));
+		}
+		assertThat(content, provider.size(), is(expected.size()));
+		return provider;
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldNotFindMissingKeys() throws Exception {
+		final MappedPropertiesDataProvider provider = new MappedPropertiesDataProvider(writeFile(CONTENT));
+		assertThat(provider.containsKey("comment"), is(false));
+		assertThat(provider.containsKey("simple "), is(false));
+		assertThat(provider.containsKey("simpl"), is(false));
+		assertThat(provider.getRawObject("missing"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldHandleEmptyFile() throws Exception {
+		final MappedPropertiesDataProvider provider = new MappedPropertiesDataProvider(writeFile(""));
+		assertThat(provider.size(), is(0));
+		assertThat(provider.containsKey(""), is(false));
+	}
+
+	private File writeFile(String content) throws Exception {
+		final File file = folder.newFile();
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("ISO-8859-1"));
+		} finally {
+			output.close();
+		}
+		return file;
+	}
+
+}
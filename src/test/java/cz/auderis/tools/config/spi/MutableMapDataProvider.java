@@ -0,0 +1,84 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import cz.auderis.tools.config.ObservableDataProvider;
+import cz.auderis.tools.config.VersionedDataProvider;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+public class MutableMapDataProvider implements EnumerableDataProvider, ObservableDataProvider, VersionedDataProvider {
+	private final Map<String, Object> data;
+	private final ChangeListenerSupport changeSupport;
+
+	public MutableMapDataProvider(Map<String, ?> initialData) {
+		this.data = Collections.synchronizedMap(new HashMap<String, Object>(initialData));
+		this.changeSupport = new ChangeListenerSupport(this);
+	}
+
+	public void put(String key, Object value) {
+		data.put(key, value);
+		changeSupport.fireKeysChanged(Collections.singleton(key));
+	}
+
+	public void remove(String key) {
+		data.remove(key);
+		changeSupport.fireKeysChanged(Collections.singleton(key));
+	}
+
+	public void replaceAll(Map<String, ?> newData) {
+		data.clear();
+		data.putAll(newData);
+		changeSupport.fireFullReload();
+	}
+
+	@Override
+	public boolean containsKey(String key) {
+		return data.containsKey(key);
+	}
+
+	@Override
+	public Object getRawObject(String key) {
+		return data.get(key);
+	}
+
+	@Override
+	public long getVersion() {
+		return changeSupport.getVersion();
+	}
+
+	@Override
+	public Set<String> getKeys() {
+		return Collections.unmodifiableSet(data.keySet());
+	}
+
+	@Override
+	public void addChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.addChangeListener(listener);
+	}
+
+	@Override
+	public void removeChangeListener(ConfigurationDataChangeListener listener) {
+		changeSupport.removeChangeListener(listener);
+	}
+
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import com.google.common.collect.ImmutableMap;
+import cz.auderis.test.category.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class OffHeapDataProviderTest {
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldStoreNarrowAndWideTexts() throws Exception {
+		final Map<String, String> data = new HashMap<String, String>();
+		data.put("plain", "value");
+		data.put("latin.é", "café");
+		data.put("wide.č", "žluťoučký kůň");
+		data.put("null", null);
+		data.put("", "");
+		final OffHeapDataProvider provider = new OffHeapDataProvider(data);
+		for (Map.Entry<String, String> entry : data.entrySet()) {
+			assertThat(entry.getKey(), provider.containsKey(entry.getKey()), is(true));
+			assertThat(entry.getKey(), provider.getRawObject(entry.getKey()), is((Object) entry.getValue()));
+		}
+		assertThat(provider.size(), is(5));
+		assertThat(provider.containsKey("wide.c"), is(false));
+		assertThat(provider.containsKey("plai"), is(false));
+		assertThat(provider.getRawObject("missing"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldHandleManyEntries() throws Exception {
+		final Map<String, String> data = new HashMap<String, String>();
+		for (int i = 0; i < 20000; ++i) {
+			data.put("entry." + i, Integer.toString(i));
+		}
+		final OffHeapDataProvider provider = new OffHeapDataProvider(data);
+		for (int i = 0; i < 20000; ++i) {
+			assertThat(provider.getRawObject("entry." + i), is((Object) Integer.toString(i)));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@Category(UnitTest.class)
+	public void shouldRejectNonTextValues() throws Exception {
+		new OffHeapDataProvider(ImmutableMap.of("number", Integer.valueOf(1)));
+	}
+
+}
@@ -0,0 +1,133 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.SingleItemDataProvider;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ParallelCompoundDataProviderTest {
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldQueryDelegatesConcurrently() throws Exception {
+		final CountDownLatch lowerStarted = new CountDownLatch(1);
+		final SlowProvider higher = new SlowProvider("a", "higher", null, lowerStarted);
+		final SlowProvider lower = new SlowProvider("b", "lower", lowerStarted, null);
+		final ParallelCompoundDataProvider provider = new ParallelCompoundDataProvider(higher, lower);
+		// The higher-precedence delegate only answers after the lower one has started
+		assertThat(provider.getRawObject("b"), is((Object) "lower"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldPreserveDelegatePrecedence() throws Exception {
+		final SlowProvider higher = new SlowProvider("a", "higher", null, null);
+		final SlowProvider lower = new SlowProvider("a", "lower", null, null);
+		final ParallelCompoundDataProvider provider = new ParallelCompoundDataProvider(higher, lower);
+		assertThat(provider.getRawObject("a"), is((Object) "higher"));
+		assertThat(provider.containsKey("a"), is(true));
+		assertThat(provider.containsKey("c"), is(false));
+		assertThat(provider.getRawObject("c"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldCancelPendingLookupsWithoutInterrupting() throws Exception {
+		final ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			final CountDownLatch release = new CountDownLatch(1);
+			final BlockedProvider running = new BlockedProvider(release);
+			final BlockedProvider queued = new BlockedProvider(release);
+			// The higher-precedence delegate answers once the lookup in the next one is running
+			final SlowProvider higher = new SlowProvider("a", "higher", null, running.started);
+			final ParallelCompoundDataProvider provider = new ParallelCompoundDataProvider(executor, higher, running, queued);
+			assertThat(provider.getRawObject("a"), is((Object) "higher"));
+			release.countDown();
+			executor.shutdown();
+			assertThat(executor.awaitTermination(5L, TimeUnit.SECONDS), is(true));
+			assertThat(running.interrupted, is(false));
+			assertThat(queued.started.getCount(), is(1L));
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	static final class BlockedProvider extends SingleItemDataProvider {
+		final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release;
+		volatile boolean interrupted;
+
+		BlockedProvider(CountDownLatch release) {
+			super("b", "lower");
+			this.release = release;
+		}
+
+		@Override
+		public boolean containsKey(String key) {
+			started.countDown();
+			try {
+				release.await(5L, TimeUnit.SECONDS);
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+			return super.containsKey(key);
+		}
+	}
+
+	static final class SlowProvider extends SingleItemDataProvider {
+		private final CountDownLatch startSignal;
+		private final CountDownLatch awaitedSignal;
+
+		SlowProvider(String key, Object value, CountDownLatch startSignal, CountDownLatch awaitedSignal) {
+			super(key, value);
+			this.startSignal = startSignal;
+			this.awaitedSignal = awaitedSignal;
+		}
+
+		@Override
+		public boolean containsKey(String key) {
+			if (null != startSignal) {
+				startSignal.countDown();
+			}
+			if (null != awaitedSignal) {
+				try {
+					awaitedSignal.await(200L, TimeUnit.MILLISECONDS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					return false;
+				}
+			}
+			final boolean result = super.containsKey(key);
+			if ((null != awaitedSignal) && (0L != awaitedSignal.getCount())) {
+				throw new IllegalStateException("delegates were not queried concurrently");
+			}
+			return result;
+		}
+	}
+
+}
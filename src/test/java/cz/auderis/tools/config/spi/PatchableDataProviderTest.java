@@ -0,0 +1,190 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationData;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class PatchableDataProviderTest {
+
+	public interface TestDataObject {
+		StringBuilder getFirst();
+		StringBuilder getSecond();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldApplyPatch() throws Exception {
+		final PatchableDataProvider provider = new PatchableDataProvider(data("a", "1", "b", "2", "c", null));
+		final List<ConfigurationDataChangeEvent> events = recordEvents(provider);
+		final Map<String, Object> puts = data("a", "10", "b", "2", "d", "4");
+		assertThat(provider.apply(new DataPatch(5L, puts, Arrays.asList("c", "missing"))), is(true));
+		assertThat(provider.getRawObject("a"), is((Object) "10"));
+		assertThat(provider.getRawObject("b"), is((Object) "2"));
+		assertThat(provider.containsKey("c"), is(false));
+		assertThat(provider.getRawObject("d"), is((Object) "4"));
+		assertThat(provider.getKeys(), is(set("a", "b", "d")));
+		assertThat(provider.getVersion(), is(5L));
+		assertThat(events.size(), is(1));
+		assertThat(events.get(0).getChangedKeys(), is(set("a", "c", "d")));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldIgnoreOutdatedPatch() throws Exception {
+		final PatchableDataProvider provider = new PatchableDataProvider(data("a", "1"));
+		assertThat(provider.apply(new DataPatch(2L, data("a", "2"), Collections.<String>emptySet())), is(true));
+		assertThat(provider.apply(new DataPatch(2L, data("a", "3"), Collections.<String>emptySet())), is(false));
+		assertThat(provider.apply(new DataPatch(1L, data("a", "4"), Collections.<String>emptySet())), is(false));
+		assertThat(provider.getRawObject("a"), is((Object) "2"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldHandleLargeDataAndHashCollisions() throws Exception {
+		final Map<String, Object> initial = new HashMap<String, Object>();
+		for (int i = 0; i < 20000; ++i) {
+			initial.put("key." + i, Integer.toString(i));
+		}
+		// Keys with equal hash codes
+		initial.put("Aa", "x");
+		initial.put("BB", "y");
+		final PatchableDataProvider provider = new PatchableDataProvider(initial);
+		assertThat(provider.getKeys().size(), is(initial.size()));
+		assertThat(new HashSet<String>(provider.getKeys()), is(initial.keySet()));
+		provider.apply(new DataPatch(1L, data("AaAa", "z"), Arrays.asList("Aa", "key.7")));
+		assertThat(provider.getRawObject("Aa"), nullValue());
+		assertThat(provider.getRawObject("BB"), is((Object) "y"));
+		assertThat(provider.getRawObject("AaAa"), is((Object) "z"));
+		assertThat(provider.containsKey("BBBB"), is(false));
+		assertThat(provider.containsKey("key.7"), is(false));
+		assertThat(provider.getRawObject("key.19999"), is((Object) "19999"));
+		assertThat(provider.getKeys().size(), is(initial.size() - 1));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldReadPatchFile() throws Exception {
+		final String text = "# pushed configuration\n@version 12\n+a=x=y\n-b\n\n+c=\n";
+		final DataPatch patch = DataPatch.read(new StringReader(text));
+		assertThat(patch.getVersion(), is(12L));
+		assertThat(patch.getPuts(), is(data("a", "x=y", "c", "")));
+		assertThat(patch.getRemovals(), is(set("b")));
+	}
+
+	@Test(expected = ConfigurationDataException.class)
+	@Category(UnitTest.class)
+	public void shouldRejectPatchWithoutVersion() throws Exception {
+		DataPatch.read(new StringReader("+a=1\n"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldInvalidateOnlyAffectedProxyEntries() throws Exception {
+		final PatchableDataProvider provider = new PatchableDataProvider(data("first", "1", "second", "2"));
+		final TestDataObject testObject = ConfigurationData.createConfigurationObject(provider, TestDataObject.class);
+		final StringBuilder first = testObject.getFirst();
+		final StringBuilder second = testObject.getSecond();
+		assertThat(testObject.getSecond(), sameInstance(second));
+		provider.apply(new DataPatch(1L, data("second", "20"), Collections.<String>emptySet()));
+		assertThat(testObject.getFirst(), sameInstance(first));
+		assertThat(testObject.getSecond(), not(sameInstance(second)));
+		assertThat(testObject.getSecond().toString(), is("20"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldUnregisterListenersOfDiscardedProxies() throws Exception {
+		final ListenerCountingProvider provider = new ListenerCountingProvider(data("first", "1"));
+		for (int i = 0; i < 100; ++i) {
+			ConfigurationData.createConfigurationObject(provider, TestDataObject.class);
+		}
+		TestDataObject testObject = null;
+		for (int attempt = 0; (attempt < 20) && (provider.listenerCount > 10); ++attempt) {
+			System.gc();
+			Thread.sleep(10L);
+			testObject = ConfigurationData.createConfigurationObject(provider, TestDataObject.class);
+		}
+		assertThat(provider.listenerCount <= 10, is(true));
+		assertThat(testObject.getFirst().toString(), is("1"));
+	}
+
+	private static List<ConfigurationDataChangeEvent> recordEvents(PatchableDataProvider provider) {
+		final List<ConfigurationDataChangeEvent> events = new ArrayList<ConfigurationDataChangeEvent>();
+		provider.addChangeListener(new ConfigurationDataChangeListener() {
+			@Override
+			public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+				events.add(event);
+			}
+		});
+		return events;
+	}
+
+	private static Map<String, Object> data(Object... keysAndValues) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			result.put((String) keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return result;
+	}
+
+	private static Set<String> set(String... items) {
+		return new HashSet<String>(Arrays.asList(items));
+	}
+
+	static final class ListenerCountingProvider extends PatchableDataProvider {
+		volatile int listenerCount;
+
+		ListenerCountingProvider(Map<String, ?> initialData) {
+			super(initialData);
+		}
+
+		@Override
+		public synchronized void addChangeListener(ConfigurationDataChangeListener listener) {
+			super.addChangeListener(listener);
+			++listenerCount;
+		}
+
+		@Override
+		public synchronized void removeChangeListener(ConfigurationDataChangeListener listener) {
+			super.removeChangeListener(listener);
+			--listenerCount;
+		}
+	}
+
+}
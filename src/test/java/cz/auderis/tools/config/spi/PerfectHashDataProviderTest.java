@@ -0,0 +1,72 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PerfectHashDataProviderTest {
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldFindAllKeys() throws Exception {
+		final Map<String, Object> data = new HashMap<String, Object>();
+		for (int i = 0; i < 50000; ++i) {
+			data.put("feature.flag" + i, Integer.valueOf(i));
+		}
+		final PerfectHashDataProvider provider = new PerfectHashDataProvider(data);
+		for (int i = 0; i < 50000; ++i) {
+			assertThat(provider.getRawObject("feature.flag" + i), is((Object) Integer.valueOf(i)));
+		}
+		assertThat(provider.containsKey("feature.flag50000"), is(false));
+		assertThat(provider.containsKey("feature.flag"), is(false));
+		assertThat(new HashSet<String>(provider.getKeys()), is(data.keySet()));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldKeepNullValues() throws Exception {
+		final Map<String, Object> data = new HashMap<String, Object>();
+		data.put("a", null);
+		data.put("b", "x");
+		final PerfectHashDataProvider provider = new PerfectHashDataProvider(data);
+		assertThat(provider.containsKey("a"), is(true));
+		assertThat(provider.getRawObject("a"), nullValue());
+		assertThat(provider.getRawObject("b"), is((Object) "x"));
+		assertThat(provider.getKeys().size(), is(2));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldHandleEmptySource() throws Exception {
+		final PerfectHashDataProvider provider = new PerfectHashDataProvider(Collections.<String, Object>emptyMap());
+		assertThat(provider.containsKey("a"), is(false));
+		assertThat(provider.getRawObject("a"), nullValue());
+		assertThat(provider.getKeys().isEmpty(), is(true));
+	}
+
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class PrefixTrieDataProviderTest {
+
+	private PrefixTrieDataProvider provider;
+
+	@Before
+	public void initProvider() throws Exception {
+		final Map<String, Object> data = new HashMap<String, Object>();
+		data.put("tenant.4.name", "four");
+		data.put("tenant.42.name", "forty-two");
+		data.put("tenant.42.limit", "10");
+		data.put("tenant.42", null);
+		data.put("tenant.7.name", "seven");
+		data.put("other", "x");
+		provider = new PrefixTrieDataProvider(data);
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldFindExactKeys() throws Exception {
+		assertThat(provider.getRawObject("tenant.42.name"), is((Object) "forty-two"));
+		assertThat(provider.getRawObject("tenant.4.name"), is((Object) "four"));
+		assertThat(provider.containsKey("tenant.42"), is(true));
+		assertThat(provider.getRawObject("tenant.42"), nullValue());
+		assertThat(provider.containsKey("tenant.4"), is(false));
+		assertThat(provider.containsKey("tenant.42.nam"), is(false));
+		assertThat(provider.containsKey("tenant.42.names"), is(false));
+		assertThat(provider.containsKey(""), is(false));
+		assertThat(provider.getKeys().size(), is(6));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldEnumerateKeysUnderPrefix() throws Exception {
+		assertThat(provider.getKeys("tenant.42."), is(set("tenant.42.name", "tenant.42.limit")));
+		assertThat(provider.getKeys("tenant.4"), is(set("tenant.4.name", "tenant.42", "tenant.42.name", "tenant.42.limit")));
+		assertThat(provider.getKeys("tenant.42.").size(), is(2));
+		assertThat(provider.getKeys("tenant.5").isEmpty(), is(true));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldProvideSubtreeView() throws Exception {
+		final PrefixTrieDataProvider subtree = provider.getSubtree("tenant.42.");
+		assertThat(subtree.getRawObject("name"), is((Object) "forty-two"));
+		assertThat(subtree.getRawObject("limit"), is((Object) "10"));
+		assertThat(subtree.containsKey("tenant.42.name"), is(false));
+		assertThat(subtree.getKeys(), is(set("name", "limit")));
+		final PrefixTrieDataProvider nested = provider.getSubtree("tenant.").getSubtree("7.");
+		assertThat(nested.getRawObject("name"), is((Object) "seven"));
+		assertThat(provider.getSubtree("missing.").getKeys().isEmpty(), is(true));
+	}
+
+	private static Set<String> set(String... items) {
+		return new HashSet<String>(Arrays.asList(items));
+	}
+
+}
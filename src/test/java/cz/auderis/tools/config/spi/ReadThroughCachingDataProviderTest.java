@@ -0,0 +1,288 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataProvider;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class ReadThroughCachingDataProviderTest {
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldCacheLookups() throws Exception {
+		final CountingProvider backend = new CountingProvider(null);
+		final ReadThroughCachingDataProvider provider = new ReadThroughCachingDataProvider(backend, 1L, TimeUnit.HOURS);
+		for (int i = 0; i < 5; ++i) {
+			assertThat(provider.getRawObject("a"), is((Object) "value-a"));
+			assertThat(provider.containsKey("a"), is(true));
+			assertThat(provider.containsKey("missing"), is(false));
+			assertThat(provider.getRawObject("missing"), nullValue());
+		}
+		assertThat(backend.queryCount.get(), is(2));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldCollapseConcurrentMisses() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountingProvider backend = new CountingProvider(release);
+		final ReadThroughCachingDataProvider provider = new ReadThroughCachingDataProvider(backend, 1L, TimeUnit.HOURS);
+		final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 8; ++i) {
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					results.add(provider.getRawObject("a"));
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		backend.started.await(5L, TimeUnit.SECONDS);
+		Thread.sleep(50L);
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000L);
+		}
+		assertThat(results.size(), is(8));
+		for (Object result : results) {
+			assertThat(result, is((Object) "value-a"));
+		}
+		assertThat(backend.queryCount.get(), is(1));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldServeStaleValueWhileRefreshing() throws Exception {
+		final CountingProvider backend = new CountingProvider(null);
+		final List<Runnable> scheduled = new ArrayList<Runnable>();
+		final Executor executor = new Executor() {
+			@Override
+			public void execute(Runnable command) {
+				scheduled.add(command);
+			}
+		};
+		final long[] clock = { 0L };
+		final ReadThroughCachingDataProvider provider = new ReadThroughCachingDataProvider(backend, 10L, 100L,
+				TimeUnit.NANOSECONDS, 16, 1, executor) {
+			@Override
+			long currentTimeNanos() {
+				return clock[0];
+			}
+		};
+		assertThat(provider.getRawObject("a"), is((Object) "value-a"));
+		backend.suffix = "-new";
+		clock[0] = 20L;
+		// Stale value is returned, a single refresh is scheduled
+		assertThat(provider.getRawObject("a"), is((Object) "value-a"));
+		assertThat(provider.getRawObject("a"), is((Object) "value-a"));
+		assertThat(scheduled.size(), is(1));
+		scheduled.get(0).run();
+		assertThat(provider.getRawObject("a"), is((Object) "value-a-new"));
+		// Entries past the hard limit are loaded synchronously
+		backend.suffix = "-newer";
+		clock[0] = 200L;
+		assertThat(provider.getRawObject("a"), is((Object) "value-a-newer"));
+		assertThat(scheduled.size(), is(1));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldLimitConcurrentBackendQueries() throws Exception {
+		final CountingProvider backend = new CountingProvider(null);
+		backend.delayMillis = 20L;
+		final ReadThroughCachingDataProvider provider = new ReadThroughCachingDataProvider(backend, 1L, 1L,
+				TimeUnit.HOURS, 16, 2, BackgroundExecutor.INSTANCE);
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 6; ++i) {
+			final String key = "k" + i;
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					provider.getRawObject(key);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads) {
+			thread.join(5000L);
+		}
+		assertThat(backend.queryCount.get(), is(6));
+		assertThat(backend.maxActive.get() <= 2, is(true));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldInvalidateEntriesChangedInDelegate() throws Exception {
+		final MutableMapDataProvider backend = new MutableMapDataProvider(Collections.singletonMap("a", "1"));
+		final ReadThroughCachingDataProvider provider = new ReadThroughCachingDataProvider(backend, 1L, TimeUnit.HOURS);
+		assertThat(provider.getRawObject("a"), is((Object) "1"));
+		backend.put("a", "2");
+		assertThat(provider.getRawObject("a"), is((Object) "2"));
+		backend.remove("a");
+		assertThat(provider.containsKey("a"), is(false));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldNotFailLookupOfInterruptedThread() throws Exception {
+		final CountingProvider backend = new CountingProvider(null);
+		final ReadThroughCachingDataProvider provider = new ReadThroughCachingDataProvider(backend, 1L, TimeUnit.HOURS);
+		Thread.currentThread().interrupt();
+		try {
+			assertThat(provider.getRawObject("a"), is((Object) "value-a"));
+		} finally {
+			assertThat(Thread.interrupted(), is(true));
+		}
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldNotPassInterruptToOtherWaiters() throws Exception {
+		final CountDownLatch release = new CountDownLatch(1);
+		final CountingProvider backend = new CountingProvider(release);
+		final ReadThroughCachingDataProvider provider = new ReadThroughCachingDataProvider(backend, 1L, TimeUnit.HOURS);
+		final List<Object> results = Collections.synchronizedList(new ArrayList<Object>());
+		final List<Thread> threads = new ArrayList<Thread>();
+		for (int i = 0; i < 3; ++i) {
+			final Thread thread = new Thread(new Runnable() {
+				@Override
+				public void run() {
+					results.add(provider.getRawObject("a"));
+					results.add(Boolean.valueOf(Thread.currentThread().isInterrupted()));
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		backend.started.await(5L, TimeUnit.SECONDS);
+		Thread.sleep(50L);
+		for (Thread thread : threads) {
+			thread.interrupt();
+		}
+		release.countDown();
+		for (Thread thread : threads) {
+			thread.join(5000L);
+		}
+		assertThat(Collections.frequency(results, "value-a"), is(3));
+		assertThat(Collections.frequency(results, Boolean.TRUE), is(3));
+		assertThat(backend.queryCount.get(), is(1));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldEvictSingleEntriesWhenFull() throws Exception {
+		final CountingProvider backend = new CountingProvider(null);
+		final long[] clock = { 0L };
+		final ReadThroughCachingDataProvider provider = new ReadThroughCachingDataProvider(backend, 1L, 1L,
+				TimeUnit.HOURS, 4, 1, BackgroundExecutor.INSTANCE) {
+			@Override
+			long currentTimeNanos() {
+				return ++clock[0];
+			}
+		};
+		for (int i = 0; i < 10; ++i) {
+			provider.getRawObject("k" + i);
+		}
+		assertThat(backend.queryCount.get(), is(10));
+		// The most recently loaded entries remain cached
+		for (int i = 6; i < 10; ++i) {
+			provider.getRawObject("k" + i);
+		}
+		assertThat(backend.queryCount.get(), is(10));
+		provider.getRawObject("k0");
+		assertThat(backend.queryCount.get(), is(11));
+	}
+
+	static final class CountingProvider implements ConfigurationDataProvider {
+		final AtomicInteger queryCount = new AtomicInteger();
+		final AtomicInteger active = new AtomicInteger();
+		final AtomicInteger maxActive = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(1);
+		private final CountDownLatch release;
+		volatile String suffix = "";
+		volatile long delayMillis;
+
+		CountingProvider(CountDownLatch release) {
+			this.release = release;
+		}
+
+		@Override
+		public boolean containsKey(String key) {
+			queryCount.incrementAndGet();
+			final int nowActive = active.incrementAndGet();
+			try {
+				int max;
+				do {
+					max = maxActive.get();
+				} while ((nowActive > max) && !maxActive.compareAndSet(max, nowActive));
+				started.countDown();
+				if (null != release) {
+					awaitRelease();
+				}
+				if (0L != delayMillis) {
+					Thread.sleep(delayMillis);
+				}
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				active.decrementAndGet();
+			}
+			return !key.startsWith("missing");
+		}
+
+		@Override
+		public Object getRawObject(String key) {
+			return "value-" + key + suffix;
+		}
+
+		/**
+		 * Waits like a blocking I/O call that does not respond to interrupts, keeping the interrupt status.
+		 */
+		private void awaitRelease() {
+			boolean interrupted = false;
+			while (true) {
+				try {
+					release.await(5L, TimeUnit.SECONDS);
+					break;
+				} catch (InterruptedException e) {
+					interrupted = true;
+				}
+			}
+			if (interrupted) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
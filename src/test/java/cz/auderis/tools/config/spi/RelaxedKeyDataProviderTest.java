@@ -0,0 +1,73 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import com.google.common.collect.ImmutableMap;
+import cz.auderis.test.category.UnitTest;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RelaxedKeyDataProviderTest {
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldBindAllSpellingsToSameEntry() throws Exception {
+		final RelaxedKeyDataProvider provider = new RelaxedKeyDataProvider(
+				new MapBasedDataProvider(ImmutableMap.of("db.max-pool-size", "25")));
+		for (String key : new String[] { "db.maxPoolSize", "db.max-pool-size", "db.max_pool_size", "DB.MAX_POOL_SIZE", "Db.MaxPoolSize" }) {
+			assertThat(key, provider.containsKey(key), is(true));
+			assertThat(key, provider.getRawObject(key), is((Object) "25"));
+		}
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldKeepDotsSignificant() throws Exception {
+		final RelaxedKeyDataProvider provider = new RelaxedKeyDataProvider(
+				new MapBasedDataProvider(ImmutableMap.of("db.maxPoolSize", "25")));
+		assertThat(provider.containsKey("DB_MAX_POOL_SIZE"), is(false));
+		assertThat(provider.containsKey("dbmaxPoolSize"), is(false));
+		assertThat(provider.containsKey("db.maxPool"), is(false));
+		assertThat(provider.getRawObject("db.max.pool.size"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldPreferExactMatchOfAmbiguousKeys() throws Exception {
+		final RelaxedKeyDataProvider provider = new RelaxedKeyDataProvider(
+				new MapBasedDataProvider(ImmutableMap.of("max_pool_size", "a", "maxPoolSize", "b")));
+		assertThat(provider.getRawObject("max_pool_size"), is((Object) "a"));
+		assertThat(provider.getRawObject("maxPoolSize"), is((Object) "b"));
+		assertThat(provider.getRawObject("MAX-POOL-SIZE"), is((Object) "b"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRebuildIndexAfterChange() throws Exception {
+		final MutableMapDataProvider source = new MutableMapDataProvider(ImmutableMap.of("a-b", "1"));
+		final RelaxedKeyDataProvider provider = new RelaxedKeyDataProvider(source);
+		source.put("c_d", "2");
+		source.remove("a-b");
+		assertThat(provider.getRawObject("cD"), is((Object) "2"));
+		assertThat(provider.containsKey("aB"), is(false));
+	}
+
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import com.google.common.collect.ImmutableMap;
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataProvider;
+import cz.auderis.tools.config.SingleItemDataProvider;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class RoutingCompoundDataProviderTest {
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldSkipVersionedDelegatesKnownNotToContainKey() throws Exception {
+		final CountingProvider top = new CountingProvider(ImmutableMap.of("a", "top"));
+		final CountingProvider bottom = new CountingProvider(ImmutableMap.of("b", "bottom"));
+		final RoutingCompoundDataProvider provider = new RoutingCompoundDataProvider(top, bottom);
+		assertThat(provider.getRawObject("b"), is((Object) "bottom"));
+		assertThat(provider.containsKey("c"), is(false));
+		final int topProbes = top.probes.get();
+		final int bottomProbes = bottom.probes.get();
+		for (int i = 0; i < 10; ++i) {
+			assertThat(provider.getRawObject("b"), is((Object) "bottom"));
+			assertThat(provider.containsKey("c"), is(false));
+		}
+		assertThat(top.probes.get(), is(topProbes));
+		assertThat(bottom.probes.get(), is(bottomProbes));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRerouteAfterVersionedDelegateChange() throws Exception {
+		final MutableMapDataProvider top = new MutableMapDataProvider(ImmutableMap.of("a", "top"));
+		final ConfigurationDataProvider bottom = new MapBasedDataProvider(ImmutableMap.of("b", "bottom"));
+		final RoutingCompoundDataProvider provider = new RoutingCompoundDataProvider(top, bottom);
+		assertThat(provider.getRawObject("b"), is((Object) "bottom"));
+		assertThat(provider.containsKey("c"), is(false));
+		top.put("b", "top");
+		top.put("c", "top");
+		assertThat(provider.getRawObject("b"), is((Object) "top"));
+		assertThat(provider.getRawObject("c"), is((Object) "top"));
+		top.remove("b");
+		assertThat(provider.getRawObject("b"), is((Object) "bottom"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldAlwaysQueryUnversionedDelegates() throws Exception {
+		final SwitchableProvider top = new SwitchableProvider("b", "top");
+		final ConfigurationDataProvider bottom = new MapBasedDataProvider(ImmutableMap.of("b", "bottom"));
+		final RoutingCompoundDataProvider provider = new RoutingCompoundDataProvider(top, bottom);
+		assertThat(provider.getRawObject("b"), is((Object) "bottom"));
+		top.enabled = true;
+		assertThat(provider.getRawObject("b"), is((Object) "top"));
+		top.enabled = false;
+		assertThat(provider.getRawObject("b"), is((Object) "bottom"));
+		assertThat(provider.getRawObject("x"), nullValue());
+	}
+
+	static final class CountingProvider extends MapBasedDataProvider {
+		final AtomicInteger probes = new AtomicInteger();
+
+		CountingProvider(Map<String, ?> data) {
+			super(data);
+		}
+
+		@Override
+		public boolean containsKey(String key) {
+			probes.incrementAndGet();
+			return super.containsKey(key);
+		}
+	}
+
+	static final class SwitchableProvider extends SingleItemDataProvider {
+		volatile boolean enabled;
+		SwitchableProvider(String key, Object value) {
+			super(key, value);
+		}
+
+		@Override
+		public boolean containsKey(String key) {
+			return enabled && super.containsKey(key);
+		}
+	}
+
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import com.google.common.collect.ImmutableMap;
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.fail;
+
+public class SharedMemoryDataProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldSeePublishedSnapshots() throws Exception {
+		final File file = folder.newFile();
+		final SharedMemoryDataPublisher publisher = new SharedMemoryDataPublisher(file, 4096);
+		final SharedMemoryDataProvider provider = new SharedMemoryDataProvider(file);
+		assertThat(provider.containsKey("a"), is(false));
+		assertThat(provider.getVersion(), is(0L));
+		final Map<String, String> first = new HashMap<String, String>();
+		first.put("a", "1");
+		first.put("n", null);
+		publisher.publish(first);
+		assertThat(provider.getRawObject("a"), is((Object) "1"));
+		assertThat(provider.containsKey("n"), is(true));
+		assertThat(provider.getRawObject("n"), nullValue());
+		publisher.publish(ImmutableMap.of("a", "2", "b", "3"));
+		publisher.publish(ImmutableMap.of("a", "4"));
+		assertThat(provider.getVersion(), is(3L));
+		assertThat(provider.getRawObject("a"), is((Object) "4"));
+		assertThat(provider.containsKey("b"), is(false));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldContinueExistingFile() throws Exception {
+		final File file = folder.newFile();
+		new SharedMemoryDataPublisher(file, 1024).publish(ImmutableMap.of("a", "1"));
+		final SharedMemoryDataPublisher publisher = new SharedMemoryDataPublisher(file, 1024);
+		final SharedMemoryDataProvider provider = new SharedMemoryDataProvider(file);
+		assertThat(provider.getRawObject("a"), is((Object) "1"));
+		publisher.publish(ImmutableMap.of("a", "2"));
+		assertThat(provider.getRawObject("a"), is((Object) "2"));
+		assertThat(provider.getVersion(), is(2L));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldReadConsistentlyDuringPublishing() throws Exception {
+		final File file = folder.newFile();
+		final SharedMemoryDataPublisher publisher = new SharedMemoryDataPublisher(file, 1 << 16);
+		publisher.publish(snapshot(0));
+		final SharedMemoryDataProvider provider = new SharedMemoryDataProvider(file);
+		final Thread writer = new Thread() {
+			@Override
+			public void run() {
+				for (int i = 1; i <= 200; ++i) {
+					publisher.publish(snapshot(i));
+				}
+			}
+		};
+		writer.start();
+		while (writer.isAlive()) {
+			final String first = (String) provider.getRawObject("key0");
+			final String last = (String) provider.getRawObject("key99");
+			assertThat(Integer.parseInt(last) >= Integer.parseInt(first), is(true));
+		}
+		writer.join();
+		assertThat(provider.getRawObject("key50"), is((Object) "200"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	@Category(UnitTest.class)
+	public void shouldRejectOversizedSnapshot() throws Exception {
+		final SharedMemoryDataPublisher publisher = new SharedMemoryDataPublisher(folder.newFile(), 256);
+		publisher.publish(snapshot(1));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRefuseDifferentCapacityOfExistingFile() throws Exception {
+		final File file = folder.newFile();
+		new SharedMemoryDataPublisher(file, 1024).publish(ImmutableMap.of("a", "1"));
+		final SharedMemoryDataProvider provider = new SharedMemoryDataProvider(file);
+		final long length = file.length();
+		try {
+			new SharedMemoryDataPublisher(file, 2048);
+			fail("capacity mismatch accepted");
+		} catch (IOException e) {
+			// expected
+		}
+		assertThat(file.length(), is(length));
+		assertThat(provider.getRawObject("a"), is((Object) "1"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldRejectStaleRegionHeader() throws Exception {
+		final File file = folder.newFile();
+		final SharedMemoryDataPublisher publisher = new SharedMemoryDataPublisher(file, 1024);
+		publisher.publish(ImmutableMap.of("a", "1"));
+		publisher.publish(ImmutableMap.of("a", "2"));
+		// Claim the third snapshot is published while its region still holds the first one
+		final RandomAccessFile raf = new RandomAccessFile(file, "rw");
+		try {
+			raf.seek(SharedMemoryDataProvider.SEQUENCE_OFFSET);
+			raf.writeLong(6L);
+		} finally {
+			raf.close();
+		}
+		final SharedMemoryDataProvider provider = new SharedMemoryDataProvider(file);
+		try {
+			provider.getRawObject("a");
+			fail("stale snapshot accepted");
+		} catch (ConfigurationDataException e) {
+			// expected
+		}
+	}
+
+	private static Map<String, String> snapshot(int generation) {
+		final Map<String, String> result = new HashMap<String, String>();
+		for (int i = 0; i < 100; ++i) {
+			result.put("key" + i, Integer.toString(generation));
+		}
+		return result;
+	}
+
+}
@@ -0,0 +1,213 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import cz.auderis.tools.config.ConfigurationDataException;
+import cz.auderis.tools.config.EnumerableDataProvider;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class SnapshotBackedDataProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldLoadDelegateSynchronouslyWithoutSnapshot() throws Exception {
+		final File snapshotFile = new File(folder.getRoot(), "config.snapshot");
+		final DeferredExecutor executor = new DeferredExecutor();
+		final SnapshotBackedDataProvider provider = new SnapshotBackedDataProvider(snapshotFile,
+				loader(data("a", 1, "b", null)), executor);
+		assertThat(provider.isDelegateLoaded(), is(true));
+		assertThat(provider.getRawObject("a"), is((Object) Integer.valueOf(1)));
+		assertThat(provider.containsKey("b"), is(true));
+		assertThat(provider.getRawObject("b"), nullValue());
+		assertThat(snapshotFile.isFile(), is(true));
+		assertThat(executor.tasks.size(), is(0));
+		final SnapshotBackedDataProvider restarted = new SnapshotBackedDataProvider(snapshotFile,
+				loader(data("a", 1, "b", null)), executor);
+		assertThat(restarted.getRawObject("a"), is((Object) "1"));
+		executor.tasks.get(0).run();
+		assertThat(restarted.getRawObject("a"), is((Object) Integer.valueOf(1)));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldServeSnapshotUntilDelegateIsLoaded() throws Exception {
+		final File snapshotFile = new File(folder.getRoot(), "config.snapshot");
+		new SnapshotBackedDataProvider(snapshotFile, loader(data("a", "1", "b", "2")), new DeferredExecutor());
+		final DeferredExecutor executor = new DeferredExecutor();
+		final SnapshotBackedDataProvider provider = new SnapshotBackedDataProvider(snapshotFile,
+				loader(data("a", "10", "c", "3")), executor);
+		final List<ConfigurationDataChangeEvent> events = new ArrayList<ConfigurationDataChangeEvent>();
+		provider.addChangeListener(new ConfigurationDataChangeListener() {
+			@Override
+			public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+				events.add(event);
+			}
+		});
+		assertThat(provider.isDelegateLoaded(), is(false));
+		assertThat(provider.getRawObject("a"), is((Object) "1"));
+		assertThat(provider.getRawObject("b"), is((Object) "2"));
+		assertThat(executor.tasks.size(), is(1));
+		executor.tasks.get(0).run();
+		assertThat(provider.isDelegateLoaded(), is(true));
+		assertThat(provider.getRawObject("a"), is((Object) "10"));
+		assertThat(provider.containsKey("b"), is(false));
+		assertThat(provider.getRawObject("c"), is((Object) "3"));
+		assertThat(events.size(), is(1));
+		assertThat(events.get(0).getChangedKeys().size(), is(3));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldKeepSnapshotWhenDelegateFails() throws Exception {
+		final File snapshotFile = new File(folder.getRoot(), "config.snapshot");
+		new SnapshotBackedDataProvider(snapshotFile, loader(data("a", "1")), new DeferredExecutor());
+		final DeferredExecutor executor = new DeferredExecutor();
+		final SnapshotBackedDataProvider provider = new SnapshotBackedDataProvider(snapshotFile,
+				new Callable<EnumerableDataProvider>() {
+					@Override
+					public EnumerableDataProvider call() throws Exception {
+						throw new IOException("unreachable");
+					}
+				}, executor);
+		executor.tasks.get(0).run();
+		assertThat(provider.isDelegateLoaded(), is(false));
+		assertThat(provider.getDelegateLoadFailure() instanceof IOException, is(true));
+		assertThat(provider.getRawObject("a"), is((Object) "1"));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldTrackDelegateChanges() throws Exception {
+		final File snapshotFile = new File(folder.getRoot(), "config.snapshot");
+		final MutableMapDataProvider source = new MutableMapDataProvider(data("a", "1"));
+		final DeferredExecutor executor = new DeferredExecutor();
+		final SnapshotBackedDataProvider provider = new SnapshotBackedDataProvider(snapshotFile, loader(source),
+				executor);
+		final long snapshotLength = snapshotFile.length();
+		source.put("a", "2");
+		source.put("b", "3");
+		assertThat(provider.getRawObject("a"), is((Object) "2"));
+		assertThat(provider.getRawObject("b"), is((Object) "3"));
+		// Snapshot is written once in the background for both changes
+		assertThat(snapshotFile.length(), is(snapshotLength));
+		assertThat(executor.tasks.size(), is(1));
+		executor.tasks.get(0).run();
+		final SnapshotBackedDataProvider restarted = new SnapshotBackedDataProvider(snapshotFile, loader(source),
+				new DeferredExecutor());
+		assertThat(restarted.isDelegateLoaded(), is(false));
+		assertThat(restarted.getRawObject("a"), is((Object) "2"));
+		assertThat(restarted.getRawObject("b"), is((Object) "3"));
+	}
+
+	@Test(expected = ConfigurationDataException.class)
+	@Category(UnitTest.class)
+	public void shouldIgnoreDamagedSnapshot() throws Exception {
+		final File snapshotFile = new File(folder.getRoot(), "config.snapshot");
+		new SnapshotBackedDataProvider(snapshotFile, loader(data("a", "1")), new DeferredExecutor());
+		final RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw");
+		try {
+			file.seek(file.length() - 1L);
+			final int lastByte = file.read();
+			file.seek(file.length() - 1L);
+			file.write(lastByte ^ 0x01);
+		} finally {
+			file.close();
+		}
+		// Damaged snapshot forces a synchronous load, which fails here
+		new SnapshotBackedDataProvider(snapshotFile, new Callable<EnumerableDataProvider>() {
+			@Override
+			public EnumerableDataProvider call() throws Exception {
+				throw new IOException("unreachable");
+			}
+		}, new DeferredExecutor());
+	}
+
+	@Test(expected = ConfigurationDataException.class)
+	@Category(UnitTest.class)
+	public void shouldRejectOversizedTextLength() throws Exception {
+		final File snapshotFile = new File(folder.getRoot(), "config.snapshot");
+		final RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw");
+		try {
+			file.writeInt(0x4346534E);
+			file.writeInt(1);
+			file.writeInt(0x7FFFFFF0);
+			file.write(new byte[16]);
+		} finally {
+			file.close();
+		}
+		new SnapshotBackedDataProvider(snapshotFile, new Callable<EnumerableDataProvider>() {
+			@Override
+			public EnumerableDataProvider call() throws Exception {
+				throw new IOException("unreachable");
+			}
+		}, new DeferredExecutor());
+	}
+
+	private static Map<String, Object> data(Object... keysAndValues) {
+		final Map<String, Object> result = new HashMap<String, Object>();
+		for (int i = 0; i < keysAndValues.length; i += 2) {
+			result.put((String) keysAndValues[i], keysAndValues[i + 1]);
+		}
+		return result;
+	}
+
+	private static Callable<EnumerableDataProvider> loader(Map<String, Object> data) {
+		return loader(new MutableMapDataProvider(data));
+	}
+
+	private static Callable<EnumerableDataProvider> loader(final EnumerableDataProvider provider) {
+		return new Callable<EnumerableDataProvider>() {
+			@Override
+			public EnumerableDataProvider call() {
+				return provider;
+			}
+		};
+	}
+
+	static final class DeferredExecutor implements Executor {
+		final List<Runnable> tasks = new ArrayList<Runnable>();
+
+		@Override
+		public void execute(Runnable command) {
+			tasks.add(command);
+		}
+	}
+
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import com.google.common.collect.ImmutableMap;
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigKey;
+import cz.auderis.tools.config.ConfigurationData;
+import cz.auderis.tools.config.annotation.ConfigurationEntries;
+import cz.auderis.tools.config.annotation.ConfigurationEntry;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.hamcrest.Matchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class SymbolIndexedDataProviderTest {
+
+	@ConfigurationEntries(prefix = "symbol.test")
+	public interface TestDataObject {
+		String getName();
+
+		@ConfigurationEntry(alias = { "size", ".global.size" })
+		int getCount();
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldInternKeys() throws Exception {
+		final ConfigKey key = ConfigKey.of("symbol.test.interned");
+		assertThat(ConfigKey.of(new String("symbol.test.interned")), sameInstance(key));
+		assertThat(ConfigKey.lookup("symbol.test.interned"), sameInstance(key));
+		assertThat(ConfigKey.lookup("symbol.test.neverInterned"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldAnswerBothKeyVariants() throws Exception {
+		final Map<String, Object> data = new HashMap<String, Object>();
+		data.put("symbol.test.a", "1");
+		data.put("symbol.test.b", null);
+		final SymbolIndexedDataProvider provider = new SymbolIndexedDataProvider(data);
+		assertThat(provider.containsKey(ConfigKey.of("symbol.test.a")), is(true));
+		assertThat(provider.getRawObject(ConfigKey.of("symbol.test.a")), is((Object) "1"));
+		assertThat(provider.containsKey("symbol.test.b"), is(true));
+		assertThat(provider.getRawObject("symbol.test.b"), nullValue());
+		assertThat(provider.containsKey(ConfigKey.of("symbol.test.c")), is(false));
+		assertThat(provider.containsKey("symbol.test.d"), is(false));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldResolveEntriesThroughKeyedLookup() throws Exception {
+		final SymbolIndexedDataProvider provider = new SymbolIndexedDataProvider(ImmutableMap.of(
+				"symbol.test.name", "x",
+				"global.size", "7"));
+		final TestDataObject dataObject = ConfigurationData.createConfigurationObject(provider, TestDataObject.class);
+		assertThat(dataObject.getName(), is("x"));
+		assertThat(dataObject.getCount(), is(7));
+	}
+
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataChangeEvent;
+import cz.auderis.tools.config.ConfigurationDataChangeListener;
+import org.junit.After;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+import static org.junit.Assert.assertThat;
+
+public class SystemPropertySnapshotDataProviderTest {
+
+	private static final String PROPERTY = SystemPropertySnapshotDataProviderTest.class.getName() + ".value";
+
+	@After
+	public void clearTestProperty() {
+		System.clearProperty(PROPERTY);
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldNotSeeChangesBeforeRefresh() throws Exception {
+		System.setProperty(PROPERTY, "first");
+		final SystemPropertySnapshotDataProvider provider = new SystemPropertySnapshotDataProvider();
+		System.setProperty(PROPERTY, "second");
+		assertThat(provider.getRawObject(PROPERTY), is((Object) "first"));
+		assertThat(provider.refresh(), is(true));
+		assertThat(provider.getRawObject(PROPERTY), is((Object) "second"));
+		assertThat(provider.refresh(), is(false));
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldReportChangedKeysOnRefresh() throws Exception {
+		final SystemPropertySnapshotDataProvider provider = new SystemPropertySnapshotDataProvider();
+		final List<ConfigurationDataChangeEvent> events = new ArrayList<ConfigurationDataChangeEvent>();
+		provider.addChangeListener(new ConfigurationDataChangeListener() {
+			@Override
+			public void configurationDataChanged(ConfigurationDataChangeEvent event) {
+				events.add(event);
+			}
+		});
+		final long initialVersion = provider.getVersion();
+		System.setProperty(PROPERTY, "added");
+		provider.refresh();
+		System.clearProperty(PROPERTY);
+		provider.refresh();
+		assertThat(provider.containsKey(PROPERTY), is(false));
+		assertThat(events.size(), is(2));
+		assertThat(events.get(0).getChangedKeys(), contains(PROPERTY));
+		assertThat(events.get(1).getChangedKeys(), contains(PROPERTY));
+		assertThat(provider.getVersion(), is(initialVersion + 2));
+	}
+
+}
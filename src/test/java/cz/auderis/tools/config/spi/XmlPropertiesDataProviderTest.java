@@ -0,0 +1,104 @@
+/*
+ * Copyright 2015 Boleslav Bobcik - Auderis
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package cz.auderis.tools.config.spi;
+
+import cz.auderis.test.category.UnitTest;
+import cz.auderis.tools.config.ConfigurationDataException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class XmlPropertiesDataProviderTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldReadSameEntriesAsProperties() throws Exception {
+		final Properties properties = new Properties();
+		properties.setProperty("simple", "value");
+		properties.setProperty("markup", "<a href=\"x\">&amp;</a>");
+		properties.setProperty("empty", "");
+		properties.setProperty("multi.line", "first\nsecond");
+		final File file = folder.newFile();
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			properties.storeToXML(output, "generated");
+		} finally {
+			output.close();
+		}
+		final XmlPropertiesDataProvider provider = new XmlPropertiesDataProvider(file);
+		final Properties expected = new Properties();
+		final InputStream input = new FileInputStream(file);
+		try {
+			expected.loadFromXML(input);
+		} finally {
+			input.close();
+		}
+		assertThat(provider.getKeys(), is(expected.stringPropertyNames()));
+		for (String key : expected.stringPropertyNames()) {
+			assertThat(key, provider.getRawObject(key), is((Object) expected.getProperty(key)));
+		}
+		assertThat(provider.getRawObject("missing"), nullValue());
+	}
+
+	@Test
+	@Category(UnitTest.class)
+	public void shouldReloadChangedFile() throws Exception {
+		final File file = folder.newFile();
+		write(file, "<properties><entry key=\"a\">1</entry><entry key=\"b\">2</entry></properties>");
+		final XmlPropertiesDataProvider provider = new XmlPropertiesDataProvider(file);
+		assertThat(provider.refresh(), is(false));
+		write(file, "<properties><entry key=\"a\">10</entry></properties>");
+		final long version = provider.getVersion();
+		assertThat(provider.refresh(), is(true));
+		assertThat(provider.getRawObject("a"), is((Object) "10"));
+		assertThat(provider.containsKey("b"), is(false));
+		assertThat(provider.getVersion() > version, is(true));
+	}
+
+	@Test(expected = ConfigurationDataException.class)
+	@Category(UnitTest.class)
+	public void shouldRejectUnknownElements() throws Exception {
+		final File file = folder.newFile();
+		write(file, "<properties><item key=\"a\">1</item></properties>");
+		new XmlPropertiesDataProvider(file);
+	}
+
+	private static void write(File file, String content) throws Exception {
+		final OutputStream output = new FileOutputStream(file);
+		try {
+			output.write(content.getBytes("UTF-8"));
+		} finally {
+			output.close();
+		}
+	}
+
+}